@@ -0,0 +1,215 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Loads the text of articles for the reader. The body of an article is asked for from the
+ * Guardian content endpoint, read from the response as it streams in, sanitized into plain
+ * text and stored, so the reader opens it right away the next time, also without a connection.
+ * The articles the user is likely to open next can be prefetched while on Wi-Fi. The requests
+ * count against the same quota as the feed, so they wait for the RequestScheduler as well.
+ */
+public class ArticleBodyLoader {
+
+    //Tag for the log messages
+    private static final String LOG_TAG = ArticleBodyLoader.class.getSimpleName();
+
+    //Directory in the files directory of the app the articles are stored in. Unlike the cache
+    //directory, the system does not clear it when storage runs low.
+    private static final String STORE_DIRECTORY = "articles";
+
+    //The stored articles take up at most 5 MB, several hundred articles
+    private static final long STORE_MAX_BYTES = 5 * 1024 * 1024;
+
+    private static ArticleBodyLoader sInstance;
+
+    private final ArticleBodyStore mStore;
+    private final HttpTransport mTransport;
+    private final LoadEngine mEngine;
+
+    //Lets the requests go within the quota of the api-key, or null to send them right away
+    private final RequestScheduler mScheduler;
+
+    //The articles that are being prefetched, so they are not queued twice
+    private final Set<String> mPrefetching =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    //Constructs a new ArticleBodyLoader that sends its requests right away
+    ArticleBodyLoader(ArticleBodyStore store, HttpTransport transport, LoadEngine engine) {
+        this(store, transport, engine, null);
+    }
+
+    //Constructs a new ArticleBodyLoader whose requests wait for the scheduler
+    ArticleBodyLoader(ArticleBodyStore store, HttpTransport transport, LoadEngine engine,
+                      RequestScheduler scheduler) {
+        mScheduler = scheduler;
+        mStore = store;
+        mTransport = transport;
+        mEngine = engine;
+    }
+
+    /*
+     * Returns the ArticleBodyLoader that is shared by the whole app
+     */
+    public static synchronized ArticleBodyLoader getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            sInstance = new ArticleBodyLoader(
+                    new ArticleBodyStore(new File(appContext.getFilesDir(), STORE_DIRECTORY), STORE_MAX_BYTES),
+                    OkHttpTransport.getInstance(),
+                    LoadEngine.getInstance(),
+                    RequestScheduler.getInstance(appContext));
+        }
+        return sInstance;
+    }
+
+    /*
+     * Returns the stored text of the article at the webUrl, or null if it is not stored
+     */
+    public String getStored(String webUrl) throws IOException {
+        return mStore.get(webUrl);
+    }
+
+    /*
+     * Returns the text of the article at the webUrl, from the store or else from the server.
+     * Runs on the thread of the caller, and stops when the signal is cancelled.
+     */
+    public String load(String webUrl, CancelSignal signal) throws IOException {
+        String text = mStore.get(webUrl);
+        if (text != null) {
+            return text;
+        }
+        return fetch(webUrl, signal, LoadEngine.Priority.VISIBLE);
+    }
+
+    /*
+     * Start storing the articles that are not stored yet, one after the other, behind the loads
+     * of what is on the screen. Only call this on a connection that is not metered. Returns the
+     * load, which can be cancelled, or null if every article is already being prefetched.
+     */
+    public LoadEngine.Load<Integer> prefetch(List<NewsArticle> articles) {
+        final List<String> webUrls = new ArrayList<>();
+        for (NewsArticle article : articles) {
+            if (mPrefetching.add(article.getWebsite())) {
+                webUrls.add(article.getWebsite());
+            }
+        }
+        if (webUrls.isEmpty()) {
+            return null;
+        }
+
+        return mEngine.start(LoadEngine.Priority.PREFETCH, new LoadEngine.Job<Integer>() {
+            @Override
+            public Integer run(LoadEngine.Load<Integer> load) {
+                int stored = 0;
+                try {
+                    for (String webUrl : webUrls) {
+                        if (load.isCancelled()) {
+                            break;
+                        }
+                        if (!mStore.contains(webUrl)) {
+                            fetch(webUrl, load.getCancelSignal(), LoadEngine.Priority.PREFETCH);
+                            stored++;
+                        }
+                    }
+                } catch (IOException e) {
+                    //The others are left for the next prefetch, the connection is probably gone
+                    if (!load.isCancelled()) {
+                        Log.e(LOG_TAG, "Problem prefetching an article", e);
+                    }
+                } finally {
+                    mPrefetching.removeAll(webUrls);
+                }
+                return stored;
+            }
+        });
+    }
+
+    /*
+     * Download the body of the article, sanitize it and store the text
+     */
+    private String fetch(String webUrl, CancelSignal signal, LoadEngine.Priority priority) throws IOException {
+        String url = GuardianQuery.contentUrl(webUrl, "body");
+        if (url == null) {
+            throw new IOException("Not an article of the Guardian " + webUrl);
+        }
+        if (signal.isCancelled()) {
+            throw new IOException("The article is no longer wanted " + webUrl);
+        }
+        if (mScheduler != null && !mScheduler.acquire(priority, url, signal)) {
+            throw new IOException("The article was not requested within the quota " + webUrl);
+        }
+
+        //The transport breaks off the request as soon as the article is no longer wanted
+        HttpResponse response = mTransport.execute(url, null, signal);
+        try {
+            if (response.getCode() != HttpURLConnection.HTTP_OK || response.getBody() == null) {
+                throw new IOException("Error response code: " + response.getCode());
+            }
+            String body = readBody(response.getBody());
+            if (body == null) {
+                throw new IOException("The response has no body for " + webUrl);
+            }
+            String text = HtmlSanitizer.sanitize(body);
+            mStore.put(webUrl, text);
+            return text;
+        } finally {
+            response.close();
+        }
+    }
+
+    /*
+     * Read the body field from a response of the content endpoint, skipping everything else.
+     * Returns null if the response has no body.
+     */
+    static String readBody(InputStream in) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, Charset.forName("UTF-8")));
+        try {
+            return readObjectPath(reader, "response", "content", "fields", "body");
+        } catch (IllegalStateException e) {
+            //JsonReader reports unexpected token types as IllegalStateException
+            throw new IOException("Unexpected JSON structure in the article", e);
+        }
+    }
+
+    /*
+     * Follow the names through nested objects and return the String at the end of the path. The
+     * rest of the object the String is in is not read.
+     */
+    private static String readObjectPath(JsonReader reader, String... names) throws IOException {
+        for (int depth = 0; depth < names.length; depth++) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+            reader.beginObject();
+            boolean found = false;
+            while (reader.hasNext()) {
+                if (names[depth].equals(reader.nextName())) {
+                    found = true;
+                    break;
+                }
+                reader.skipValue();
+            }
+            if (!found) {
+                return null;
+            }
+        }
+        return reader.peek() == JsonToken.STRING ? reader.nextString() : null;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.android.newsapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Stores the text of articles that can be read in the app, one file per article, so they can be
+ * opened without a connection. The text is stored after it was sanitized, which is a fraction
+ * of the size of the response it came from. When the store grows beyond its size limit, the
+ * articles that were least recently stored or read are deleted.
+ */
+public class ArticleBodyStore {
+
+    //Extension of the files the text is stored in
+    private static final String FILE_EXTENSION = ".body";
+
+    //Extension of files that are still being written
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    //Directory the files are stored in
+    private final File mDirectory;
+
+    //Maximum number of bytes all files together may take up
+    private final long mMaxBytes;
+
+    //Constructs a new ArticleBodyStore
+    public ArticleBodyStore(File directory, long maxBytes) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+    }
+
+    /*
+     * Returns whether the text of the article at the webUrl is stored
+     */
+    public boolean contains(String webUrl) {
+        return fileFor(webUrl).exists();
+    }
+
+    /*
+     * Returns the text of the article at the webUrl, or null if it is not stored. The article is
+     * marked as read, so it is the last to be deleted.
+     */
+    public String get(String webUrl) throws IOException {
+        File file;
+        synchronized (this) {
+            file = fileFor(webUrl);
+            if (!file.exists()) {
+                return null;
+            }
+            file.setLastModified(currentTimeMillis());
+        }
+
+        FileInputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream text = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                text.write(buffer, 0, read);
+            }
+            return new String(text.toByteArray(), UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+
+    /*
+     * Store the text of the article at the webUrl. It is written to a temporary file first, so
+     * the store never holds half an article.
+     */
+    public void put(String webUrl, String text) throws IOException {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Could not create the directory " + mDirectory);
+        }
+
+        File temp = File.createTempFile(ArticleDiskCache.hash(webUrl), TEMP_EXTENSION, mDirectory);
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(text.getBytes(UTF_8));
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+
+        synchronized (this) {
+            File file = fileFor(webUrl);
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Could not move the article into place " + file);
+            }
+            file.setLastModified(currentTimeMillis());
+            trimToSize();
+        }
+    }
+
+    /*
+     * Delete the least recently used articles until the store fits in its size limit
+     */
+    synchronized void trimToSize() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        List<File> bodyFiles = new ArrayList<>();
+        long totalBytes = 0;
+        for (File file : files) {
+            if (file.getName().endsWith(FILE_EXTENSION)) {
+                bodyFiles.add(file);
+                totalBytes += file.length();
+            }
+        }
+        if (totalBytes <= mMaxBytes) {
+            return;
+        }
+
+        Collections.sort(bodyFiles, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long difference = first.lastModified() - second.lastModified();
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+
+        for (File file : bodyFiles) {
+            if (totalBytes <= mMaxBytes) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                totalBytes -= length;
+            }
+        }
+    }
+
+    /*
+     * Returns the current time in milliseconds. Tests override this to move the clock.
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /*
+     * Returns the file that stores the article at the webUrl, named after a hash of the URL
+     */
+    private File fileFor(String webUrl) {
+        return new File(mDirectory, ArticleDiskCache.hash(webUrl) + FILE_EXTENSION);
+    }
+}
@@ -0,0 +1,402 @@
+package com.example.android.newsapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/*
+ * Compact binary encoding for a list of NewsArticle objects.
+ *
+ * A batch starts with a magic number and a version, followed by a table of the strings that
+ * repeat between articles (sections, section ids, contributors and tag ids), the publication time of the
+ * oldest article, and the offset of every record. Each record holds the title and URL, the
+ * table indexes of its section, section id, contributors and tags, its thumbnail, trail text and word count,
+ * and its publication time in seconds after the oldest one. All numbers are
+ * varints, so most of them take one to three bytes. Because every record can be found through
+ * its offset, a batch can be read lazily: records are only decoded when they are asked for.
+ * Every record is checked when the batch is read, so a damaged one is found right away and not
+ * while the list is being shown.
+ */
+public final class ArticleCodec {
+
+    //First bytes of every batch, "NWSA"
+    private static final int MAGIC = 0x4e575341;
+
+    //Version of the encoding, version 2 added the thumbnail URL, version 3 all contributors,
+    //the tags, the trail text and the word count, and version 4 the section id
+    private static final int VERSION = 4;
+
+    //Flags in the lowest bit of the encoded publication time
+    private static final int TIME_PARSED = 0;
+    private static final int TIME_RAW = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /*
+     * This is a private constructor, because the class only holds static methods.
+     */
+    private ArticleCodec() {
+    }
+
+    /*
+     * Encode the articles into a batch
+     */
+    public static byte[] encode(List<NewsArticle> articles) {
+        //Give every distinct section, contributor and tag an index in the string table
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        long baseMillis = Long.MAX_VALUE;
+        for (NewsArticle article : articles) {
+            intern(strings, article.getSection());
+            intern(strings, article.getSectionId());
+            for (String contributor : article.getContributors()) {
+                intern(strings, contributor);
+            }
+            for (String tag : article.getTags()) {
+                intern(strings, tag);
+            }
+            if (isCanonicalDate(article)) {
+                baseMillis = Math.min(baseMillis, article.getPublishedMillis());
+            }
+        }
+        if (baseMillis == Long.MAX_VALUE) {
+            baseMillis = 0;
+        }
+
+        //Encode the records first, so their offsets are known
+        ByteArrayOutputStream records = new ByteArrayOutputStream(articles.size() * 128);
+        int[] offsets = new int[articles.size()];
+        for (int i = 0; i < articles.size(); i++) {
+            NewsArticle article = articles.get(i);
+            offsets[i] = records.size();
+            writeString(records, article.getTitle());
+            writeString(records, article.getWebsite());
+            writeVarint(records, strings.get(article.getSection()));
+            writeVarint(records, strings.get(article.getSectionId()));
+            writeIndexes(records, strings, article.getContributors());
+            writeIndexes(records, strings, article.getTags());
+            writeString(records, article.getThumbnail());
+            writeString(records, article.getTrailText());
+            writeVarint(records, article.getWordCount());
+            if (isCanonicalDate(article)) {
+                long seconds = (article.getPublishedMillis() - baseMillis) / 1000;
+                writeVarint(records, (seconds << 1) | TIME_PARSED);
+            } else {
+                //A date in any other form is kept as it is
+                writeVarint(records, TIME_RAW);
+                writeString(records, article.getDate());
+            }
+        }
+
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(records.size() + strings.size() * 16 + 64);
+        writeInt(batch, MAGIC);
+        writeVarint(batch, VERSION);
+        writeVarint(batch, strings.size());
+        for (String string : strings.keySet()) {
+            writeString(batch, string);
+        }
+        writeVarint(batch, baseMillis / 1000);
+        writeVarint(batch, articles.size());
+        for (int offset : offsets) {
+            writeVarint(batch, offset);
+        }
+        writeVarint(batch, records.size());
+        try {
+            records.writeTo(batch);
+        } catch (IOException e) {
+            //A ByteArrayOutputStream does not throw
+            throw new AssertionError(e);
+        }
+        return batch.toByteArray();
+    }
+
+    /*
+     * Encode the articles into a batch and write it to the stream
+     */
+    public static void write(List<NewsArticle> articles, OutputStream out) throws IOException {
+        out.write(encode(articles));
+    }
+
+    /*
+     * Read a batch from the buffer, starting at its position. The string table and the record
+     * offsets are read and every record is checked right away, the records themselves are only
+     * decoded when they are asked for. The buffer must not be changed while the list is in use.
+     */
+    public static List<NewsArticle> decode(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a batch of news articles");
+            }
+            int version = (int) readVarint(buffer);
+            if (version != VERSION) {
+                throw new IOException("Unsupported batch version " + version);
+            }
+
+            //The strings are shared with the other batches and responses through the pool, so
+            //every batch that is read does not add its own copy of each contributor
+            StringPool pool = StringPool.getInstance();
+            String[] strings = new String[(int) readVarint(buffer)];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = pool.intern(readString(buffer));
+            }
+            long baseMillis = readVarint(buffer) * 1000;
+
+            int[] offsets = new int[(int) readVarint(buffer)];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = (int) readVarint(buffer);
+            }
+
+            int recordsLength = (int) readVarint(buffer);
+            if (recordsLength < 0 || recordsLength > buffer.remaining()) {
+                throw new IOException("Batch of news articles is truncated");
+            }
+            ByteBuffer records = buffer.slice();
+            records.limit(recordsLength);
+            for (int offset : offsets) {
+                if (offset < 0 || offset >= recordsLength) {
+                    throw new IOException("Batch of news articles has a damaged index");
+                }
+                checkRecord(records, offset, strings.length);
+            }
+            buffer.position(buffer.position() + recordsLength);
+
+            return new LazyArticleList(records, strings, baseMillis, offsets);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Batch of news articles is damaged", e);
+        }
+    }
+
+    /*
+     * Map the file into memory and read the batch in it lazily
+     */
+    public static List<NewsArticle> read(File file) throws IOException {
+        return decode(map(file));
+    }
+
+    /*
+     * Map the whole file into memory as a read-only buffer
+     */
+    static ByteBuffer map(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            //The mapping stays valid after the channel is closed
+            in.close();
+        }
+    }
+
+    /*
+     * A list that decodes each record the first time it is asked for
+     */
+    private static class LazyArticleList extends AbstractList<NewsArticle> implements RandomAccess {
+
+        private final ByteBuffer mRecords;
+        private final String[] mStrings;
+        private final long mBaseMillis;
+        private final int[] mOffsets;
+        private final NewsArticle[] mDecoded;
+
+        LazyArticleList(ByteBuffer records, String[] strings, long baseMillis, int[] offsets) {
+            mRecords = records;
+            mStrings = strings;
+            mBaseMillis = baseMillis;
+            mOffsets = offsets;
+            mDecoded = new NewsArticle[offsets.length];
+        }
+
+        @Override
+        public NewsArticle get(int index) {
+            NewsArticle article = mDecoded[index];
+            if (article == null) {
+                article = decodeRecord(index);
+                mDecoded[index] = article;
+            }
+            return article;
+        }
+
+        @Override
+        public int size() {
+            return mOffsets.length;
+        }
+
+        private NewsArticle decodeRecord(int index) {
+            //Every record gets its own view of the buffer, so records can be decoded on any thread
+            ByteBuffer record = mRecords.duplicate();
+            record.position(mOffsets[index]);
+
+            String title = readString(record);
+            String url = readString(record);
+            String section = readIndex(record, mStrings);
+            String sectionId = readIndex(record, mStrings);
+            String[] contributors = readIndexes(record, mStrings);
+            String[] tags = readIndexes(record, mStrings);
+            String thumbnail = readString(record);
+            String trailText = readString(record);
+            int wordCount = (int) readVarint(record);
+
+            long time = readVarint(record);
+            String date;
+            long millis;
+            if ((time & 1) == TIME_RAW) {
+                date = readString(record);
+                millis = Utils.parseIsoDate(date);
+            } else {
+                millis = mBaseMillis + (time >>> 1) * 1000;
+                date = Utils.formatIsoDate(millis);
+            }
+            return new NewsArticle(title, section, sectionId, url, date, contributors, tags, thumbnail, trailText,
+                    wordCount, millis);
+        }
+    }
+
+    /*
+     * Walk through the record at the offset without decoding it, so a record that runs past the
+     * batch or points outside the string table is found before the list is handed out. Throws
+     * BufferUnderflowException or IllegalArgumentException when the record is damaged.
+     */
+    private static void checkRecord(ByteBuffer records, int offset, int stringCount) {
+        ByteBuffer record = records.duplicate();
+        record.position(offset);
+
+        skipString(record);
+        skipString(record);
+        checkIndex(readVarint(record), stringCount);
+        checkIndex(readVarint(record), stringCount);
+        for (int list = 0; list < 2; list++) {
+            long count = readVarint(record);
+            if (count < 0 || count > record.remaining()) {
+                throw new IllegalArgumentException("List is longer than the batch");
+            }
+            for (long i = 0; i < count; i++) {
+                checkIndex(readVarint(record), stringCount);
+            }
+        }
+        skipString(record);
+        skipString(record);
+        readVarint(record);
+        if ((readVarint(record) & 1) == TIME_RAW) {
+            skipString(record);
+        }
+    }
+
+    /*
+     * Returns true if the date of the article can be rebuilt from its publication time alone
+     */
+    private static boolean isCanonicalDate(NewsArticle article) {
+        return article.getPublishedMillis() != 0
+                && Utils.formatIsoDate(article.getPublishedMillis()).equals(article.getDate());
+    }
+
+    private static void intern(Map<String, Integer> strings, String value) {
+        if (!strings.containsKey(value)) {
+            strings.put(value, strings.size());
+        }
+    }
+
+    //Write the number of values followed by the string table index of each
+    private static void writeIndexes(ByteArrayOutputStream out, Map<String, Integer> strings, List<String> values) {
+        writeVarint(out, values.size());
+        for (String value : values) {
+            writeVarint(out, strings.get(value));
+        }
+    }
+
+    private static String[] readIndexes(ByteBuffer buffer, String[] strings) {
+        int count = (int) readVarint(buffer);
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("List is longer than the batch");
+        }
+        if (count == 0) {
+            return NewsArticle.NONE;
+        }
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = readIndex(buffer, strings);
+        }
+        return values;
+    }
+
+    //Read a string table index and return its string
+    private static String readIndex(ByteBuffer buffer, String[] strings) {
+        long index = readVarint(buffer);
+        checkIndex(index, strings.length);
+        return strings[(int) index];
+    }
+
+    private static void checkIndex(long index, int stringCount) {
+        if (index < 0 || index >= stringCount) {
+            throw new IllegalArgumentException("String index is outside the table");
+        }
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint is too long");
+    }
+
+    static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = (int) readVarint(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("String is longer than the batch");
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, UTF_8);
+        }
+        return value;
+    }
+
+    private static void skipString(ByteBuffer buffer) {
+        long length = readVarint(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("String is longer than the batch");
+        }
+        buffer.position(buffer.position() + (int) length);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+}
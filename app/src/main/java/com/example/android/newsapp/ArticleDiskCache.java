@@ -0,0 +1,316 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Stores the parsed NewsArticle objects of each query in a file on disk, together with the
+ * ETag and Last-Modified headers of the response they came from. The cache is bounded both
+ * in total size and in the age of its entries.
+ */
+public class ArticleDiskCache {
+
+    //Tag for the log messages
+    private static final String LOG_TAG = ArticleDiskCache.class.getSimpleName();
+
+    //Version of the file format, files with another version are ignored. Version 2 stores the
+    //articles as an ArticleCodec batch, version 3 keeps the time they were stored at a fixed offset,
+    //version 4 stores batches that include the thumbnail URL, version 5 batches with all
+    //contributors, the tags, the trail text and the word count, version 6 with the section id.
+    private static final int FORMAT_VERSION = 6;
+
+    //Position of the time an entry was stored in its file, right after the format version
+    private static final int STORED_AT_OFFSET = 4;
+
+    //Extension of the cache files
+    private static final String FILE_EXTENSION = ".articles";
+
+    //Directory the cache files are stored in
+    private final File mDirectory;
+
+    //Maximum number of bytes all cache files together may take up
+    private final long mMaxBytes;
+
+    //Maximum age of an entry in milliseconds before it is no longer returned
+    private final long mMaxAgeMillis;
+
+    /*
+     * A cached response: the articles plus what is needed to revalidate them with the server
+     */
+    public static class Entry {
+
+        private final String mEtag;
+        private final String mLastModified;
+        private final long mStoredAt;
+        private final List<NewsArticle> mArticles;
+
+        Entry(String etag, String lastModified, long storedAt, List<NewsArticle> articles) {
+            mEtag = etag;
+            mLastModified = lastModified;
+            mStoredAt = storedAt;
+            mArticles = articles;
+        }
+
+        //Returns the ETag header of the cached response, or null
+        public String getEtag() {
+            return mEtag;
+        }
+
+        //Returns the Last-Modified header of the cached response, or null
+        public String getLastModified() {
+            return mLastModified;
+        }
+
+        //Returns the time in milliseconds the entry was stored or last revalidated
+        public long getStoredAt() {
+            return mStoredAt;
+        }
+
+        //Returns the cached articles
+        public List<NewsArticle> getArticles() {
+            return mArticles;
+        }
+    }
+
+    //Constructs a new ArticleDiskCache
+    public ArticleDiskCache(File directory, long maxBytes, long maxAgeMillis) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+        mMaxAgeMillis = maxAgeMillis;
+    }
+
+    /*
+     * Returns the cached entry for the query URL, or null if there is none or it is too old
+     */
+    public synchronized Entry get(String url) {
+        File file = fileFor(url);
+        if (!file.exists()) {
+            return null;
+        }
+
+        Entry entry = null;
+        try {
+            entry = read(file);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading the cached news articles", e);
+        }
+
+        if (entry == null || currentTimeMillis() - entry.getStoredAt() > mMaxAgeMillis) {
+            //The file is unreadable or expired, so it is of no use anymore
+            file.delete();
+            return null;
+        }
+        return entry;
+    }
+
+    /*
+     * Store the articles for the query URL. Articles with the same webUrl are stored only once.
+     * When the response is the same as the stored one, only its age is refreshed and the
+     * articles are not written again. Returns true if the articles were written.
+     */
+    public synchronized boolean put(String url, String etag, String lastModified, List<NewsArticle> articles) {
+        Map<String, NewsArticle> unique = new LinkedHashMap<>();
+        for (NewsArticle article : articles) {
+            if (!unique.containsKey(article.getWebsite())) {
+                unique.put(article.getWebsite(), article);
+            }
+        }
+        List<NewsArticle> uniqueArticles = new ArrayList<>(unique.values());
+
+        Entry stored = get(url);
+        if (stored != null && equal(etag, stored.getEtag()) && equal(lastModified, stored.getLastModified())
+                && NewsArticle.haveSameContent(stored.getArticles(), uniqueArticles)) {
+            touch(url);
+            return false;
+        }
+
+        try {
+            write(fileFor(url), new Entry(etag, lastModified, currentTimeMillis(), uniqueArticles));
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing the news articles to the cache", e);
+        }
+        trimToSize();
+        return true;
+    }
+
+    /*
+     * Mark the entry for the query URL as fresh again, after the server confirmed it is unchanged.
+     * Only the time it was stored is overwritten, in place. Returns the refreshed entry, or null
+     * if there was nothing to refresh.
+     */
+    public synchronized Entry touch(String url) {
+        Entry entry = get(url);
+        if (entry == null) {
+            return null;
+        }
+
+        long now = currentTimeMillis();
+        try {
+            RandomAccessFile file = new RandomAccessFile(fileFor(url), "rw");
+            try {
+                file.seek(STORED_AT_OFFSET);
+                file.writeLong(now);
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem refreshing the cached news articles", e);
+        }
+        return new Entry(entry.getEtag(), entry.getLastModified(), now, entry.getArticles());
+    }
+
+    /*
+     * Delete expired files and then the least recently written files until the cache fits in its size limit
+     */
+    synchronized void trimToSize() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        List<File> cacheFiles = new ArrayList<>(Arrays.asList(files));
+        Collections.sort(cacheFiles, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long difference = first.lastModified() - second.lastModified();
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+
+        long now = currentTimeMillis();
+        long totalBytes = 0;
+        for (File file : cacheFiles) {
+            totalBytes += file.length();
+        }
+
+        for (File file : cacheFiles) {
+            boolean expired = now - file.lastModified() > mMaxAgeMillis;
+            if (!expired && totalBytes <= mMaxBytes) {
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                totalBytes -= length;
+            }
+        }
+    }
+
+    /*
+     * Returns the current time in milliseconds. Tests override this to move the clock.
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /*
+     * Returns the file that stores the entry of the query URL, named after a hash of the URL
+     */
+    private File fileFor(String url) {
+        return new File(mDirectory, hash(url) + FILE_EXTENSION);
+    }
+
+    /*
+     * Returns the MD5 hash of the value in hex, which is safe to use as a file name
+     */
+    static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] bytes = digest.digest(value.getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+                hex.append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            //Every Java platform supports MD5 and UTF-8
+            throw new AssertionError(e);
+        }
+    }
+
+    /*
+     * Map the file into memory and read its header. The articles are decoded lazily, when the
+     * list is first read.
+     */
+    private static Entry read(File file) throws IOException {
+        ByteBuffer buffer = ArticleCodec.map(file);
+        try {
+            if (buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            long storedAt = buffer.getLong();
+            String etag = readNullableString(buffer);
+            String lastModified = readNullableString(buffer);
+            return new Entry(etag, lastModified, storedAt, ArticleCodec.decode(buffer));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Cache file is damaged " + file, e);
+        }
+    }
+
+    /*
+     * Write the entry to a temporary file first and rename it, so a reader never sees half a file
+     */
+    private void write(File file, Entry entry) throws IOException {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Could not create cache directory " + mDirectory);
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(128);
+        header.write(FORMAT_VERSION >>> 24);
+        header.write(FORMAT_VERSION >>> 16);
+        header.write(FORMAT_VERSION >>> 8);
+        header.write(FORMAT_VERSION);
+        long storedAt = entry.getStoredAt();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            header.write((int) (storedAt >>> shift));
+        }
+        writeNullableString(header, entry.getEtag());
+        writeNullableString(header, entry.getLastModified());
+
+        File temp = new File(mDirectory, file.getName() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            header.writeTo(out);
+            ArticleCodec.write(entry.getArticles(), out);
+        } finally {
+            out.close();
+        }
+
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not move cache file into place " + file);
+        }
+    }
+
+    private static boolean equal(String first, String second) {
+        return first == null ? second == null : first.equals(second);
+    }
+
+    private static String readNullableString(ByteBuffer buffer) {
+        return buffer.get() != 0 ? ArticleCodec.readString(buffer) : null;
+    }
+
+    private static void writeNullableString(ByteArrayOutputStream out, String value) {
+        out.write(value != null ? 1 : 0);
+        if (value != null) {
+            ArticleCodec.writeString(out, value);
+        }
+    }
+}
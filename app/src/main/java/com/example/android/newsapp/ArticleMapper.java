@@ -0,0 +1,183 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Turns the fields of one search result into a NewsArticle. Every result is mapped on its own:
+ * a field with the wrong type is left empty and counted in the PipelineMetrics, and only a
+ * result without a URL, which an article can not be shown or stored without, is left out.
+ * Sections, contributors and tag ids are interned, because they repeat across all results.
+ *
+ * One mapper is reused for all results of a response, so mapping allocates little more than the
+ * NewsArticle itself. It is not thread-safe.
+ */
+public final class ArticleMapper {
+
+    /*
+     * The fields of a result that are read, with the counter of their failures
+     */
+    public enum Field {
+        TITLE(PipelineMetrics.Counter.INVALID_TITLE),
+        SECTION(PipelineMetrics.Counter.INVALID_SECTION),
+        SECTION_ID(PipelineMetrics.Counter.INVALID_SECTION),
+        URL(PipelineMetrics.Counter.INVALID_URL),
+        DATE(PipelineMetrics.Counter.INVALID_DATE),
+        //A contributor, every one that is set is added to the byline
+        AUTHOR(PipelineMetrics.Counter.INVALID_AUTHOR),
+        //The id of a tag that is not a contributor, every one that is set is added
+        TAG(PipelineMetrics.Counter.INVALID_TAG),
+        THUMBNAIL(PipelineMetrics.Counter.INVALID_THUMBNAIL),
+        TRAIL_TEXT(PipelineMetrics.Counter.INVALID_TRAIL_TEXT),
+        WORD_COUNT(PipelineMetrics.Counter.INVALID_WORD_COUNT);
+
+        private final PipelineMetrics.Counter mCounter;
+
+        Field(PipelineMetrics.Counter counter) {
+            mCounter = counter;
+        }
+    }
+
+    private final PipelineMetrics mMetrics;
+    private final StringPool mPool;
+
+    //Fields of the result that is being mapped
+    private String mTitle;
+    private String mSection;
+    private String mSectionId;
+    private String mUrl;
+    private String mDate;
+    private final List<String> mContributors = new ArrayList<>();
+    private final List<String> mTags = new ArrayList<>();
+    private String mThumbnail;
+    private String mTrailText;
+    private int mWordCount;
+
+    //Constructs a new ArticleMapper that records into the metrics of the whole app
+    public ArticleMapper() {
+        this(PipelineMetrics.getInstance(), StringPool.getInstance());
+    }
+
+    //Constructs a new ArticleMapper
+    ArticleMapper(PipelineMetrics metrics, StringPool pool) {
+        mMetrics = metrics;
+        mPool = pool;
+        reset();
+    }
+
+    /*
+     * Forget the fields of the previous result, before the next one is read
+     */
+    public void reset() {
+        mTitle = "";
+        mSection = "";
+        mSectionId = "";
+        mUrl = "";
+        mDate = "";
+        mContributors.clear();
+        mTags.clear();
+        mThumbnail = "";
+        mTrailText = "";
+        mWordCount = 0;
+    }
+
+    /*
+     * Set a field of the result. A null value counts as a missing field and leaves it empty.
+     */
+    public void set(Field field, String value) {
+        if (value == null) {
+            return;
+        }
+        switch (field) {
+            case TITLE:
+                mTitle = value;
+                break;
+            case SECTION:
+                mSection = mPool.intern(value);
+                break;
+            case SECTION_ID:
+                mSectionId = mPool.intern(value);
+                break;
+            case URL:
+                mUrl = value;
+                break;
+            case DATE:
+                mDate = value;
+                break;
+            case AUTHOR:
+                if (!value.isEmpty()) {
+                    mContributors.add(mPool.intern(value));
+                }
+                break;
+            case TAG:
+                if (!value.isEmpty()) {
+                    mTags.add(mPool.intern(value));
+                }
+                break;
+            case THUMBNAIL:
+                mThumbnail = value;
+                break;
+            case TRAIL_TEXT:
+                mTrailText = value;
+                break;
+            case WORD_COUNT:
+                setWordCount(value);
+                break;
+        }
+    }
+
+    /*
+     * Record that a field of the result could not be read. It stays empty.
+     */
+    public void fail(Field field) {
+        mMetrics.increment(field.mCounter, 1);
+    }
+
+    /*
+     * Record that a whole result could not be read, for example because it was not an object
+     */
+    public void skip() {
+        mMetrics.increment(PipelineMetrics.Counter.ARTICLES_SKIPPED, 1);
+    }
+
+    /*
+     * Returns the NewsArticle of the fields that were set, or null when the result has no URL
+     * and is left out
+     */
+    public NewsArticle build() {
+        if (mUrl.isEmpty()) {
+            fail(Field.URL);
+            skip();
+            return null;
+        }
+
+        //The date is parsed once here, an article with a date in another form is still shown
+        long publishedMillis = Utils.parseIsoDate(mDate);
+        if (publishedMillis == 0 && !mDate.isEmpty()) {
+            fail(Field.DATE);
+        }
+        return new NewsArticle(mTitle, mSection, mSectionId, mUrl, mDate, toArray(mContributors), toArray(mTags),
+                mThumbnail, mTrailText, mWordCount, publishedMillis);
+    }
+
+    //The Guardian sends the word count as a String, like "812"
+    private void setWordCount(String value) {
+        if (value.trim().isEmpty()) {
+            return;
+        }
+        try {
+            int wordCount = Integer.parseInt(value.trim());
+            if (wordCount < 0) {
+                fail(Field.WORD_COUNT);
+                return;
+            }
+            mWordCount = wordCount;
+        } catch (NumberFormatException e) {
+            fail(Field.WORD_COUNT);
+        }
+    }
+
+    private static String[] toArray(List<String> values) {
+        return values.isEmpty() ? NewsArticle.NONE : values.toArray(new String[values.size()]);
+    }
+}
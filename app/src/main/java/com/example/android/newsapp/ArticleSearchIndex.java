@@ -0,0 +1,280 @@
+package com.example.android.newsapp;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/*
+ * In-memory inverted index over the titles, sections and authors of the articles the app has
+ * seen, so they can be searched without asking the server. Text is split into lowercase words
+ * without accents. Every word of a query matches the words of an article that start with it,
+ * and an article matches when all words of the query do. Matches are ranked newest first.
+ *
+ * Articles are added as they are loaded. An article that is added again with the same content
+ * is skipped; one whose content changed replaces the old version. Old versions are only masked
+ * out at first, and the index is rebuilt without them once they are a quarter of it, so
+ * articles that keep changing do not make it grow.
+ */
+public class ArticleSearchIndex {
+
+    //Matches the accents that are left as separate characters after decomposing text
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+
+    //The one instance that is shared by the whole app
+    private static final ArticleSearchIndex sInstance = new ArticleSearchIndex();
+
+    //Document IDs of the articles that contain each word, sorted by word for prefix lookups
+    private final TreeMap<String, Postings> mPostings = new TreeMap<>();
+
+    //Articles by document ID, and their publication time for ranking
+    private final List<NewsArticle> mArticles = new ArrayList<>();
+    private long[] mPublishedMillis = new long[64];
+
+    //Current document ID of every article URL
+    private final Map<String, Integer> mIdsByUrl = new HashMap<>();
+
+    //Document IDs of articles that were replaced by a newer version, and how many there are
+    private final BitSet mRemoved = new BitSet();
+    private int mRemovedCount;
+
+    /*
+     * Returns the ArticleSearchIndex that is shared by the whole app
+     */
+    public static ArticleSearchIndex getInstance() {
+        return sInstance;
+    }
+
+    /*
+     * Add the articles to the index. Returns the number of articles that were new or changed.
+     */
+    public synchronized int addAll(List<NewsArticle> articles) {
+        if (articles == null) {
+            return 0;
+        }
+        int added = 0;
+        for (NewsArticle article : articles) {
+            if (add(article)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /*
+     * Add the article to the index. Returns false if it was already indexed with the same content.
+     */
+    public synchronized boolean add(NewsArticle article) {
+        Integer previous = mIdsByUrl.get(article.getWebsite());
+        if (previous != null) {
+            if (mArticles.get(previous).hasSameContent(article)) {
+                return false;
+            }
+            mRemoved.set(previous);
+            mArticles.set(previous, null);
+            mRemovedCount++;
+        }
+
+        index(article);
+        if (mRemovedCount > mIdsByUrl.size() / 4) {
+            compact();
+        }
+        return true;
+    }
+
+    /*
+     * Give the article the next document ID and add its words to the postings
+     */
+    private void index(NewsArticle article) {
+        int id = mArticles.size();
+        mArticles.add(article);
+        if (id == mPublishedMillis.length) {
+            mPublishedMillis = Arrays.copyOf(mPublishedMillis, id * 2);
+        }
+        mPublishedMillis[id] = article.getPublishedMillis();
+        mIdsByUrl.put(article.getWebsite(), id);
+
+        for (String word : tokenize(article.getTitle() + ' ' + article.getSection() + ' ' + article.getByline())) {
+            Postings postings = mPostings.get(word);
+            if (postings == null) {
+                postings = new Postings();
+                mPostings.put(word, postings);
+            }
+            postings.add(id);
+        }
+    }
+
+    /*
+     * Rebuild the index from the current version of every article, in the order they were added
+     */
+    private void compact() {
+        List<NewsArticle> current = new ArrayList<>(mIdsByUrl.size());
+        for (NewsArticle article : mArticles) {
+            if (article != null) {
+                current.add(article);
+            }
+        }
+
+        mPostings.clear();
+        mArticles.clear();
+        mIdsByUrl.clear();
+        mRemoved.clear();
+        mRemovedCount = 0;
+        mPublishedMillis = new long[Math.max(64, current.size())];
+        for (NewsArticle article : current) {
+            index(article);
+        }
+    }
+
+    //Returns the number of articles that can be found
+    public synchronized int size() {
+        return mIdsByUrl.size();
+    }
+
+    //Returns the number of documents, including old versions that were not compacted yet
+    synchronized int getDocumentCount() {
+        return mArticles.size();
+    }
+
+    //Returns the number of distinct words in the postings
+    synchronized int getWordCount() {
+        return mPostings.size();
+    }
+
+    /*
+     * Returns at most limit articles that match every word of the query, newest first
+     */
+    public synchronized List<NewsArticle> search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        //An article has to match every word of the query
+        BitSet matches = null;
+        for (String word : words) {
+            BitSet wordMatches = matchPrefix(word);
+            if (matches == null) {
+                matches = wordMatches;
+            } else {
+                matches.and(wordMatches);
+            }
+            if (matches.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+        matches.andNot(mRemoved);
+        return newest(matches, limit);
+    }
+
+    /*
+     * Returns the document IDs of the articles with a word that starts with the prefix
+     */
+    private BitSet matchPrefix(String prefix) {
+        BitSet matches = new BitSet(mArticles.size());
+        SortedMap<String, Postings> words = mPostings.subMap(prefix, prefix + Character.MAX_VALUE);
+        for (Postings postings : words.values()) {
+            postings.addTo(matches);
+        }
+        return matches;
+    }
+
+    /*
+     * Returns the limit newest articles of the matches, newest first
+     */
+    private List<NewsArticle> newest(BitSet matches, int limit) {
+        //Keeps the newest articles seen so far, with the oldest of them on top
+        PriorityQueue<Integer> newest = new PriorityQueue<>(limit + 1, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                return compareRecency(first, second);
+            }
+        });
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            if (newest.size() < limit) {
+                newest.add(id);
+            } else if (compareRecency(id, newest.peek()) > 0) {
+                newest.poll();
+                newest.add(id);
+            }
+        }
+
+        NewsArticle[] ranked = new NewsArticle[newest.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = mArticles.get(newest.poll());
+        }
+        return Arrays.asList(ranked);
+    }
+
+    /*
+     * Orders by publication time, and articles that were added later first when it is the same
+     */
+    private int compareRecency(int first, int second) {
+        long difference = mPublishedMillis[first] - mPublishedMillis[second];
+        if (difference != 0) {
+            return difference < 0 ? -1 : 1;
+        }
+        return first < second ? -1 : (first > second ? 1 : 0);
+    }
+
+    /*
+     * Split the text into lowercase words without accents. Anything that is not a letter or a
+     * digit separates words.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return words;
+        }
+
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("").toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordCharacter = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordCharacter && start < 0) {
+                start = i;
+            } else if (!wordCharacter && start >= 0) {
+                words.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /*
+     * The document IDs of the articles that contain a word, in the order they were added
+     */
+    private static class Postings {
+
+        private int[] mIds = new int[4];
+        private int mSize;
+
+        void add(int id) {
+            //A word that is repeated in an article is only stored once
+            if (mSize > 0 && mIds[mSize - 1] == id) {
+                return;
+            }
+            if (mSize == mIds.length) {
+                mIds = Arrays.copyOf(mIds, mSize * 2);
+            }
+            mIds[mSize++] = id;
+        }
+
+        void addTo(BitSet ids) {
+            for (int i = 0; i < mSize; i++) {
+                ids.set(mIds[i]);
+            }
+        }
+    }
+}
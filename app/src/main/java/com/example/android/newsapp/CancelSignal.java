@@ -0,0 +1,63 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Tells a load that it is no longer wanted. The code that does the work checks isCancelled
+ * between steps, and registers a listener while it is blocked on something that can be broken
+ * off, like a request that waits for its response or a response that is being read, so a
+ * cancelled load stops right away instead of waiting for the server or reading to the end.
+ */
+public class CancelSignal {
+
+    private boolean mCancelled;
+
+    //Listeners that are run once when the signal is cancelled
+    private final List<Runnable> mListeners = new ArrayList<>();
+
+    /*
+     * Cancel the load and run the listeners. Cancelling more than once has no effect.
+     */
+    public void cancel() {
+        List<Runnable> listeners;
+        synchronized (this) {
+            if (mCancelled) {
+                return;
+            }
+            mCancelled = true;
+            listeners = new ArrayList<>(mListeners);
+            mListeners.clear();
+        }
+
+        //Run outside of the lock, a listener may block for a moment while it closes a connection
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    //Returns whether the load was cancelled
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /*
+     * Run the listener when the signal is cancelled, or right away when it already was
+     */
+    public void addOnCancelListener(Runnable listener) {
+        synchronized (this) {
+            if (!mCancelled) {
+                mListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /*
+     * Forget a listener, because what it would break off has finished
+     */
+    public synchronized void removeOnCancelListener(Runnable listener) {
+        mListeners.remove(listener);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.android.newsapp;
+
+/*
+ * Stops requests to the server for a while after it failed several times in a row, or after it
+ * asked us to back off. While the breaker is open the stored articles are shown instead of
+ * hitting an API that is throttling us. After the open period one trial request is let through:
+ * if it succeeds the breaker closes, otherwise it opens again. A trial that ends without telling
+ * either way, like a cancelled one, is released so the next request can be the trial.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    //Number of failures in a row that opens the breaker
+    private final int mFailureThreshold;
+
+    //Time in milliseconds the breaker stays open
+    private final long mOpenMillis;
+
+    private State mState = State.CLOSED;
+    private int mConsecutiveFailures;
+    private long mOpenUntil;
+    private boolean mTrialInFlight;
+
+    //Constructs a new CircuitBreaker
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        mFailureThreshold = failureThreshold;
+        mOpenMillis = openMillis;
+    }
+
+    /*
+     * Returns whether a request may be made now. When the open period is over this lets a
+     * single trial request through.
+     */
+    public synchronized boolean allowRequest() {
+        if (mState == State.OPEN && currentTimeMillis() >= mOpenUntil) {
+            mState = State.HALF_OPEN;
+            mTrialInFlight = false;
+        }
+
+        switch (mState) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (mTrialInFlight) {
+                    return false;
+                }
+                mTrialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /*
+     * Record that a request succeeded, which closes the breaker
+     */
+    public synchronized void recordSuccess() {
+        mState = State.CLOSED;
+        mConsecutiveFailures = 0;
+        mTrialInFlight = false;
+    }
+
+    /*
+     * Record that a request ended without telling whether the server is healthy again, like a
+     * request that was cancelled or rejected. A trial that was let through may be made again.
+     */
+    public synchronized void releaseTrial() {
+        if (mState == State.HALF_OPEN) {
+            mTrialInFlight = false;
+        }
+    }
+
+    /*
+     * Record that a request failed. The breaker opens when the trial request failed or when
+     * there were too many failures in a row.
+     */
+    public synchronized void recordFailure() {
+        mConsecutiveFailures++;
+        if (mState == State.HALF_OPEN || mConsecutiveFailures >= mFailureThreshold) {
+            open(mOpenMillis);
+        }
+    }
+
+    /*
+     * Open the breaker for at least the given time, because the server asked us to wait that long
+     */
+    public synchronized void openFor(long millis) {
+        open(Math.max(millis, 0));
+    }
+
+    //Returns the current state of the breaker
+    public synchronized State getState() {
+        if (mState == State.OPEN && currentTimeMillis() >= mOpenUntil) {
+            return State.HALF_OPEN;
+        }
+        return mState;
+    }
+
+    private void open(long millis) {
+        mState = State.OPEN;
+        mTrialInFlight = false;
+        mOpenUntil = Math.max(mOpenUntil, currentTimeMillis() + millis);
+    }
+
+    /*
+     * Returns the current time in milliseconds. Tests override this to move the clock.
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Reads what the user chose to follow from the settings, builds the query URLs for it, and
+ * keeps track of the background syncs. The app and the background sync build their queries
+ * here with the same profile, the one the feed was last opened with, so they share the same
+ * cache entries.
+ */
+public class FeedSettings {
+
+    //Number of news articles per page of a query, unless the link asks for smaller pages
+    public static final int PAGE_SIZE = 20;
+
+    //Longest query URL that servers and proxies on the way reliably accept
+    static final int MAX_QUERY_URL_LENGTH = 2000;
+
+    //Name of the preferences file the state of the background sync is kept in
+    private static final String SYNC_PREFERENCES = "feed_sync";
+    private static final String KEY_LAST_SYNC_MILLIS = "last_sync_millis";
+    private static final String KEY_NEW_ARTICLE_COUNT = "new_article_count";
+    private static final String KEY_FEED_PROFILE = "feed_profile";
+
+    private final Context mContext;
+    private final SharedPreferences mSettings;
+    private final SharedPreferences mSyncState;
+
+    //Constructs new FeedSettings
+    public FeedSettings(Context context) {
+        mContext = context.getApplicationContext();
+        mSettings = PreferenceManager.getDefaultSharedPreferences(mContext);
+        mSyncState = mContext.getSharedPreferences(SYNC_PREFERENCES, Context.MODE_PRIVATE);
+    }
+
+    //Returns the order the user wants the news articles in
+    public String getOrderBy() {
+        return mSettings.getString(
+                mContext.getString(R.string.settings_order_by_key),
+                mContext.getString(R.string.settings_order_by_default)
+        );
+    }
+
+    //Returns whether the merged feed is ordered from newest to oldest, which is all but the oldest order
+    public boolean isNewestFirst() {
+        return !mContext.getString(R.string.settings_order_by_oldest_value).equals(getOrderBy());
+    }
+
+    //Returns the sections the user follows
+    public Set<String> getSections() {
+        return mSettings.getStringSet(
+                mContext.getString(R.string.settings_sections_key),
+                Collections.singleton(mContext.getString(R.string.settings_section_default))
+        );
+    }
+
+    /*
+     * Returns a key for what the feed holds with the current settings: the order and the
+     * followed sections. Articles that were stored for another key belong to another feed.
+     */
+    public String getFeedKey() {
+        List<String> sections = new ArrayList<>(getSections());
+        Collections.sort(sections);
+        StringBuilder key = new StringBuilder(getOrderBy());
+        for (String section : sections) {
+            key.append('|').append(section);
+        }
+        return key.toString();
+    }
+
+    //Returns what the feed shows with the current settings, for every author
+    public LocalFeedView.Spec getFeedSpec() {
+        return new LocalFeedView.Spec(getOrderBy(), getSections(), null);
+    }
+
+    /*
+     * Keep the profile the feed is shown with, so the background sync asks for the same pages
+     * with the same fields and refreshes the entries the feed reads
+     */
+    public void setFeedProfile(FetchPolicy.Profile profile) {
+        mSyncState.edit().putString(KEY_FEED_PROFILE, profile.name()).apply();
+    }
+
+    /*
+     * Returns the profile the feed was last shown with, or the one of the current link when the
+     * feed was not shown yet
+     */
+    public FetchPolicy.Profile getFeedProfile() {
+        String name = mSyncState.getString(KEY_FEED_PROFILE, null);
+        if (name != null) {
+            try {
+                return FetchPolicy.Profile.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                //A profile of an older version, use the current one
+            }
+        }
+        return FetchPolicy.getInstance(mContext).getProfile();
+    }
+
+    /*
+     * Returns the query URLs for the given page of the feed, with the profile the feed is shown with
+     */
+    public List<String> buildQueryUrls(int page) {
+        return buildQueryUrls(page, getFeedProfile());
+    }
+
+    /*
+     * Returns the query URLs for the given page of the feed. The followed sections are asked for
+     * in a single query, so the server merges them and a page costs one request of the quota
+     * however many sections there are. Only when that query would be longer than a URL may be
+     * is every section asked for on its own, to be loaded side by side and merged by the
+     * MultiSectionFetcher. The profile sets the page size and the fields. The queries only reach
+     * back as far as the rolling window after the last complete sync.
+     */
+    public List<String> buildQueryUrls(int page, FetchPolicy.Profile profile) {
+        Set<String> sections = getSections();
+        String batched = buildQueryUrl(sections, page, profile);
+        if (batched.length() <= MAX_QUERY_URL_LENGTH || sections.size() < 2) {
+            return Collections.singletonList(batched);
+        }
+
+        List<String> urls = new ArrayList<>(sections.size());
+        for (String section : sections) {
+            urls.add(buildQueryUrl(Collections.singleton(section), page, profile));
+        }
+        return urls;
+    }
+
+    /*
+     * Returns the query URL for the given page of the given sections
+     */
+    private String buildQueryUrl(Set<String> sections, int page, FetchPolicy.Profile profile) {
+        return new GuardianQuery.Builder()
+                .sections(sections)
+                .rollingWindow(System.currentTimeMillis(), getLastSyncMillis())
+                .orderBy(getOrderBy())
+                .showFields(profile.getFields())
+                .showTags("contributor", "keyword")
+                .pageSize(profile.getPageSize())
+                .page(page)
+                .build()
+                .toUrl();
+    }
+
+    //Returns the time in milliseconds of the last sync that refreshed every section, or 0
+    public long getLastSyncMillis() {
+        return mSyncState.getLong(KEY_LAST_SYNC_MILLIS, 0);
+    }
+
+    //Returns the number of new articles the background sync found since the user last looked
+    public int getNewArticleCount() {
+        return mSyncState.getInt(KEY_NEW_ARTICLE_COUNT, 0);
+    }
+
+    /*
+     * Store the outcome of a sync: the new articles it found are added to the ones that were
+     * not seen yet, and a complete sync becomes the last sync
+     */
+    public void recordSync(FeedSyncer.Result result, long nowMillis) {
+        SharedPreferences.Editor editor = mSyncState.edit();
+        if (result.getNewCount() > 0) {
+            editor.putInt(KEY_NEW_ARTICLE_COUNT, getNewArticleCount() + result.getNewCount());
+        }
+        if (result.isComplete()) {
+            editor.putLong(KEY_LAST_SYNC_MILLIS, nowMillis);
+        }
+        editor.apply();
+    }
+
+    //Forget the new articles, after the user has seen them
+    public void clearNewArticleCount() {
+        mSyncState.edit().remove(KEY_NEW_ARTICLE_COUNT).apply();
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/*
+ * Keeps the top of the feed that was last on the screen in one small file, so the next launch
+ * can show it right away instead of a spinner while the feed is loaded. The snapshot is written
+ * when the activity pauses and read on the main thread when it is created, before any load is
+ * started. It only holds the first rows, already merged and ordered, so reading it is a single
+ * read of a few kilobytes and the records are decoded when they are bound.
+ *
+ * A snapshot belongs to the settings it was taken with: after the user changed the sections or
+ * the order, it is not shown.
+ */
+public class FeedSnapshot {
+
+    //Tag for the log messages
+    private static final String LOG_TAG = FeedSnapshot.class.getSimpleName();
+
+    //Version of the file format, files with another version are ignored
+    private static final int FORMAT_VERSION = 1;
+
+    //Snapshots larger than this are not read on the main thread
+    private static final int MAX_FILE_BYTES = 256 * 1024;
+
+    //Writes the snapshots off the main thread, one after the other
+    private static final Executor WRITE_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final File mFile;
+    private final int mMaxArticles;
+    private final Executor mWriteExecutor;
+
+    //Constructs a new FeedSnapshot that keeps at most maxArticles articles in the file
+    public FeedSnapshot(File file, int maxArticles) {
+        this(file, maxArticles, WRITE_EXECUTOR);
+    }
+
+    //Constructs a new FeedSnapshot
+    FeedSnapshot(File file, int maxArticles, Executor writeExecutor) {
+        mFile = file;
+        mMaxArticles = maxArticles;
+        mWriteExecutor = writeExecutor;
+    }
+
+    /*
+     * Returns the articles of the snapshot that was taken with the same feed key, or an empty
+     * list if there is none. Fast enough to call on the main thread.
+     */
+    public List<NewsArticle> read(String feedKey) {
+        if (!mFile.isFile()) {
+            return Collections.emptyList();
+        }
+        try {
+            ByteBuffer buffer = readFile(mFile);
+            if (buffer == null || buffer.getInt() != FORMAT_VERSION
+                    || !feedKey.equals(ArticleCodec.readString(buffer))) {
+                return Collections.emptyList();
+            }
+            return ArticleCodec.decode(buffer);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            Log.e(LOG_TAG, "Problem reading the feed snapshot", e);
+            mFile.delete();
+            return Collections.emptyList();
+        }
+    }
+
+    /*
+     * Store the first articles of the feed for the next launch. The articles are encoded right
+     * away, so the list may change afterwards, and written to the file in the background.
+     */
+    public void write(String feedKey, List<NewsArticle> articles) {
+        if (articles.isEmpty()) {
+            return;
+        }
+        List<NewsArticle> top = new ArrayList<>(articles.subList(0, Math.min(articles.size(), mMaxArticles)));
+
+        final ByteArrayOutputStream snapshot = new ByteArrayOutputStream(top.size() * 160 + 64);
+        snapshot.write(FORMAT_VERSION >>> 24);
+        snapshot.write(FORMAT_VERSION >>> 16);
+        snapshot.write(FORMAT_VERSION >>> 8);
+        snapshot.write(FORMAT_VERSION);
+        ArticleCodec.writeString(snapshot, feedKey);
+        byte[] batch = ArticleCodec.encode(top);
+        snapshot.write(batch, 0, batch.length);
+
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writeFile(snapshot);
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Problem writing the feed snapshot", e);
+                }
+            }
+        });
+    }
+
+    /*
+     * Read the whole file into a buffer with one read on its channel. A snapshot is small, so
+     * this is cheaper than mapping it. Returns null if the file is too large to be a snapshot.
+     */
+    private static ByteBuffer readFile(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size > MAX_FILE_BYTES) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Feed snapshot is truncated");
+                }
+            }
+            buffer.flip();
+            return buffer;
+        } finally {
+            in.close();
+        }
+    }
+
+    /*
+     * Write the snapshot to a temporary file first and rename it, so a launch never reads half
+     * a snapshot
+     */
+    private synchronized void writeFile(ByteArrayOutputStream snapshot) throws IOException {
+        File temp = new File(mFile.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            snapshot.writeTo(out);
+        } finally {
+            out.close();
+        }
+
+        if (!temp.renameTo(mFile)) {
+            temp.delete();
+            throw new IOException("Could not move the feed snapshot into place " + mFile);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.android.newsapp;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.Build;
+
+/*
+ * Runs the periodic sync that SyncScheduler schedules with JobScheduler. The sync does network
+ * requests, so it runs on its own thread and the job is finished from there. Before Oreo the job
+ * can not wait for the battery, so while it is low and not charging the sync is skipped until
+ * the next period, like the alarm of older versions does.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class FeedSyncJobService extends JobService {
+
+    //Thread the running sync is on, or null
+    private Thread mSyncThread;
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O && SyncScheduler.isBatteryLow(this)) {
+            return false;
+        }
+
+        mSyncThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                FeedSyncer.Result result = SyncScheduler.syncFollowedSections(FeedSyncJobService.this);
+                //Try again with backoff when not a single section could be refreshed
+                jobFinished(params, !result.isComplete() && !Thread.currentThread().isInterrupted());
+            }
+        }, "FeedSync");
+        mSyncThread.start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        //The conditions of the job no longer hold, the next period will try again
+        if (mSyncThread != null) {
+            mSyncThread.interrupt();
+        }
+        return false;
+    }
+}
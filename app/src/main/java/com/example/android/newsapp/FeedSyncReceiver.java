@@ -0,0 +1,43 @@
+package com.example.android.newsapp;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+/*
+ * Runs the periodic sync on versions before Lollipop, when the alarm that SyncScheduler set goes
+ * off. Without a network connection, or while the battery is low and not charging, the sync is
+ * skipped until the next alarm.
+ */
+public class FeedSyncReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        final Context appContext = context.getApplicationContext();
+        if (!isConnected(appContext) || SyncScheduler.isBatteryLow(appContext)) {
+            return;
+        }
+
+        //The sync does network requests, so it gets its own thread and the broadcast is kept
+        //alive until it is done
+        final PendingResult pendingResult = goAsync();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    SyncScheduler.syncFollowedSections(appContext);
+                } finally {
+                    pendingResult.finish();
+                }
+            }
+        }, "FeedSync").start();
+    }
+
+    private static boolean isConnected(Context context) {
+        ConnectivityManager connMgr = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.android.newsapp;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Refreshes the followed sections in the background and works out what changed compared to the
+ * articles that were stored before. Articles are identified by their URL: an article that was
+ * not stored before is new, one whose fields differ was changed. Unchanged responses are not
+ * written to the disk cache again.
+ */
+public class FeedSyncer {
+
+    //Fetches the sections, its results also go into the in-memory cache the loaders read
+    private final NewsRepository mRepository;
+    private final QueryCache mQueryCache;
+
+    //The refreshed articles are added to it, so they can be searched
+    private final ArticleSearchIndex mSearchIndex;
+
+    /*
+     * What a sync found, counted over all sections. An article that shows up in several
+     * sections is counted once.
+     */
+    public static class Result {
+
+        private final Set<String> mNewUrls = new HashSet<>();
+        private final Set<String> mChangedUrls = new HashSet<>();
+        private int mRemovedCount;
+        private boolean mComplete = true;
+
+        //Returns the number of articles that were not stored before
+        public int getNewCount() {
+            return mNewUrls.size();
+        }
+
+        //Returns the number of stored articles whose fields changed
+        public int getChangedCount() {
+            return mChangedUrls.size();
+        }
+
+        //Returns the number of stored articles that are no longer in their section
+        public int getRemovedCount() {
+            return mRemovedCount;
+        }
+
+        //Returns whether every section was refreshed from the server
+        public boolean isComplete() {
+            return mComplete;
+        }
+    }
+
+    //Constructs a new FeedSyncer
+    public FeedSyncer(NewsRepository repository, QueryCache queryCache, ArticleSearchIndex searchIndex) {
+        mRepository = repository;
+        mQueryCache = queryCache;
+        mSearchIndex = searchIndex;
+    }
+
+    /*
+     * Refresh every query URL and compare it with the articles that were stored for it
+     */
+    public Result sync(List<String> urls) {
+        Result result = new Result();
+        //The sync is not cancelled once it started
+        final CancelSignal signal = new CancelSignal();
+        for (String url : urls) {
+            List<NewsArticle> previous = mRepository.getCached(url);
+            //The sync runs in the background and only uses what is left of the quota, a visible
+            //load of the same query does not wait for it
+            NewsResult fetched = mQueryCache.load(url, LoadEngine.Priority.PREFETCH, signal, new QueryCache.Fetcher() {
+                @Override
+                public NewsResult fetch(String url) {
+                    return mRepository.fetch(url, signal, LoadEngine.Priority.PREFETCH);
+                }
+            });
+
+            if (!fetched.isFresh()) {
+                result.mComplete = false;
+                continue;
+            }
+            mSearchIndex.addAll(fetched.getArticles());
+
+            //Without stored articles there is nothing to compare with, the user has not seen
+            //any of them, so they do not count as new either
+            if (previous != null) {
+                compare(previous, fetched.getArticles(), result);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Add the differences between the previous and the current articles of a section to the result
+     */
+    static void compare(List<NewsArticle> previous, List<NewsArticle> current, Result result) {
+        Map<String, NewsArticle> stored = new HashMap<>(previous.size() * 2);
+        for (NewsArticle article : previous) {
+            stored.put(article.getWebsite(), article);
+        }
+
+        for (NewsArticle article : current) {
+            NewsArticle before = stored.remove(article.getWebsite());
+            if (before == null) {
+                result.mNewUrls.add(article.getWebsite());
+            } else if (!before.hasSameContent(article)) {
+                result.mChangedUrls.add(article.getWebsite());
+            }
+        }
+        result.mRemovedCount += stored.size();
+    }
+}
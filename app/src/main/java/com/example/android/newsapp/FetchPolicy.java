@@ -0,0 +1,233 @@
+package com.example.android.newsapp;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Decides how much the app fetches for the link it is on. On Wi-Fi the feed comes with every
+ * field, full size thumbnails and deep prefetching. On a metered link the fields the list does
+ * not show are left out, thumbnails are smaller and little is fetched ahead that the user may
+ * not look at. The throughput of recent responses is measured as well, so a slow Wi-Fi is
+ * treated like a metered link and a slow metered link gets small pages without thumbnails.
+ *
+ * The profile that was chosen last is kept in the preferences. Without a connection it is
+ * still used, so the queries match the ones that were stored.
+ */
+public class FetchPolicy {
+
+    //Name of the preferences file the last profile is kept in
+    private static final String PREFERENCES = "fetch_policy";
+    private static final String KEY_PROFILE = "profile";
+
+    //Below this many bytes per second a link is slow. Bodies are counted after decompression.
+    static final long SLOW_BYTES_PER_SECOND = 48 * 1024;
+
+    //Responses smaller than this mostly measure the round trip, not the throughput
+    static final long MIN_MEASURED_BYTES = 8 * 1024;
+
+    //Weight of a new measurement in the moving average of the throughput
+    private static final double SMOOTHING = 0.3;
+
+    //Thumbnails of the Guardian media server, whose last path segment is the width
+    private static final Pattern MEDIA_WIDTH = Pattern.compile("^(https?://[^/]*\\.guim\\.co\\.uk/.*/)\\d+(\\.jpg)$");
+
+    //Width of the small thumbnails of the Guardian media server
+    private static final int REDUCED_THUMBNAIL_WIDTH = 140;
+
+    /*
+     * How the thumbnails of the feed are loaded
+     */
+    public enum ThumbnailQuality {
+        //The thumbnail the API hands out
+        FULL,
+        //A smaller rendition, when the server has one
+        REDUCED,
+        //No thumbnails, they are not even asked for
+        NONE
+    }
+
+    /*
+     * What is fetched on a kind of link
+     */
+    public enum Profile {
+        //Wi-Fi or another link that is not metered and not slow
+        UNMETERED(FeedSettings.PAGE_SIZE, new String[]{"thumbnail", "trailText", "wordcount"}, ThumbnailQuality.FULL,
+                10, 12, 10, 3 * AlarmManager.INTERVAL_HOUR),
+        //A metered link, or a slow one that is not metered
+        METERED(FeedSettings.PAGE_SIZE, new String[]{"thumbnail"}, ThumbnailQuality.REDUCED,
+                5, 3, 0, 6 * AlarmManager.INTERVAL_HOUR),
+        //A slow metered link
+        SLOW(FeedSettings.PAGE_SIZE / 2, new String[0], ThumbnailQuality.NONE,
+                3, 0, 0, 12 * AlarmManager.INTERVAL_HOUR);
+
+        private final int mPageSize;
+        private final String[] mFields;
+        private final ThumbnailQuality mThumbnailQuality;
+        private final int mPagePrefetchRows;
+        private final int mThumbnailPrefetchRows;
+        private final int mBodyPrefetchArticles;
+        private final long mSyncIntervalMillis;
+
+        Profile(int pageSize, String[] fields, ThumbnailQuality thumbnailQuality, int pagePrefetchRows,
+                int thumbnailPrefetchRows, int bodyPrefetchArticles, long syncIntervalMillis) {
+            mPageSize = pageSize;
+            mFields = fields;
+            mThumbnailQuality = thumbnailQuality;
+            mPagePrefetchRows = pagePrefetchRows;
+            mThumbnailPrefetchRows = thumbnailPrefetchRows;
+            mBodyPrefetchArticles = bodyPrefetchArticles;
+            mSyncIntervalMillis = syncIntervalMillis;
+        }
+
+        //Returns the number of articles per page of the feed
+        public int getPageSize() {
+            return mPageSize;
+        }
+
+        //Returns the fields the queries of the feed ask for
+        public String[] getFields() {
+            return mFields.clone();
+        }
+
+        //Returns how the thumbnails are loaded
+        public ThumbnailQuality getThumbnailQuality() {
+            return mThumbnailQuality;
+        }
+
+        //Returns the number of rows before the end of the list at which the next page is fetched
+        public int getPagePrefetchRows() {
+            return mPagePrefetchRows;
+        }
+
+        //Returns the number of rows after the last visible one whose thumbnails are loaded ahead
+        public int getThumbnailPrefetchRows() {
+            return mThumbnailPrefetchRows;
+        }
+
+        //Returns the number of articles whose text is stored ahead, 0 stores none
+        public int getBodyPrefetchArticles() {
+            return mBodyPrefetchArticles;
+        }
+
+        //Returns the time between two background syncs in milliseconds
+        public long getSyncIntervalMillis() {
+            return mSyncIntervalMillis;
+        }
+
+        /*
+         * Returns the URL to load the thumbnail from with this profile, or an empty String when
+         * no thumbnail is loaded
+         */
+        public String thumbnailUrl(String thumbnail) {
+            switch (mThumbnailQuality) {
+                case NONE:
+                    return "";
+                case REDUCED:
+                    Matcher media = MEDIA_WIDTH.matcher(thumbnail);
+                    return media.matches() ? media.group(1) + REDUCED_THUMBNAIL_WIDTH + media.group(2) : thumbnail;
+                default:
+                    return thumbnail;
+            }
+        }
+    }
+
+    //The one instance that is shared by the whole app
+    private static FetchPolicy sInstance;
+
+    //Keeps the last profile, or null in tests
+    private final SharedPreferences mPreferences;
+
+    //The fields below are guarded by this
+    private boolean mUnmetered;
+    private long mBytesPerSecond;
+    private Profile mProfile;
+
+    //Constructs a new FetchPolicy that starts with the profile
+    FetchPolicy(SharedPreferences preferences, Profile profile) {
+        mPreferences = preferences;
+        mProfile = profile;
+        mUnmetered = profile == Profile.UNMETERED;
+    }
+
+    /*
+     * Returns the FetchPolicy that is shared by the whole app
+     */
+    public static synchronized FetchPolicy getInstance(Context context) {
+        if (sInstance == null) {
+            SharedPreferences preferences = context.getApplicationContext()
+                    .getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+            Profile profile = Profile.UNMETERED;
+            try {
+                profile = Profile.valueOf(preferences.getString(KEY_PROFILE, profile.name()));
+            } catch (IllegalArgumentException e) {
+                //A profile of an older version, start over on the default
+            }
+            sInstance = new FetchPolicy(preferences, profile);
+        }
+        return sInstance;
+    }
+
+    /*
+     * Tell the policy about the link the app is on now. A new link starts without a measured
+     * throughput. Without a connection the profile stays what it was.
+     */
+    public synchronized void onLinkChanged(boolean online, boolean unmetered) {
+        if (!online) {
+            return;
+        }
+        if (unmetered != mUnmetered) {
+            mBytesPerSecond = 0;
+        }
+        mUnmetered = unmetered;
+        update();
+    }
+
+    /*
+     * Record that a response body of the given size took the given time, from sending the
+     * request until the last byte. Small bodies are left out.
+     */
+    public synchronized void recordTransfer(long bytes, long nanos) {
+        if (bytes < MIN_MEASURED_BYTES || nanos <= 0) {
+            return;
+        }
+        long bytesPerSecond = bytes * 1000000000L / nanos;
+        mBytesPerSecond = mBytesPerSecond == 0 ? bytesPerSecond
+                : (long) (SMOOTHING * bytesPerSecond + (1 - SMOOTHING) * mBytesPerSecond);
+        update();
+    }
+
+    //Returns the profile for the current link
+    public synchronized Profile getProfile() {
+        return mProfile;
+    }
+
+    //Returns the measured throughput in bytes per second, or 0 when it was not measured yet
+    public synchronized long getBytesPerSecond() {
+        return mBytesPerSecond;
+    }
+
+    /*
+     * Returns the profile for a link. A throughput of 0 means it was not measured.
+     */
+    static Profile choose(boolean unmetered, long bytesPerSecond) {
+        boolean slow = bytesPerSecond > 0 && bytesPerSecond < SLOW_BYTES_PER_SECOND;
+        if (unmetered) {
+            return slow ? Profile.METERED : Profile.UNMETERED;
+        }
+        return slow ? Profile.SLOW : Profile.METERED;
+    }
+
+    private void update() {
+        Profile profile = choose(mUnmetered, mBytesPerSecond);
+        if (profile != mProfile) {
+            mProfile = profile;
+            if (mPreferences != null) {
+                mPreferences.edit().putString(KEY_PROFILE, profile.name()).apply();
+            }
+        }
+    }
+}
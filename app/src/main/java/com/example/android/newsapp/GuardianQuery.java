@@ -0,0 +1,256 @@
+package com.example.android.newsapp;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * A query of the Guardian search endpoint. The Builder only offers the parameters the app uses,
+ * so a query can not be built with a misspelled parameter or a page size the server rejects.
+ * By default a query asks for the fields a NewsArticle reads and nothing else: the fields of
+ * every result plus the contributor tag for the author, and no extra show-fields.
+ */
+public final class GuardianQuery {
+
+    //URL for the news article data from the Guardian dataset
+    private static final String GUARDIAN_REQUEST_URL = "https://content.guardianapis.com/search";
+
+    //URL of a single item of the Guardian dataset is this followed by its id
+    private static final String GUARDIAN_CONTENT_URL = "https://content.guardianapis.com/";
+
+    //Articles on the website are found at this followed by their id
+    private static final String GUARDIAN_WEBSITE_URL = "https://www.theguardian.com/";
+
+    //The key the app queries the Guardian dataset with
+    private static final String API_KEY = "ec9ac2e5-63b6-4320-9e51-b3a9c0ba63f7";
+
+    //Largest page size the server accepts
+    public static final int MAX_PAGE_SIZE = 50;
+
+    //The from-date window reaches back at least this many days, and never more than the maximum
+    static final int MIN_WINDOW_DAYS = 7;
+    static final int MAX_WINDOW_DAYS = 90;
+
+    //Days of overlap with the last sync, so articles that were published while it ran are not missed
+    private static final int SYNC_OVERLAP_DAYS = 1;
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private final String mSection;
+    private final String mSearchTerms;
+    private final String mFromDate;
+    private final String mOrderBy;
+    private final List<String> mShowFields;
+    private final List<String> mShowTags;
+    private final int mPageSize;
+    private final int mPage;
+
+    private GuardianQuery(Builder builder) {
+        mSection = builder.mSection;
+        mSearchTerms = builder.mSearchTerms;
+        mFromDate = builder.mFromDate;
+        mOrderBy = builder.mOrderBy;
+        mShowFields = Collections.unmodifiableList(new ArrayList<>(builder.mShowFields));
+        mShowTags = Collections.unmodifiableList(new ArrayList<>(builder.mShowTags));
+        mPageSize = builder.mPageSize;
+        mPage = builder.mPage;
+    }
+
+    //Returns the page of the results this query asks for, the first page is 1
+    public int getPage() {
+        return mPage;
+    }
+
+    //Returns the number of results per page
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    /*
+     * Returns the URL of the query. Parameters that were not set are left out.
+     */
+    public String toUrl() {
+        StringBuilder url = new StringBuilder(GUARDIAN_REQUEST_URL);
+        appendParameter(url, "section", mSection);
+        appendParameter(url, "q", mSearchTerms);
+        appendParameter(url, "from-date", mFromDate);
+        appendParameter(url, "order-date", "published");
+        appendParameter(url, "show-tags", join(mShowTags));
+        appendParameter(url, "show-fields", join(mShowFields));
+        appendParameter(url, "order-by", mOrderBy);
+        appendParameter(url, "page-size", String.valueOf(mPageSize));
+        appendParameter(url, "page", String.valueOf(mPage));
+        appendParameter(url, "api-key", API_KEY);
+        return url.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toUrl();
+    }
+
+    /*
+     * Returns the URL that asks for the given fields of the article at the webUrl, like its
+     * "body", or null if the webUrl is not an article on the Guardian website
+     */
+    public static String contentUrl(String webUrl, String... fields) {
+        if (!webUrl.startsWith(GUARDIAN_WEBSITE_URL) || webUrl.length() == GUARDIAN_WEBSITE_URL.length()) {
+            return null;
+        }
+        //The id of an article is the path of its webUrl
+        String id = webUrl.substring(GUARDIAN_WEBSITE_URL.length());
+        int end = id.length();
+        for (char separator : new char[]{'?', '#'}) {
+            int index = id.indexOf(separator);
+            if (index >= 0 && index < end) {
+                end = index;
+            }
+        }
+
+        StringBuilder url = new StringBuilder(GUARDIAN_CONTENT_URL).append(id, 0, end);
+        appendParameter(url, "show-fields", join(Arrays.asList(fields)));
+        appendParameter(url, "api-key", API_KEY);
+        return url.toString();
+    }
+
+    /*
+     * Returns the start of the from-date window in milliseconds. It reaches back the minimum
+     * window, or further when the last complete sync is older than that so nothing published
+     * since then is missed, but never past the maximum window.
+     */
+    static long rollingFromMillis(long nowMillis, long lastSyncMillis) {
+        long from = nowMillis - MIN_WINDOW_DAYS * DAY_MILLIS;
+        if (lastSyncMillis > 0) {
+            from = Math.min(from, lastSyncMillis - SYNC_OVERLAP_DAYS * DAY_MILLIS);
+        }
+        return Math.max(from, nowMillis - MAX_WINDOW_DAYS * DAY_MILLIS);
+    }
+
+    private static void appendParameter(StringBuilder url, String name, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        url.append(url.indexOf("?") < 0 ? '?' : '&').append(name).append('=').append(encode(value));
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            //Every Java platform supports UTF-8
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String join(List<String> values) {
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            if (joined.length() > 0) {
+                joined.append(',');
+            }
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+
+    /*
+     * Builds a GuardianQuery. Only the page size and page have defaults, everything else is left
+     * out of the query unless it is set.
+     */
+    public static class Builder {
+
+        private String mSection;
+        private String mSearchTerms;
+        private String mFromDate;
+        private String mOrderBy;
+        private List<String> mShowFields = Collections.emptyList();
+        private List<String> mShowTags = Collections.singletonList("contributor");
+        private int mPageSize = 10;
+        private int mPage = 1;
+
+        //Only return results of this section, like "business"
+        public Builder section(String section) {
+            mSection = section;
+            return this;
+        }
+
+        /*
+         * Only return results of any of these sections, in one query instead of one per section.
+         * They are sorted, so the same sections always give the same URL.
+         */
+        public Builder sections(Collection<String> sections) {
+            List<String> sorted = new ArrayList<>(sections);
+            Collections.sort(sorted);
+            StringBuilder joined = new StringBuilder();
+            for (String section : sorted) {
+                if (joined.length() > 0) {
+                    joined.append('|');
+                }
+                joined.append(section);
+            }
+            mSection = joined.toString();
+            return this;
+        }
+
+        //Only return results that match the search terms, which may use AND, OR and NOT
+        public Builder searchTerms(String searchTerms) {
+            mSearchTerms = searchTerms;
+            return this;
+        }
+
+        //Only return results published on or after the day of the time in milliseconds, in UTC
+        public Builder fromMillis(long fromMillis) {
+            mFromDate = Utils.formatIsoDate(fromMillis).substring(0, 10);
+            return this;
+        }
+
+        //Only return results published since the rolling window that follows the last sync
+        public Builder rollingWindow(long nowMillis, long lastSyncMillis) {
+            return fromMillis(rollingFromMillis(nowMillis, lastSyncMillis));
+        }
+
+        //Order the results by "newest", "oldest" or "relevance"
+        public Builder orderBy(String orderBy) {
+            mOrderBy = orderBy;
+            return this;
+        }
+
+        //Also return these fields of every result, like "thumbnail". None are asked for by default.
+        public Builder showFields(String... fields) {
+            mShowFields = Arrays.asList(fields);
+            return this;
+        }
+
+        //Return these tags of every result. Only the contributor is asked for by default.
+        public Builder showTags(String... tags) {
+            mShowTags = Arrays.asList(tags);
+            return this;
+        }
+
+        //Number of results per page, between 1 and MAX_PAGE_SIZE
+        public Builder pageSize(int pageSize) {
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+            }
+            mPageSize = pageSize;
+            return this;
+        }
+
+        //Page of the results, the first page is 1
+        public Builder page(int page) {
+            if (page < 1) {
+                throw new IllegalArgumentException("Pages start at 1");
+            }
+            mPage = page;
+            return this;
+        }
+
+        public GuardianQuery build() {
+            return new GuardianQuery(this);
+        }
+    }
+}
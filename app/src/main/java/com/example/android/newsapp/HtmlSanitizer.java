@@ -0,0 +1,204 @@
+package com.example.android.newsapp;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Turns the HTML body of an article into plain text for the reader. Tags are dropped, the text of
+ * elements that are not part of the story (scripts, embedded media, asides) is dropped with them,
+ * whitespace is collapsed and entities are decoded. Every paragraph, heading, quote and list item
+ * becomes a paragraph of its own, separated by an empty line. The HTML is read in a single pass
+ * without building a tree, and nothing of it is ever run or rendered.
+ */
+public final class HtmlSanitizer {
+
+    //Separates the paragraphs of the text
+    public static final String PARAGRAPH_SEPARATOR = "\n\n";
+
+    //Elements whose content is left out of the text
+    private static final Set<String> SKIPPED = new HashSet<>(Arrays.asList(
+            "script", "style", "figure", "aside", "iframe", "noscript", "svg", "video", "audio",
+            "object", "form", "button", "template"));
+
+    //Elements that start and end a paragraph
+    private static final Set<String> BLOCKS = new HashSet<>(Arrays.asList(
+            "p", "div", "h1", "h2", "h3", "h4", "h5", "h6", "blockquote", "li", "ul", "ol", "pre",
+            "section", "article", "header", "footer", "table", "tr", "hr"));
+
+    //Named entities that are decoded, any other is kept as it is
+    private static final Map<String, String> ENTITIES = new HashMap<>();
+
+    static {
+        ENTITIES.put("amp", "&");
+        ENTITIES.put("lt", "<");
+        ENTITIES.put("gt", ">");
+        ENTITIES.put("quot", "\"");
+        ENTITIES.put("apos", "'");
+        ENTITIES.put("nbsp", "\u00a0");
+        ENTITIES.put("ndash", "\u2013");
+        ENTITIES.put("mdash", "\u2014");
+        ENTITIES.put("hellip", "\u2026");
+        ENTITIES.put("lsquo", "\u2018");
+        ENTITIES.put("rsquo", "\u2019");
+        ENTITIES.put("ldquo", "\u201c");
+        ENTITIES.put("rdquo", "\u201d");
+        ENTITIES.put("pound", "\u00a3");
+        ENTITIES.put("euro", "\u20ac");
+    }
+
+    //Longest entity that is looked for, like "&#x1F600;"
+    private static final int MAX_ENTITY_LENGTH = 10;
+
+    private final StringBuilder mText;
+
+    //Whitespace or a line or paragraph break that is written before the next character
+    private boolean mPendingSpace;
+    private boolean mPendingLine;
+    private boolean mPendingParagraph;
+
+    private HtmlSanitizer(int capacity) {
+        mText = new StringBuilder(capacity);
+    }
+
+    /*
+     * Returns the text of the HTML, with its paragraphs separated by PARAGRAPH_SEPARATOR
+     */
+    public static String sanitize(String html) {
+        //Markup takes up about half of a Guardian body
+        HtmlSanitizer sanitizer = new HtmlSanitizer(html.length() / 2);
+        sanitizer.read(html);
+        return sanitizer.mText.toString();
+    }
+
+    private void read(String html) {
+        //The element whose content is skipped, and how deeply it is nested in itself
+        String skipped = null;
+        int skippedDepth = 0;
+
+        int length = html.length();
+        int i = 0;
+        while (i < length) {
+            char c = html.charAt(i);
+            if (c == '<') {
+                if (html.startsWith("<!--", i)) {
+                    int end = html.indexOf("-->", i + 4);
+                    i = end < 0 ? length : end + 3;
+                    continue;
+                }
+                int end = html.indexOf('>', i);
+                if (end < 0) {
+                    //Half a tag at the end is dropped
+                    break;
+                }
+
+                boolean closing = i + 1 < end && html.charAt(i + 1) == '/';
+                boolean selfClosing = html.charAt(end - 1) == '/';
+                String name = tagName(html, closing ? i + 2 : i + 1, end);
+                i = end + 1;
+
+                if (skipped != null) {
+                    if (name.equals(skipped) && !selfClosing) {
+                        skippedDepth += closing ? -1 : 1;
+                        if (skippedDepth == 0) {
+                            skipped = null;
+                        }
+                    }
+                } else if (SKIPPED.contains(name)) {
+                    if (!closing && !selfClosing) {
+                        skipped = name;
+                        skippedDepth = 1;
+                    }
+                } else if ("br".equals(name)) {
+                    mPendingLine = true;
+                } else if (BLOCKS.contains(name)) {
+                    mPendingParagraph = true;
+                }
+                continue;
+            }
+
+            if (skipped == null) {
+                if (c == '&') {
+                    i = readEntity(html, i);
+                    continue;
+                }
+                append(c);
+            }
+            i++;
+        }
+    }
+
+    /*
+     * Append the character the entity at the index stands for and return the index after it. An
+     * entity that is not known is appended as it is.
+     */
+    private int readEntity(String html, int start) {
+        int end = html.indexOf(';', start);
+        if (end < 0 || end - start > MAX_ENTITY_LENGTH) {
+            append('&');
+            return start + 1;
+        }
+
+        String name = html.substring(start + 1, end);
+        String value = null;
+        if (name.startsWith("#")) {
+            try {
+                int codePoint = name.startsWith("#x") || name.startsWith("#X")
+                        ? Integer.parseInt(name.substring(2), 16)
+                        : Integer.parseInt(name.substring(1));
+                if (Character.isValidCodePoint(codePoint)) {
+                    value = new String(Character.toChars(codePoint));
+                }
+            } catch (NumberFormatException e) {
+                //Not a number, so it is kept as it is
+            }
+        } else {
+            value = ENTITIES.get(name);
+        }
+
+        if (value == null) {
+            append('&');
+            return start + 1;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            append(value.charAt(i));
+        }
+        return end + 1;
+    }
+
+    /*
+     * Append a character of text. Runs of whitespace become a single space, and breaks are only
+     * written between two pieces of text, so the text never starts or ends with one.
+     */
+    private void append(char c) {
+        if (Character.isWhitespace(c)) {
+            mPendingSpace = true;
+            return;
+        }
+        if (mText.length() > 0) {
+            if (mPendingParagraph) {
+                mText.append(PARAGRAPH_SEPARATOR);
+            } else if (mPendingLine) {
+                mText.append('\n');
+            } else if (mPendingSpace) {
+                mText.append(' ');
+            }
+        }
+        mPendingSpace = false;
+        mPendingLine = false;
+        mPendingParagraph = false;
+        mText.append(c);
+    }
+
+    //Returns the lower case name of the tag that starts at the index
+    private static String tagName(String html, int start, int end) {
+        int i = start;
+        while (i < end && Character.isLetterOrDigit(html.charAt(i))) {
+            i++;
+        }
+        return html.substring(start, i).toLowerCase(Locale.US);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.android.newsapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.TreeMap;
+
+//This class holds the status code, headers and body stream of a response from a HttpTransport
+public class HttpResponse implements Closeable {
+
+    //Status code of the response
+    private final int mCode;
+
+    //Response headers, looked up without regard to case
+    private final Map<String, String> mHeaders;
+
+    //Body of the response, can be null when there is no body
+    private final InputStream mBody;
+
+    //Resource that is released together with the body, can be null. It is closed first, so it
+    //can still read what is left of the body.
+    private final Closeable mConnection;
+
+    //Breaks off the exchange from another thread, can be null
+    private final Closeable mAbort;
+
+    //Constructs a new HttpResponse
+    public HttpResponse(int code, Map<String, String> headers, InputStream body, Closeable connection) {
+        this(code, headers, body, connection, null);
+    }
+
+    //Constructs a new HttpResponse that can be aborted while its body is being read
+    public HttpResponse(int code, Map<String, String> headers, InputStream body, Closeable connection,
+                        Closeable abort) {
+        mCode = code;
+        mHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (headers != null) {
+            mHeaders.putAll(headers);
+        }
+        mBody = body;
+        mConnection = connection;
+        mAbort = abort;
+    }
+
+    //Returns the status code of the response
+    public int getCode() {
+        return mCode;
+    }
+
+    //Returns the value of the given header, or null if the response does not have it
+    public String getHeader(String name) {
+        return mHeaders.get(name);
+    }
+
+    //Returns the body of the response
+    public InputStream getBody() {
+        return mBody;
+    }
+
+    /*
+     * Break off the response from another thread, so the thread that reads the body stops with
+     * an IOException instead of reading to the end. The connection is not reused, and the
+     * response must still be closed.
+     */
+    public void abort() throws IOException {
+        if (mAbort != null) {
+            mAbort.close();
+        } else if (mBody != null) {
+            mBody.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (mConnection != null) {
+                mConnection.close();
+            }
+        } finally {
+            if (mBody != null) {
+                mBody.close();
+            }
+        }
+    }
+}
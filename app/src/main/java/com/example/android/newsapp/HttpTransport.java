@@ -0,0 +1,21 @@
+package com.example.android.newsapp;
+
+import java.io.IOException;
+import java.util.Map;
+
+/*
+ * Performs HTTP GET requests for the app. The network code only talks to this interface, so the
+ * real connection can be replaced by a fake one in tests.
+ */
+public interface HttpTransport {
+
+    /*
+     * Perform a GET request to the given URL with the given extra request headers.
+     * The caller must close the returned HttpResponse.
+     *
+     * When the signal is cancelled the request is broken off, from connecting until the response
+     * is closed: execute throws an IOException, or reading the body does. The signal can be null
+     * for a request that is never cancelled.
+     */
+    HttpResponse execute(String url, Map<String, String> headers, CancelSignal signal) throws IOException;
+}
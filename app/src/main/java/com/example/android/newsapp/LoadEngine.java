@@ -0,0 +1,271 @@
+package com.example.android.newsapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Runs the loads of the app on a small pool of its own and delivers their results on the main
+ * thread. A load can be cancelled at any time: its CancelSignal breaks off the request it is
+ * waiting for and its thread is interrupted, so it does not keep the pool busy after the user
+ * left. Loads for what is on the screen are run before loads of what may be shown later.
+ *
+ * Results only reach a receiver while one is attached. An activity attaches when it starts and
+ * detaches when it stops; the latest result is kept in the meantime and delivered when it
+ * comes back, also to the new activity after a configuration change.
+ */
+public class LoadEngine {
+
+    //Tag for the log messages
+    private static final String LOG_TAG = LoadEngine.class.getSimpleName();
+
+    //Number of loads that run at the same time. A load mostly waits for the network, and the
+    //sections of a feed that do not fit in one query are loaded side by side on the pool of
+    //the MultiSectionFetcher.
+    private static final int THREADS = 3;
+
+    /*
+     * How urgent a load is. Loads of the same priority run in the order they were started.
+     */
+    public enum Priority {
+        //What the user is looking at right now
+        VISIBLE,
+        //What the user will probably look at soon, like the next page of the feed
+        PREFETCH
+    }
+
+    /*
+     * The work of a load, which is done on a thread of the pool
+     */
+    public interface Job<T> {
+        /*
+         * Do the work and return the result. Results that can already be shown before the work
+         * is done are handed to load.publish. The job should stop early when the cancel signal
+         * of the load is cancelled, what it returns then is not delivered. A job that throws
+         * delivers no final result, so a job returns its error result instead.
+         */
+        T run(Load<T> load);
+    }
+
+    /*
+     * Receives the results of a load on the main thread
+     */
+    public interface Receiver<T> {
+        void onLoadResult(Load<T> load, T result);
+    }
+
+    //The one instance that is shared by the whole app
+    private static LoadEngine sInstance;
+
+    private final ThreadPoolExecutor mExecutor;
+
+    //Runs the deliveries on the main thread
+    private final Executor mMainThread;
+
+    //Orders loads of the same priority by the time they were started
+    private final AtomicLong mSequence = new AtomicLong();
+
+    //Constructs a new LoadEngine
+    LoadEngine(int threads, Executor mainThread) {
+        mExecutor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>());
+        mExecutor.allowCoreThreadTimeOut(true);
+        mMainThread = mainThread;
+    }
+
+    /*
+     * Returns the LoadEngine that is shared by the whole app
+     */
+    public static synchronized LoadEngine getInstance() {
+        if (sInstance == null) {
+            final Handler mainHandler = new Handler(Looper.getMainLooper());
+            sInstance = new LoadEngine(THREADS, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    mainHandler.post(command);
+                }
+            });
+        }
+        return sInstance;
+    }
+
+    /*
+     * Start the job with the given priority and return its load. Attach a receiver to the load
+     * to get its results.
+     */
+    public <T> Load<T> start(Priority priority, Job<T> job) {
+        Load<T> load = new Load<>(job, priority);
+        mExecutor.execute(new Task<>(load, priority, mSequence.getAndIncrement()));
+        return load;
+    }
+
+    /*
+     * One started job: its cancel signal, its receiver and the latest result it produced
+     */
+    public final class Load<T> {
+
+        private final Job<T> mJob;
+        private final Priority mPriority;
+        private final CancelSignal mSignal = new CancelSignal();
+
+        //Set once the job was handed to the pool, so it can be interrupted
+        private volatile Task<T> mTask;
+
+        //The fields below are only used on the main thread
+        private Receiver<T> mReceiver;
+        private T mLatest;
+        private boolean mHasResult;
+        private boolean mFinished;
+
+        //The receiver that got the latest result, so it is not delivered to it twice
+        private Receiver<T> mDeliveredTo;
+
+        Load(Job<T> job, Priority priority) {
+            mJob = job;
+            mPriority = priority;
+        }
+
+        //Returns the priority the load was started with
+        public Priority getPriority() {
+            return mPriority;
+        }
+
+        //Returns the signal that tells the job it is no longer wanted
+        public CancelSignal getCancelSignal() {
+            return mSignal;
+        }
+
+        //Returns whether the load was cancelled
+        public boolean isCancelled() {
+            return mSignal.isCancelled();
+        }
+
+        //Returns whether the final result was produced. Only call this on the main thread.
+        public boolean isFinished() {
+            return mFinished;
+        }
+
+        /*
+         * Hand out a result before the job is done. Called by the job on its own thread.
+         */
+        public void publish(T result) {
+            post(result, false);
+        }
+
+        /*
+         * Deliver the results to the receiver from now on. The latest result is delivered right
+         * away, unless this receiver already got it. Only call this on the main thread.
+         */
+        public void attach(Receiver<T> receiver) {
+            mReceiver = receiver;
+            if (mHasResult && mDeliveredTo != receiver) {
+                deliver();
+            }
+        }
+
+        /*
+         * Stop delivering results, they are kept until a receiver is attached again. Only call
+         * this on the main thread.
+         */
+        public void detach() {
+            mReceiver = null;
+        }
+
+        /*
+         * Stop the job: break off what it is waiting for and drop every result it did not
+         * deliver yet. Can be called from any thread.
+         */
+        public void cancel() {
+            mSignal.cancel();
+            Task<T> task = mTask;
+            if (task != null) {
+                task.cancel(true);
+            }
+        }
+
+        private void post(final T result, final boolean finished) {
+            mMainThread.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (isCancelled()) {
+                        return;
+                    }
+                    mLatest = result;
+                    mHasResult = true;
+                    mFinished = finished;
+                    mDeliveredTo = null;
+                    if (mReceiver != null) {
+                        deliver();
+                    }
+                }
+            });
+        }
+
+        private void deliver() {
+            mDeliveredTo = mReceiver;
+            mReceiver.onLoadResult(this, mLatest);
+        }
+    }
+
+    /*
+     * Runs a load on the pool. Loads that are visible come first, and otherwise they run in the
+     * order they were started.
+     */
+    private static class Task<T> extends FutureTask<T> implements Comparable<Task<?>> {
+
+        private final Load<T> mLoad;
+        private final Priority mPriority;
+        private final long mSequence;
+
+        Task(final Load<T> load, Priority priority, long sequence) {
+            super(new Callable<T>() {
+                @Override
+                public T call() {
+                    return load.mJob.run(load);
+                }
+            });
+            mLoad = load;
+            mPriority = priority;
+            mSequence = sequence;
+            load.mTask = this;
+        }
+
+        @Override
+        public int compareTo(Task<?> other) {
+            if (mPriority != other.mPriority) {
+                return mPriority.ordinal() < other.mPriority.ordinal() ? -1 : 1;
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence > other.mSequence ? 1 : 0);
+        }
+
+        @Override
+        public void run() {
+            //A load that was cancelled while it waited in the queue is skipped
+            if (mLoad.isCancelled()) {
+                cancel(false);
+                return;
+            }
+            super.run();
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() || mLoad.isCancelled()) {
+                return;
+            }
+            try {
+                mLoad.post(get(), true);
+            } catch (Exception e) {
+                Log.e(LOG_TAG, "Problem running a load", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Answers a change of the feed settings from the articles that are already loaded, when they
+ * cover what the new settings ask for. Following fewer sections only filters the loaded
+ * articles, and switching to newest or oldest first only sorts them again once the whole feed
+ * is loaded. The order by relevance is only known to the server, so switching to it always
+ * loads the feed again. Only when the loaded pages do not hold the window the new settings show, like
+ * a section that was not followed before, does the feed have to be loaded from the network.
+ *
+ * The sections are loaded with a single query, so the loaded articles are the start of the
+ * merged feed of the loaded sections, and the ones of fewer sections the start of theirs. The
+ * next page for fewer sections follows from how many of their articles are loaded. Once it is
+ * loaded, the articles of the other sections are dropped, because they end higher up in the
+ * feed. Only use it on the main thread.
+ */
+public class LocalFeedView {
+
+    /*
+     * What the feed shows: the order, the sections and, optionally, a single author
+     */
+    public static final class Spec {
+
+        //The orders of the feed, as the order-by of the queries
+        public static final String ORDER_NEWEST = "newest";
+        public static final String ORDER_OLDEST = "oldest";
+        public static final String ORDER_RELEVANCE = "relevance";
+
+        private final String mOrderBy;
+        private final Set<String> mSections;
+        private final String mAuthor;
+
+        //Constructs a new Spec, a null author shows the articles of every author
+        public Spec(String orderBy, Set<String> sections, String author) {
+            mOrderBy = orderBy;
+            mSections = Collections.unmodifiableSet(new HashSet<>(sections));
+            mAuthor = author;
+        }
+
+        //Returns the order-by of the feed, like ORDER_NEWEST
+        public String getOrderBy() {
+            return mOrderBy;
+        }
+
+        //Returns whether the feed is ordered by date, which can be done without the server
+        public boolean isOrderedByDate() {
+            return ORDER_NEWEST.equals(mOrderBy) || ORDER_OLDEST.equals(mOrderBy);
+        }
+
+        //Returns whether the newest articles come first, which is every order but the oldest
+        public boolean isNewestFirst() {
+            return !ORDER_OLDEST.equals(mOrderBy);
+        }
+
+        //Returns the ids of the sections that are shown
+        public Set<String> getSections() {
+            return mSections;
+        }
+
+        //Returns the author whose articles are shown, or null for every author
+        public String getAuthor() {
+            return mAuthor;
+        }
+
+        //Returns a Spec that only shows the articles of the author, or of every author for null
+        public Spec withAuthor(String author) {
+            return new Spec(mOrderBy, mSections, author);
+        }
+
+        /*
+         * Returns whether everything this spec shows is also shown by the other one, in the
+         * same order, so it can be found by filtering what the other one shows
+         */
+        boolean narrows(Spec other) {
+            return mOrderBy.equals(other.mOrderBy) && other.mSections.containsAll(mSections)
+                    && (other.mAuthor == null || other.mAuthor.equals(mAuthor));
+        }
+
+        //Returns whether the article belongs in the feed of this spec
+        boolean matches(NewsArticle article) {
+            //Articles that were stored before the section id was kept can only come from the
+            //sections they were loaded for
+            String sectionId = article.getSectionId();
+            if (!sectionId.isEmpty() && !mSections.contains(sectionId)) {
+                return false;
+            }
+            if (mAuthor == null) {
+                return true;
+            }
+            for (String contributor : article.getContributors()) {
+                if (mAuthor.equalsIgnoreCase(contributor)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    //Orders the articles from newest to oldest
+    private static final Comparator<NewsArticle> NEWEST_FIRST = new Comparator<NewsArticle>() {
+        @Override
+        public int compare(NewsArticle a, NewsArticle b) {
+            long first = a.getPublishedMillis();
+            long second = b.getPublishedMillis();
+            return first > second ? -1 : (first < second ? 1 : 0);
+        }
+    };
+
+    //Orders the articles from oldest to newest
+    private static final Comparator<NewsArticle> OLDEST_FIRST = Collections.reverseOrder(NEWEST_FIRST);
+
+    //What the view shows, null until the first load
+    private Spec mSpec;
+
+    //The articles that are shown, in the order they are shown
+    private List<NewsArticle> mView = new ArrayList<>();
+
+    //Every loaded article of the loaded sections, in the order they were loaded
+    private final List<NewsArticle> mLoaded = new ArrayList<>();
+
+    //Sections that are loaded up to the same page
+    private final Set<String> mLoadedSections = new HashSet<>();
+
+    //Order-by the pages were loaded with
+    private String mLoadedOrderBy;
+
+    //Page of the loaded sections that is loaded next
+    private int mNextPage = 1;
+
+    //Whether every page of the loaded sections is loaded
+    private boolean mComplete;
+
+    //Number of articles per page of the queries
+    private final int mPageSize;
+
+    //Constructs a new LocalFeedView for queries with pages of the given size
+    public LocalFeedView(int pageSize) {
+        mPageSize = pageSize;
+    }
+
+    /*
+     * Start over for a feed that is loaded from the network with the spec
+     */
+    public void reset(Spec spec) {
+        mSpec = spec;
+        mView = new ArrayList<>();
+        mLoaded.clear();
+        mLoadedSections.clear();
+        mLoadedSections.addAll(spec.getSections());
+        mLoadedOrderBy = spec.getOrderBy();
+        mNextPage = 1;
+        mComplete = false;
+    }
+
+    /*
+     * Add the articles of a page that was loaded for the current spec and return what is shown
+     * now. The first page replaces everything that was loaded before. nextPage and complete
+     * describe the loaded sections after this page.
+     */
+    public List<NewsArticle> onPageLoaded(List<NewsArticle> articles, boolean firstPage, int nextPage,
+                                          boolean complete) {
+        if (firstPage) {
+            mLoaded.clear();
+        }
+
+        //Sections that are not shown were not loaded any further, so they are dropped
+        if (mLoadedSections.retainAll(mSpec.getSections())) {
+            for (Iterator<NewsArticle> iterator = mLoaded.iterator(); iterator.hasNext(); ) {
+                String sectionId = iterator.next().getSectionId();
+                if (!sectionId.isEmpty() && !mLoadedSections.contains(sectionId)) {
+                    iterator.remove();
+                }
+            }
+        }
+        mLoadedOrderBy = mSpec.getOrderBy();
+        mLoaded.addAll(articles);
+        mNextPage = nextPage;
+        mComplete = complete;
+        mView = select(mLoaded, mSpec, false);
+        return mView;
+    }
+
+    /*
+     * Returns whether the loaded articles hold everything the spec shows up to the next page:
+     * every section it shows was loaded, and in the same order unless the whole feed is loaded
+     * and the spec orders it by date
+     */
+    public boolean covers(Spec spec) {
+        return mSpec != null && mLoadedSections.containsAll(spec.getSections())
+                && (spec.getOrderBy().equals(mLoadedOrderBy) || (mComplete && spec.isOrderedByDate()));
+    }
+
+    /*
+     * Show the spec from the loaded articles and return what is shown, or null when they do not
+     * cover it. A spec that narrows the current one only filters what is shown.
+     */
+    public List<NewsArticle> apply(Spec spec) {
+        if (!covers(spec)) {
+            return null;
+        }
+        if (spec.narrows(mSpec)) {
+            mView = select(mView, spec, false);
+        } else {
+            mView = select(mLoaded, spec, !spec.getOrderBy().equals(mLoadedOrderBy));
+        }
+        mSpec = spec;
+        return mView;
+    }
+
+    //Returns what the view shows, or null before the first load
+    public Spec getSpec() {
+        return mSpec;
+    }
+
+    //Returns the articles that are shown
+    public List<NewsArticle> getArticles() {
+        return mView;
+    }
+
+    /*
+     * Returns the page that is loaded next for the spec that is shown. For fewer sections than
+     * were loaded it is the page that holds their next article, which may start with articles
+     * that are already loaded.
+     */
+    public int getNextPage() {
+        if (mSpec == null || mSpec.getSections().equals(mLoadedSections)) {
+            return mNextPage;
+        }
+        Spec sections = mSpec.withAuthor(null);
+        int loaded = 0;
+        for (NewsArticle article : mLoaded) {
+            if (sections.matches(article)) {
+                loaded++;
+            }
+        }
+        return loaded / mPageSize + 1;
+    }
+
+    //Returns whether every page of the spec that is shown is loaded
+    public boolean isComplete() {
+        return mComplete;
+    }
+
+    /*
+     * Returns the articles of the source that match the spec, in the order of the source unless
+     * they have to be sorted into the order of the spec
+     */
+    private static List<NewsArticle> select(List<NewsArticle> source, Spec spec, boolean sort) {
+        List<NewsArticle> selected = new ArrayList<>(source.size());
+        for (NewsArticle article : source) {
+            if (spec.matches(article)) {
+                selected.add(article);
+            }
+        }
+        if (sort) {
+            Collections.sort(selected, spec.isNewestFirst() ? NEWEST_FIRST : OLDEST_FIRST);
+        }
+        return selected;
+    }
+}
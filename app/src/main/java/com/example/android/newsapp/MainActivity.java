@@ -1,37 +1,38 @@
 package com.example.android.newsapp;
 
-import android.app.LoaderManager;
 import android.content.Intent;
-import android.content.Loader;
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
-import android.net.Uri;
-import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.DividerItemDecoration;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
 import android.os.Bundle;
-import android.app.LoaderManager.LoaderCallbacks;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
 import android.widget.TextView;
+import android.widget.Toast;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
-public class MainActivity extends AppCompatActivity
-        implements LoaderCallbacks<List<NewsArticle>> {
+public class MainActivity extends AppCompatActivity {
 
     //Variable for the log messages
     private static final String LOG_TAG = MainActivity.class.getName();
 
-    //URL for the news article data from the Guardian dataset
-    private static final String GUARDIAN_REQUEST_URL = "https://content.guardianapis.com/search";
-    // Constant value for the newsArticle loader ID
-    private static final int NEWS_LOADER_ID = 1;
+    //Largest number of articles a search shows
+    private static final int SEARCH_LIMIT = 100;
+
+    //Name of the file in the files directory the top of the feed is kept in for the next launch
+    private static final String SNAPSHOT_FILE = "feed_snapshot";
+
+    //Number of articles in the snapshot, enough to fill the screen a few times
+    private static final int SNAPSHOT_ARTICLES = 30;
 
     //Adapter for the list of news articles
     private NewsAdapter mAdapter;
@@ -39,40 +40,134 @@ public class MainActivity extends AppCompatActivity
     //TextView that is displayed when the list is empty
     private TextView mEmptyStateTextView;
 
+    //Whether there was a network connection when the activity was created
+    private boolean mOnline;
+
+    //What is fetched on the link the activity was created on. It does not change while the
+    //activity lives, so every page of the feed has the same size.
+    private FetchPolicy.Profile mProfile;
+
+    //Finds the rows that are on the screen
+    private LinearLayoutManager mLayoutManager;
+
+    //Load that stores the text of the articles on the screen, or null
+    private LoadEngine.Load<Integer> mBodyPrefetch;
+
+    //The articles of the feed, which are shown whenever the user is not searching
+    private List<NewsArticle> mFeedArticles = new ArrayList<>();
+
+    //Text of the empty state of the feed
+    private int mFeedEmptyText = R.string.no_news_articles;
+
+    //What the user is searching for, or null when the feed is shown
+    private String mSearchQuery;
+
+    //Load of the first page of the feed, which is kept across configuration changes
+    private LoadEngine.Load<NewsResult> mFeedLoad;
+
+    //Load of the page after the last one in the list, or null
+    private LoadEngine.Load<NewsResult> mPageLoad;
+
+    //Page the load of the next page asks for
+    private int mLoadingPage;
+
+    //The top of the feed of the last visit, which is shown until the first load delivers
+    private FeedSnapshot mSnapshot;
+
+    //Key of the settings the feed of this activity shows
+    private String mFeedKey;
+
+    //What the feed shows with the settings
+    private LocalFeedView.Spec mFeedSpec;
+
+    //What the load of the first page was started for, which differs from what the feed shows
+    //after the settings were changed without loading the feed again
+    private LocalFeedView.Spec mLoadSpec;
+
+    //The loaded articles, which are filtered and sorted again when the settings change
+    private LocalFeedView mLocalFeed;
+
+    //Whether the list shows the snapshot rather than a result of a load
+    private boolean mShowingSnapshot;
+
+    //Time the activity was created, until the list first shows articles, or 0 after that
+    private long mFirstContentStart;
+
+    //Receives the first page of the feed
+    private final LoadEngine.Receiver<NewsResult> mFeedReceiver = new LoadEngine.Receiver<NewsResult>() {
+        @Override
+        public void onLoadResult(LoadEngine.Load<NewsResult> load, NewsResult result) {
+            onLoadFinished(1, result);
+        }
+    };
+
+    //Receives the following pages of the feed
+    private final LoadEngine.Receiver<NewsResult> mPageReceiver = new LoadEngine.Receiver<NewsResult>() {
+        @Override
+        public void onLoadResult(LoadEngine.Load<NewsResult> load, NewsResult result) {
+            onLoadFinished(mLoadingPage, result);
+        }
+    };
+
+    //Keeps track of the pages that were loaded into the adapter
+    private NewsPaginator mPaginator;
+
+    //Shows the empty state TextView only when the list has no items
+    private final Runnable mUpdateEmptyState = new Runnable() {
+        @Override
+        public void run() {
+            mEmptyStateTextView.setVisibility(mAdapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        //Find a reference to the ListView in the layout
-        ListView newsListView = (ListView) findViewById(R.id.list);
+        //Time every stage of loading the feed in debug builds, release builds skip the measuring
+        PipelineMetrics.getInstance().setEnabled(BuildConfig.DEBUG);
+        mFirstContentStart = PipelineMetrics.getInstance().startTimer();
+
+        //Find a reference to the RecyclerView in the layout
+        RecyclerView newsRecyclerView = (RecyclerView) findViewById(R.id.list);
+        mLayoutManager = new LinearLayoutManager(this);
+        newsRecyclerView.setLayoutManager(mLayoutManager);
+        newsRecyclerView.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
 
         //Set a TextView for the empty state of the app
         mEmptyStateTextView = (TextView) findViewById(R.id.empty_view);
-        newsListView.setEmptyView(mEmptyStateTextView);
-
-        //Create a new adapter that takes an empty list of news articles as input
-        mAdapter = new NewsAdapter(this, new ArrayList<NewsArticle>());
 
-        //Set the adapter on the ListView, so the list can be populated in the user interface
-        newsListView.setAdapter(mAdapter);
-
-        //Set an item click listener on the ListView, which sends a webintent to open the website with the selected article
-        newsListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+        //Create a new adapter with a click listener, which opens the selected article in the reader
+        mAdapter = new NewsAdapter(ThumbnailLoader.getInstance(this), new NewsAdapter.OnArticleClickListener() {
             @Override
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long l) {
-                //Find the current news article that was clicked on
-                NewsArticle currentNewsArticle = mAdapter.getItem(position);
-
-                //Convert the String URL into a URI object
-                Uri newsArticleUri = Uri.parse(currentNewsArticle.getWebsite());
+            public void onArticleClick(NewsArticle currentNewsArticle) {
+                startActivity(ReaderActivity.newIntent(MainActivity.this, currentNewsArticle));
+            }
+        });
 
-                //Create a new intent to view the news article URI
-                Intent websiteIntent = new Intent(Intent.ACTION_VIEW, newsArticleUri);
+        //Set the adapter on the RecyclerView, so the list can be populated in the user interface
+        newsRecyclerView.setAdapter(mAdapter);
 
-                //Send the intent to launch a new activity
-                startActivity(websiteIntent);
+        //Load the thumbnails of the next rows, and fetch the next page when the user scrolls close
+        //to the end of the list
+        newsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                int lastVisibleRow = mLayoutManager.findLastVisibleItemPosition() + 1;
+                mAdapter.prefetchThumbnails(lastVisibleRow, mProfile.getThumbnailPrefetchRows());
+                if (mSearchQuery == null && !mShowingSnapshot
+                        && mPaginator.shouldLoadMore(lastVisibleRow, mAdapter.getItemCount())) {
+                    loadNextPage();
+                }
+            }
 
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                //Store the articles the user stopped at, they are the ones that are read next
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    prefetchBodies();
+                }
             }
         });
 
@@ -82,85 +177,393 @@ public class MainActivity extends AppCompatActivity
         //Get details on the currently active default data network
         NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
 
-        //If there is a connection, fetch data
-        if (networkInfo != null && networkInfo.isConnected()) {
+        //Without a connection the loader only shows the articles that were stored before
+        mOnline = networkInfo != null && networkInfo.isConnected();
+
+        //Fetch as much as the link allows, metered and slow links get smaller payloads
+        FetchPolicy fetchPolicy = FetchPolicy.getInstance(this);
+        fetchPolicy.onLinkChanged(mOnline, mOnline && !connMgr.isActiveNetworkMetered());
+        mProfile = fetchPolicy.getProfile();
+        FeedSettings feedSettings = new FeedSettings(this);
+        feedSettings.setFeedProfile(mProfile);
+        mPaginator = new NewsPaginator(mProfile.getPageSize(), mProfile.getPagePrefetchRows());
+        mLocalFeed = new LocalFeedView(mProfile.getPageSize());
+        mAdapter.setProfile(mProfile);
+
+        mSnapshot = new FeedSnapshot(new File(getFilesDir(), SNAPSHOT_FILE), SNAPSHOT_ARTICLES);
+        mFeedKey = feedSettings.getFeedKey();
+        mFeedSpec = feedSettings.getFeedSpec();
+
+        //Pick up the load of the activity before a configuration change, which delivers its
+        //latest result right away. Otherwise show the feed of the last visit while a new load runs.
+        RetainedFeed retainedFeed = (RetainedFeed) getLastCustomNonConfigurationInstance();
+        if (retainedFeed != null) {
+            mFeedLoad = retainedFeed.mLoad;
+            mLoadSpec = retainedFeed.mSpec;
+        } else {
+            showSnapshot();
+            mLoadSpec = mFeedSpec;
+            mFeedLoad = LoadEngine.getInstance().start(LoadEngine.Priority.VISIBLE, createLoader(1));
+        }
 
-            //Get reference to the LoaderManager in order to interact with loader
-            LoaderManager loaderManager = getLoaderManager();
+        //Keep the followed sections up to date in the background, so the next visit starts
+        //with recent articles
+        SyncScheduler.schedule(this);
+    }
 
-            //Initialize new loader
-            loaderManager.initLoader(NEWS_LOADER_ID, null, this);
-        } else {
-            // Otherwise display that there is no internet connection
-            // Hide loading indicator so error message will be visible
-            View loadingIndicator = findViewById(R.id.loading_indicator);
-            loadingIndicator.setVisibility(View.GONE);
+    /*
+     * Show the top of the feed of the last visit. The snapshot is small and read in one go, so
+     * this happens on the main thread before the layout is first drawn.
+     */
+    private void showSnapshot() {
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        long snapshotStart = metrics.startTimer();
+        List<NewsArticle> snapshot = mSnapshot.read(mFeedKey);
+        metrics.stopTimer(PipelineMetrics.Stage.SNAPSHOT, snapshotStart);
+        if (snapshot.isEmpty()) {
+            return;
+        }
+
+        mShowingSnapshot = true;
+        mFeedArticles = snapshot;
+        findViewById(R.id.loading_indicator).setVisibility(View.GONE);
+        mAdapter.submitList(snapshot, new Runnable() {
+            @Override
+            public void run() {
+                mUpdateEmptyState.run();
+                onFirstContent();
+            }
+        });
+    }
+
+    /*
+     * Record how long it took from creating the activity until the list showed articles, the
+     * first time it does
+     */
+    private void onFirstContent() {
+        if (mFirstContentStart == 0 || mAdapter.getItemCount() == 0) {
+            return;
+        }
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        metrics.stopTimer(PipelineMetrics.Stage.FIRST_CONTENT, mFirstContentStart);
+        mFirstContentStart = 0;
+    }
 
-            // Update empty state with no connection error message
-            mEmptyStateTextView.setText(R.string.no_internet_connection);
+    @Override
+    protected void onStart() {
+        super.onStart();
+
+        //Coming back from the settings, show the feed they ask for
+        FeedSettings feedSettings = new FeedSettings(this);
+        String feedKey = feedSettings.getFeedKey();
+        if (!feedKey.equals(mFeedKey)) {
+            mFeedKey = feedKey;
+            onFeedSettingsChanged(feedSettings.getFeedSpec());
+        }
+
+        //Results of the loads are only shown while the activity is started, the latest one is
+        //delivered when it starts again
+        mFeedLoad.attach(mFeedReceiver);
+        if (mPageLoad != null) {
+            mPageLoad.attach(mPageReceiver);
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        mFeedLoad.detach();
+        if (mPageLoad != null) {
+            mPageLoad.detach();
         }
     }
 
     @Override
-    // onCreateLoader instantiates and returns a new Loader for the given ID
-    public Loader<List<NewsArticle>> onCreateLoader(int i, Bundle bundle) {
+    public Object onRetainCustomNonConfigurationInstance() {
+        //The new activity takes over the load of the first page
+        return new RetainedFeed(mFeedLoad, mLoadSpec);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
 
-        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
+        //Break off the requests nobody is going to see, the next page is loaded again on scrolling
+        if (!isChangingConfigurations()) {
+            mFeedLoad.cancel();
+        }
+        if (mPageLoad != null) {
+            mPageLoad.cancel();
+        }
+        if (mBodyPrefetch != null) {
+            mBodyPrefetch.cancel();
+        }
+    }
 
-        //Finds preferences for the Order By preference
-        String orderBy = sharedPrefs.getString(
-                getString(R.string.settings_order_by_key),
-                getString(R.string.settings_order_by_default)
-        );
+    /*
+     * Store the text of the articles from the first visible row on, so they open right away in
+     * the reader and can be read offline. Only done when the profile of the link allows it.
+     */
+    private void prefetchBodies() {
+        if (mProfile.getBodyPrefetchArticles() == 0 || mSearchQuery != null || mShowingSnapshot) {
+            return;
+        }
+        int first = Math.max(mLayoutManager.findFirstVisibleItemPosition(), 0);
+        int end = Math.min(first + mProfile.getBodyPrefetchArticles(), mFeedArticles.size());
+        if (first >= end) {
+            return;
+        }
 
-        //Break apart the URI string that's passed into its parameter
-        Uri baseUri = Uri.parse(GUARDIAN_REQUEST_URL);
+        LoadEngine.Load<Integer> prefetch =
+                ArticleBodyLoader.getInstance(this).prefetch(mFeedArticles.subList(first, end));
+        if (prefetch != null) {
+            mBodyPrefetch = prefetch;
+        }
+    }
 
-        // buildUpon prepares the baseUri that was just parsed so query parameters can be added to it
-        Uri.Builder uriBuilder = baseUri.buildUpon();
+    @Override
+    protected void onPause() {
+        super.onPause();
 
-        // Append query parameter and its value
-        uriBuilder.appendQueryParameter("section", "business");
-        uriBuilder.appendQueryParameter("from-date", "2017-01-01");
-        uriBuilder.appendQueryParameter("order-date", "published");
-        uriBuilder.appendQueryParameter("show-tags", "contributor");
-        uriBuilder.appendQueryParameter("order-by", orderBy);
-        uriBuilder.appendQueryParameter("api-key", "ec9ac2e5-63b6-4320-9e51-b3a9c0ba63f7");
-        String urlFinal = uriBuilder.toString();
-        return new NewsLoader(this, urlFinal);
+        //Keep the top of the feed for the next launch. A snapshot that is still on the screen
+        //was not replaced by a load, so it is already stored.
+        if (!mShowingSnapshot) {
+            mSnapshot.write(mFeedKey, mFeedArticles);
+        }
     }
 
     @Override
-    public void onLoadFinished(Loader<List<NewsArticle>> loader, List<NewsArticle> news) {
+    protected void onResume() {
+        super.onResume();
+
+        //Tell the user how many new articles the background sync found since the last visit
+        FeedSettings feedSettings = new FeedSettings(this);
+        int newArticles = feedSettings.getNewArticleCount();
+        if (newArticles > 0) {
+            Toast.makeText(this, getResources().getQuantityString(R.plurals.new_articles, newArticles, newArticles),
+                    Toast.LENGTH_SHORT).show();
+            feedSettings.clearNewArticleCount();
+        }
+    }
+
+    /*
+     * Show the feed for the changed settings. When the loaded articles hold what the feed shows
+     * now they are only filtered and sorted again, otherwise the feed is loaded from the network.
+     */
+    private void onFeedSettingsChanged(LocalFeedView.Spec spec) {
+        mFeedSpec = spec;
+        if (mPageLoad != null) {
+            mPageLoad.cancel();
+            mPageLoad = null;
+        }
+
+        //A snapshot or a load that is still running is not what the loaded articles will be
+        List<NewsArticle> articles = null;
+        if (!mShowingSnapshot && mFeedLoad.isFinished()) {
+            articles = mLocalFeed.apply(spec);
+        }
+        if (articles == null) {
+            reloadFeed();
+            return;
+        }
+        showFeed(articles);
+    }
+
+    /*
+     * Throw away the articles of the feed and load its first page again for the settings
+     */
+    private void reloadFeed() {
+        mFeedLoad.cancel();
+        if (mPageLoad != null) {
+            mPageLoad.cancel();
+            mPageLoad = null;
+        }
+        mShowingSnapshot = false;
+        mFeedArticles = new ArrayList<>();
+        //No page is loaded until the first one arrives
+        mPaginator.restore(mFeedArticles, 1, true);
+        if (mSearchQuery == null) {
+            mEmptyStateTextView.setVisibility(View.GONE);
+            mAdapter.submitList(mFeedArticles, null);
+        }
+        findViewById(R.id.loading_indicator).setVisibility(View.VISIBLE);
+
+        mLoadSpec = mFeedSpec;
+        mFeedLoad = LoadEngine.getInstance().start(LoadEngine.Priority.VISIBLE, createLoader(1));
+        mFeedLoad.attach(mFeedReceiver);
+    }
+
+    /*
+     * Show articles the loaded ones were filtered and sorted into, and continue paging after them
+     */
+    private void showFeed(List<NewsArticle> articles) {
+        mPaginator.restore(articles, mLocalFeed.getNextPage(), mLocalFeed.isComplete());
+        mFeedArticles = articles;
+        if (mSearchQuery != null) {
+            return;
+        }
+        mEmptyStateTextView.setText(mFeedEmptyText);
+        mAdapter.submitList(articles, new Runnable() {
+            @Override
+            public void run() {
+                mUpdateEmptyState.run();
+                mLayoutManager.scrollToPosition(0);
+            }
+        });
+    }
+
+    /*
+     * Start loading the page after the last one that is in the list
+     */
+    private void loadNextPage() {
+        mPaginator.onLoadStarted();
+        if (mPageLoad != null) {
+            mPageLoad.cancel();
+        }
+        //The page is not on the screen yet, so it waits for loads that are
+        mLoadingPage = mPaginator.getNextPage();
+        mPageLoad = LoadEngine.getInstance().start(LoadEngine.Priority.PREFETCH, createLoader(mLoadingPage));
+        mPageLoad.attach(mPageReceiver);
+    }
+
+    /*
+     * Returns a new NewsLoader for the page of the feed
+     */
+    private NewsLoader createLoader(int page) {
+        FeedSettings feedSettings = new FeedSettings(this);
+
+        //Build one query that asks for every section, the server merges them in the order by.
+        //Only a list of sections too long for one query is asked for section by section.
+        List<String> urls = feedSettings.buildQueryUrls(page, mProfile);
+        return new NewsLoader(this, urls, page, feedSettings.isNewestFirst(), mOnline);
+    }
+
+    /*
+     * Show a result of the load of the page
+     */
+    private void onLoadFinished(int page, NewsResult result) {
         // Hide loading indicator because the data has been loaded
         View loadingIndicator = findViewById(R.id.loading_indicator);
         loadingIndicator.setVisibility(View.GONE);
 
-        //Set empty state text to display "No news articles found"
-        mEmptyStateTextView.setText(R.string.no_news_articles);
+        //Set the empty state text to tell an empty feed apart from a failure to load it
+        if (result.getStatus() == NewsResult.Status.EMPTY) {
+            mFeedEmptyText = R.string.no_news_articles;
+        } else if (!mOnline) {
+            mFeedEmptyText = R.string.no_internet_connection;
+        } else {
+            mFeedEmptyText = R.string.error_loading_news;
+        }
+
+        //Only a page that was loaded tells where the feed ends
+        boolean loaded = result.getStatus() == NewsResult.Status.SUCCESS
+                || result.getStatus() == NewsResult.Status.EMPTY;
+        List<NewsArticle> articles;
+        if (page == 1) {
+            //Keep showing the snapshot while the load has nothing to show, and when it failed
+            if (mShowingSnapshot && result.getArticles().isEmpty()
+                    && result.getStatus() != NewsResult.Status.EMPTY) {
+                if (result.getStatus() == NewsResult.Status.ERROR && mFeedLoad.isFinished()) {
+                    Toast.makeText(this, R.string.showing_cached_news, Toast.LENGTH_SHORT).show();
+                }
+                return;
+            }
+            mShowingSnapshot = false;
 
-        // Clear the adapter of previous earthquake data
-        mAdapter.clear();
+            //Let the user know the articles are stored ones because the feed could not be refreshed
+            if (result.getStatus() == NewsResult.Status.STALE) {
+                Toast.makeText(this, R.string.showing_cached_news, Toast.LENGTH_SHORT).show();
+            }
 
-        // If there is a valid list of {@link Earthquake}s, then add them to the adapter's
-        // data set. This will trigger the ListView to update.
-        if (news != null && !news.isEmpty()) {
-            mAdapter.addAll(news);
+            // The first page starts the list over, and is shown for the settings that were
+            // changed while it was loaded, or it is loaded again for them
+            mLocalFeed.reset(mLoadSpec);
+            mLocalFeed.onPageLoaded(mPaginator.reset(result.getArticles(), loaded), true,
+                    mPaginator.getNextPage(), mPaginator.isEndReached());
+            articles = mLocalFeed.apply(mFeedSpec);
+            if (articles == null) {
+                reloadFeed();
+                return;
+            }
+            mPaginator.restore(articles, mLocalFeed.getNextPage(), mLocalFeed.isComplete());
+        } else {
+            // Following pages are added to the rows that are already shown. A page that failed
+            // adds its stored articles and is asked for again, it does not end the feed.
+            List<NewsArticle> added = loaded ? mPaginator.onPageLoaded(page, result.getArticles())
+                    : mPaginator.onPageFailed(page, result.getArticles());
+            articles = mLocalFeed.onPageLoaded(added, false, mPaginator.getNextPage(), mPaginator.isEndReached());
         }
-    }
+        mFeedArticles = articles;
 
-    @Override
-    public void onLoaderReset(Loader<List<NewsArticle>> loader) {
-        // Loader reset, to clear existing data.
-        mAdapter.clear();
+        //The feed is shown again when the search is closed
+        if (mSearchQuery != null) {
+            return;
+        }
+        mEmptyStateTextView.setText(mFeedEmptyText);
+
+        // Only the rows that changed are updated, and the empty state is shown when there are none
+        final PipelineMetrics metrics = PipelineMetrics.getInstance();
+        final long bindStart = metrics.startTimer();
+        mAdapter.submitList(articles, new Runnable() {
+            @Override
+            public void run() {
+                mUpdateEmptyState.run();
+                metrics.stopTimer(PipelineMetrics.Stage.BIND, bindStart);
+                onFirstContent();
+                prefetchBodies();
+            }
+        });
     }
 
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main, menu);
+
+        //Search the articles that were loaded before on the device, while the user types
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                showSearchResults(query);
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String query) {
+                showSearchResults(query);
+                return true;
+            }
+        });
+        searchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                //Go back to the feed
+                mSearchQuery = null;
+                mEmptyStateTextView.setText(mFeedEmptyText);
+                mAdapter.submitList(mFeedArticles, mUpdateEmptyState);
+                return true;
+            }
+        });
         return true;
     }
 
+    /*
+     * Show the stored articles that match the query instead of the feed. The index answers in a
+     * few milliseconds, so this runs on every keystroke without going to the network.
+     */
+    private void showSearchResults(String query) {
+        mSearchQuery = query;
+        mEmptyStateTextView.setText(R.string.no_search_results);
+        mAdapter.submitList(ArticleSearchIndex.getInstance().search(query, SEARCH_LIMIT), mUpdateEmptyState);
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         int id = item.getItemId();
@@ -171,8 +574,18 @@ public class MainActivity extends AppCompatActivity
         }
         return super.onOptionsItemSelected(item);
     }
-}
-
 
+    /*
+     * What the activity hands over to the new one after a configuration change
+     */
+    private static class RetainedFeed {
 
+        private final LoadEngine.Load<NewsResult> mLoad;
+        private final LocalFeedView.Spec mSpec;
 
+        RetainedFeed(LoadEngine.Load<NewsResult> load, LocalFeedView.Spec spec) {
+            mLoad = load;
+            mSpec = spec;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.android.newsapp;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/*
+ * HttpTransport that wraps another transport and records the time until the response headers
+ * arrived and the response size of every request in PipelineMetrics. The throughput of every
+ * body is also reported to the FetchPolicy, if there is one.
+ */
+public class MeteredTransport implements HttpTransport {
+
+    private final HttpTransport mTransport;
+    private final PipelineMetrics mMetrics;
+    private final FetchPolicy mFetchPolicy;
+
+    //Constructs a new MeteredTransport
+    public MeteredTransport(HttpTransport transport, PipelineMetrics metrics) {
+        this(transport, metrics, null);
+    }
+
+    //Constructs a new MeteredTransport that also measures the throughput for the policy
+    public MeteredTransport(HttpTransport transport, PipelineMetrics metrics, FetchPolicy fetchPolicy) {
+        mTransport = transport;
+        mMetrics = metrics;
+        mFetchPolicy = fetchPolicy;
+    }
+
+    @Override
+    public HttpResponse execute(String url, Map<String, String> headers, CancelSignal signal) throws IOException {
+        long start = mMetrics.startTimer();
+        long requestStart = System.nanoTime();
+        final HttpResponse response;
+        try {
+            response = mTransport.execute(url, headers, signal);
+        } catch (IOException e) {
+            mMetrics.increment(PipelineMetrics.Counter.FAILURES, 1);
+            throw e;
+        }
+        mMetrics.stopTimer(PipelineMetrics.Stage.FIRST_BYTE, start);
+        mMetrics.increment(PipelineMetrics.Counter.REQUESTS, 1);
+
+        InputStream body = response.getBody() == null ? null : new CountingInputStream(response.getBody(), requestStart);
+        return new HttpResponse(response.getCode(), null, body, response, new Closeable() {
+            @Override
+            public void close() throws IOException {
+                response.abort();
+            }
+        }) {
+            @Override
+            public String getHeader(String name) {
+                return response.getHeader(name);
+            }
+        };
+    }
+
+    /*
+     * Counts the bytes that are read from the body and adds them to the metrics
+     */
+    private class CountingInputStream extends FilterInputStream {
+
+        //Time the request was sent
+        private final long mRequestStart;
+
+        //Bytes read so far, and whether they were reported
+        private long mBytes;
+        private boolean mReported;
+
+        CountingInputStream(InputStream in, long requestStart) {
+            super(in);
+            mRequestStart = requestStart;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value != -1) {
+                count(1);
+            } else {
+                report();
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int read = super.read(buffer, offset, count);
+            if (read > 0) {
+                count(read);
+            } else if (read == -1) {
+                report();
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            long skipped = super.skip(count);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long bytes) {
+            mBytes += bytes;
+            mMetrics.increment(PipelineMetrics.Counter.BYTES_READ, bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            report();
+            super.close();
+        }
+
+        //Report the bytes once, when the body ends or is closed, as the parser stops before the end
+        private void report() {
+            if (mFetchPolicy != null && !mReported) {
+                mReported = true;
+                mFetchPolicy.recordTransfer(mBytes, System.nanoTime() - mRequestStart);
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Loads the queries of several sections at the same time and merges them into one feed.
+ * Requests run on a bounded pool, at most a fixed number of them go to the same host at once,
+ * and sections that are not loaded before the deadline are left out so one slow section does
+ * not hold up the whole feed.
+ */
+public class MultiSectionFetcher {
+
+    //Tag for the log messages
+    private static final String LOG_TAG = MultiSectionFetcher.class.getSimpleName();
+
+    //Number of threads of the shared pool and the number of requests per host
+    private static final int POOL_SIZE = 6;
+    private static final int REQUESTS_PER_HOST = 4;
+
+    //Time the whole merged feed may take
+    private static final long DEADLINE_MILLIS = 8000;
+
+    //Sorts articles from newest to oldest on their publication date
+    private static final Comparator<NewsArticle> NEWEST_FIRST = new Comparator<NewsArticle>() {
+        @Override
+        public int compare(NewsArticle first, NewsArticle second) {
+            long difference = second.getPublishedMillis() - first.getPublishedMillis();
+            return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+        }
+    };
+
+    //The one instance that is shared by all loaders of the app
+    private static MultiSectionFetcher sInstance;
+
+    private final ExecutorService mExecutor;
+    private final QueryCache.Fetcher mFetcher;
+    private final int mRequestsPerHost;
+    private final long mDeadlineMillis;
+
+    //Limits the number of requests per host, by host name
+    private final Map<String, Semaphore> mHostPermits = new HashMap<>();
+
+    //Constructs a new MultiSectionFetcher
+    public MultiSectionFetcher(ExecutorService executor, QueryCache.Fetcher fetcher,
+                               int requestsPerHost, long deadlineMillis) {
+        mExecutor = executor;
+        mFetcher = fetcher;
+        mRequestsPerHost = requestsPerHost;
+        mDeadlineMillis = deadlineMillis;
+    }
+
+    /*
+     * Returns the MultiSectionFetcher that is shared by the whole app. Every section is loaded
+     * through the QueryCache and the NewsRepository, so sections are cached and coalesced as usual.
+     */
+    public static synchronized MultiSectionFetcher getInstance(final NewsRepository repository) {
+        if (sInstance == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE,
+                    30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+            executor.allowCoreThreadTimeOut(true);
+
+            sInstance = new MultiSectionFetcher(executor, new QueryCache.Fetcher() {
+                @Override
+                public NewsResult fetch(String url) {
+                    return QueryCache.getInstance().load(url, new QueryCache.Fetcher() {
+                        @Override
+                        public NewsResult fetch(String url) {
+                            return repository.fetch(url);
+                        }
+                    });
+                }
+            }, REQUESTS_PER_HOST, DEADLINE_MILLIS);
+        }
+        return sInstance;
+    }
+
+    /*
+     * Load all query URLs concurrently and return the merged feed. The feed counts as fresh when
+     * at least one section was loaded from the server before the deadline. Otherwise it holds the
+     * stored articles of the sections that had any.
+     */
+    public NewsResult fetchAll(List<String> urls, boolean newestFirst) {
+        return fetchAll(urls, newestFirst, mFetcher);
+    }
+
+    /*
+     * Load all query URLs concurrently with the given fetcher and return the merged feed. When
+     * the calling thread is interrupted, the sections that are still loading are cancelled.
+     */
+    public NewsResult fetchAll(List<String> urls, boolean newestFirst, final QueryCache.Fetcher fetcher) {
+        List<Callable<NewsResult>> tasks = new ArrayList<>(urls.size());
+        for (final String url : urls) {
+            final Semaphore permits = permitsFor(url);
+            tasks.add(new Callable<NewsResult>() {
+                @Override
+                public NewsResult call() throws InterruptedException {
+                    permits.acquire();
+                    try {
+                        return fetcher.fetch(url);
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        }
+
+        //invokeAll cancels the tasks that did not finish before the deadline
+        List<Future<NewsResult>> futures;
+        try {
+            futures = mExecutor.invokeAll(tasks, mDeadlineMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return NewsResult.failure(0, null);
+        }
+
+        List<List<NewsArticle>> sections = new ArrayList<>(futures.size());
+        boolean anyFresh = false;
+        int errorCode = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                NewsResult section = futures.get(i).get();
+                sections.add(section.getArticles());
+                anyFresh |= section.isFresh();
+                if (!section.isFresh()) {
+                    errorCode = section.getErrorCode();
+                }
+            } catch (CancellationException e) {
+                Log.w(LOG_TAG, "Section missed the deadline: " + urls.get(i));
+            } catch (ExecutionException e) {
+                Log.e(LOG_TAG, "Problem loading section " + urls.get(i), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        List<NewsArticle> merged = merge(sections, newestFirst);
+        return anyFresh ? NewsResult.success(merged) : NewsResult.failure(errorCode, merged);
+    }
+
+    /*
+     * Merge the articles of several sections on publication date. Articles that appear in more
+     * than one section are kept only once.
+     */
+    public static List<NewsArticle> merge(List<List<NewsArticle>> sections, boolean newestFirst) {
+        Map<String, NewsArticle> unique = new LinkedHashMap<>();
+        for (List<NewsArticle> section : sections) {
+            for (NewsArticle article : section) {
+                if (!unique.containsKey(article.getWebsite())) {
+                    unique.put(article.getWebsite(), article);
+                }
+            }
+        }
+
+        List<NewsArticle> merged = new ArrayList<>(unique.values());
+        Collections.sort(merged, newestFirst ? NEWEST_FIRST : Collections.reverseOrder(NEWEST_FIRST));
+        return merged;
+    }
+
+    /*
+     * Returns the permits for the host of the URL
+     */
+    private synchronized Semaphore permitsFor(String url) {
+        String host;
+        try {
+            host = new URL(url).getHost();
+        } catch (MalformedURLException e) {
+            host = "";
+        }
+
+        Semaphore permits = mHostPermits.get(host);
+        if (permits == null) {
+            permits = new Semaphore(mRequestsPerHost);
+            mHostPermits.put(host, permits);
+        }
+        return permits;
+    }
+}
@@ -1,73 +1,274 @@
 package com.example.android.newsapp;
 
-import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.ImageView;
 import android.widget.TextView;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-/* NewsAdapter is an ArrayAdapter that can provide the layout for each list item
- * based on a data source, which is here a list of NewsArticle objects
+/* NewsAdapter is a RecyclerView adapter that provides the layout for each list item
+ * based on a data source, which is here a list of NewsArticle objects. A new list is compared
+ * with the current one on a background thread, so a refresh only rebinds the rows that changed
+ * and the scroll position is kept.
  */
-public class NewsAdapter extends ArrayAdapter<NewsArticle> {
+public class NewsAdapter extends RecyclerView.Adapter<NewsAdapter.ViewHolder> {
 
-    //String Separator to split the time from the date of publication of the news article
-    private static final String LOCATION_SEPARATOR = "T";
+    //Thread the differences between two lists are computed on, shared by all adapters
+    private static final ExecutorService DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /*
+     * Listener for clicks on a news article
+     */
+    public interface OnArticleClickListener {
+        void onArticleClick(NewsArticle article);
+    }
+
+    //Handler to apply the computed differences on the main thread
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    //Listener that is told which news article was clicked
+    private final OnArticleClickListener mClickListener;
+
+    //Loads the thumbnails of the rows in the background
+    private final ThumbnailLoader mThumbnailLoader;
+
+    //Rows before this position already had their thumbnails prefetched
+    private int mPrefetchedUpTo;
+
+    //Decides which thumbnails are loaded on the current link
+    private FetchPolicy.Profile mProfile = FetchPolicy.Profile.UNMETERED;
+
+    //The news articles that are shown
+    private List<NewsArticle> mArticles = Collections.emptyList();
+
+    //Counts the submitted lists, so an older diff that finishes late is dropped
+    private int mGeneration;
 
     /*
      * Create a new NewsAdapter object
      */
-    public NewsAdapter(Context context, ArrayList<NewsArticle> news) {
-        super(context, 0, news);
+    public NewsAdapter(ThumbnailLoader thumbnailLoader, OnArticleClickListener clickListener) {
+        mThumbnailLoader = thumbnailLoader;
+        mClickListener = clickListener;
+        setHasStableIds(true);
     }
 
-    @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        View listItemView = convertView;
-        if (listItemView == null) {
-            listItemView = LayoutInflater.from(getContext()).inflate(R.layout.list_item, parent, false);
+    /*
+     * Show the given news articles. The differences with the current list are computed on a
+     * background thread and only the changed rows are updated. The callback is run on the main
+     * thread once the new list is shown, it can be null.
+     */
+    public void submitList(List<NewsArticle> newArticles, final Runnable onCommitted) {
+        final List<NewsArticle> oldArticles = mArticles;
+        final List<NewsArticle> articles = newArticles == null
+                ? Collections.<NewsArticle>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(newArticles));
+        final int generation = ++mGeneration;
+        mPrefetchedUpTo = 0;
+
+        //Nothing to compare when one of the lists is empty
+        if (oldArticles.isEmpty() || articles.isEmpty()) {
+            mArticles = articles;
+            notifyDataSetChanged();
+            if (onCommitted != null) {
+                onCommitted.run();
+            }
+            return;
         }
 
-        //Get the NewsArticle object located at this position in the list
-        NewsArticle currentNewsArticle = getItem(position);
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new ArticleDiffCallback(oldArticles, articles));
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        //A newer list was submitted in the meantime
+                        if (generation != mGeneration) {
+                            return;
+                        }
+                        mArticles = articles;
+                        result.dispatchUpdatesTo(NewsAdapter.this);
+                        if (onCommitted != null) {
+                            onCommitted.run();
+                        }
+                    }
+                });
+            }
+        });
+    }
 
-        //Find the TextView in the list_item.xml layout with the ID title_text_view
-        TextView titleTextView = (TextView) listItemView.findViewById(R.id.title_text_view);
+    //Load the thumbnails in the quality of the profile from now on
+    public void setProfile(FetchPolicy.Profile profile) {
+        mProfile = profile;
+    }
 
-        //Get the title of the currentNewsArticle object and set this text in the titleTextView
-        titleTextView.setText(currentNewsArticle.getTitle());
+    //Returns the news articles that are shown
+    public List<NewsArticle> getArticles() {
+        return mArticles;
+    }
+
+    /*
+     * Start loading the thumbnails of the rows from the position on, so they are in memory by
+     * the time the rows scroll into view. Rows that were prefetched before are skipped.
+     */
+    public void prefetchThumbnails(int position, int count) {
+        int end = Math.min(position + count, mArticles.size());
+        for (int i = Math.max(position, mPrefetchedUpTo); i < end; i++) {
+            mThumbnailLoader.prefetch(mProfile.thumbnailUrl(mArticles.get(i).getThumbnail()));
+        }
+        mPrefetchedUpTo = Math.max(mPrefetchedUpTo, end);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mArticles.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableId(mArticles.get(position).getWebsite());
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View listItemView = LayoutInflater.from(parent.getContext()).inflate(R.layout.list_item, parent, false);
+        return new ViewHolder(listItemView);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        long bindStart = PipelineMetrics.getInstance().startTimer();
 
-        //Find the TextView in the list_item.xml layout with the ID section_text_view
-        TextView sectionTextView = (TextView) listItemView.findViewById(R.id.section_text_view);
+        //Get the NewsArticle object located at this position in the list
+        NewsArticle currentNewsArticle = mArticles.get(position);
+        holder.mArticle = currentNewsArticle;
+
+        //Get the title of the currentNewsArticle object and set this text in the titleTextView
+        holder.mTitleTextView.setText(currentNewsArticle.getTitle());
 
         //Get the section of the currentNewsArticle object and set this text in the sectionTextView
-        sectionTextView.setText(currentNewsArticle.getSection());
+        holder.mSectionTextView.setText(currentNewsArticle.getSection());
+
+        //Set the date of publication, which was already formatted when the articles were loaded
+        holder.mDateTextView.setText(currentNewsArticle.getDisplayDate());
 
-        //Get the original String with the date + time of publication
-        String originalDate = currentNewsArticle.getDate();
+        //Get the contributors of the currentNewsArticle object and set them in the authorTextView
+        holder.mAuthorTextView.setText(currentNewsArticle.getByline());
+
+        //Load the thumbnail in the background, or hide the image when the article has none
+        String thumbnail = mProfile.thumbnailUrl(currentNewsArticle.getThumbnail());
+        if (thumbnail.isEmpty()) {
+            mThumbnailLoader.cancel(holder.mThumbnailView);
+            holder.mThumbnailView.setVisibility(View.GONE);
+        } else {
+            holder.mThumbnailView.setVisibility(View.VISIBLE);
+            mThumbnailLoader.load(holder.mThumbnailView, thumbnail);
+        }
+
+        PipelineMetrics.getInstance().stopTimer(PipelineMetrics.Stage.BIND_ROW, bindStart);
+    }
 
-        //Split the String originalDate in two parts
-        String[] parts = originalDate.split(LOCATION_SEPARATOR);
+    @Override
+    public void onViewRecycled(ViewHolder holder) {
+        //The row is off the screen, so its thumbnail is no longer needed
+        mThumbnailLoader.cancel(holder.mThumbnailView);
+        holder.mThumbnailView.setImageDrawable(null);
+    }
 
-        //String to store just the date of publication in
-        String date = parts[0];
+    /*
+     * Returns a 64-bit FNV-1a hash of the article URL, which is unique enough to serve as a stable ID
+     */
+    static long stableId(String url) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            hash ^= url.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
 
-        //Find the TextView in the list_item.xml layout with the ID date_text_view
-        TextView dateTextView = (TextView) listItemView.findViewById(R.id.date_text_view);
+    /*
+     * Holds the views of a list item, so they only have to be looked up once
+     */
+    public class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
 
-        //Set the date of publication in the dateTextView
-        dateTextView.setText(date);
+        private final TextView mTitleTextView;
+        private final TextView mSectionTextView;
+        private final TextView mDateTextView;
+        private final TextView mAuthorTextView;
+        private final ImageView mThumbnailView;
 
-        //Find the TextView in the list_item.xml layout with the ID author_text_view
-        TextView authorTextView = (TextView) listItemView.findViewById(R.id.author_text_view);
+        //The news article that is bound to this row
+        private NewsArticle mArticle;
 
-        //Get the author of the currentNewsArticle object and set this text in the authorTextView
-        authorTextView.setText(currentNewsArticle.getAuthor());
+        ViewHolder(View listItemView) {
+            super(listItemView);
+            mTitleTextView = (TextView) listItemView.findViewById(R.id.title_text_view);
+            mSectionTextView = (TextView) listItemView.findViewById(R.id.section_text_view);
+            mDateTextView = (TextView) listItemView.findViewById(R.id.date_text_view);
+            mAuthorTextView = (TextView) listItemView.findViewById(R.id.author_text_view);
+            mThumbnailView = (ImageView) listItemView.findViewById(R.id.thumbnail_image_view);
+            listItemView.setOnClickListener(this);
+        }
 
-        return listItemView;
+        @Override
+        public void onClick(View view) {
+            if (mArticle != null && mClickListener != null) {
+                mClickListener.onArticleClick(mArticle);
+            }
+        }
     }
-}
 
+    /*
+     * Compares two lists of news articles: articles are the same when they have the same URL,
+     * and their contents are the same when every field that is shown is equal
+     */
+    static class ArticleDiffCallback extends DiffUtil.Callback {
+
+        private final List<NewsArticle> mOldArticles;
+        private final List<NewsArticle> mNewArticles;
+
+        ArticleDiffCallback(List<NewsArticle> oldArticles, List<NewsArticle> newArticles) {
+            mOldArticles = oldArticles;
+            mNewArticles = newArticles;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldArticles.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewArticles.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldArticles.get(oldItemPosition).getWebsite()
+                    .equals(mNewArticles.get(newItemPosition).getWebsite());
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            NewsArticle oldArticle = mOldArticles.get(oldItemPosition);
+            NewsArticle newArticle = mNewArticles.get(newItemPosition);
+            return oldArticle.getTitle().equals(newArticle.getTitle())
+                    && oldArticle.getSection().equals(newArticle.getSection())
+                    && oldArticle.getDate().equals(newArticle.getDate())
+                    && oldArticle.getContributors().equals(newArticle.getContributors())
+                    && oldArticle.getThumbnail().equals(newArticle.getThumbnail());
+        }
+    }
+}
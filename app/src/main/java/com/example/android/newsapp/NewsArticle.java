@@ -1,30 +1,97 @@
 package com.example.android.newsapp;
 
-//This class will create objects which represent news articles displayed in a list in the app
+import java.text.DateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * This class will create objects which represent news articles displayed in a list in the app.
+ *
+ * Tens of thousands of articles can be kept in the caches, so the values that repeat between
+ * them, like sections, contributors and tag ids, are expected to come from a StringPool: an
+ * article then only holds references to them. Articles without contributors or tags share one
+ * empty array.
+ */
 public class NewsArticle {
 
+    //Shared by every article that has no contributors or tags
+    static final String[] NONE = new String[0];
+
+    //Formats the publication date for the current locale. DateFormat is not thread-safe, so
+    //every thread gets its own.
+    private static final ThreadLocal<DisplayFormat> DISPLAY_FORMAT = new ThreadLocal<>();
+
     //Title of the News Article
-    private String mTitle;
+    private final String mTitle;
 
     //Section the News Article was published in
-    private String mSection;
+    private final String mSection;
+
+    //Id of the section, like "business", or an empty String when it is unknown
+    private final String mSectionId;
 
     //Website of the News Article
-    private String mUrl;
+    private final String mUrl;
 
     //Date of publication of the News Article
-    private String mDate;
+    private final String mDate;
 
-    //Author of the article
-    private String mAuthor;
+    //Names of the contributors of the article, in the order of the byline
+    private final String[] mContributors;
 
-    //Constructs a new NewsArticle Object
+    //Ids of the other tags of the article, like "business/economics"
+    private final String[] mTags;
+
+    //URL of the thumbnail image of the article, or an empty String when it has none
+    private final String mThumbnail;
+
+    //Short summary of the article, which may hold HTML, or an empty String when it has none
+    private final String mTrailText;
+
+    //Number of words in the body of the article, or 0 when it is unknown
+    private final int mWordCount;
+
+    //Date of publication in milliseconds since the epoch, or 0 when the date could not be read
+    private final long mPublishedMillis;
+
+    //Date of publication formatted for display together with its locale, computed the first
+    //time it is needed. Both are replaced at once, so a reader never sees one without the other.
+    private volatile DisplayDate mDisplayDate;
+
+    //Constructs a new NewsArticle Object without a thumbnail
     public NewsArticle(String title, String section, String url, String date, String author) {
+        this(title, section, url, date, author, "");
+    }
+
+    //Constructs a new NewsArticle Object
+    public NewsArticle(String title, String section, String url, String date, String author, String thumbnail) {
+        this(title, section, url, date, author, thumbnail, Utils.parseIsoDate(date));
+    }
+
+    //Constructs a new NewsArticle Object whose date of publication was already parsed
+    NewsArticle(String title, String section, String url, String date, String author, String thumbnail,
+                long publishedMillis) {
+        this(title, section, "", url, date, author.isEmpty() ? NONE : new String[]{author}, NONE,
+                thumbnail, "", 0, publishedMillis);
+    }
+
+    //Constructs a new NewsArticle Object with all of its metadata. The arrays are not copied.
+    NewsArticle(String title, String section, String sectionId, String url, String date, String[] contributors,
+                String[] tags, String thumbnail, String trailText, int wordCount, long publishedMillis) {
         mTitle = title;
         mSection = section;
+        mSectionId = sectionId;
         mUrl = url;
         mDate = date;
-        mAuthor = author;
+        mContributors = contributors.length == 0 ? NONE : contributors;
+        mTags = tags.length == 0 ? NONE : tags;
+        mThumbnail = thumbnail;
+        mTrailText = trailText;
+        mWordCount = wordCount;
+        mPublishedMillis = publishedMillis;
     }
 
     //Returns the title of the News Article
@@ -37,6 +104,11 @@ public class NewsArticle {
         return mSection;
     }
 
+    //Returns the id of the section, or an empty String if it is unknown
+    public String getSectionId() {
+        return mSectionId;
+    }
+
     //Returns the website of the News Article to read the whole article
     public String getWebsite() {
         return mUrl;
@@ -47,8 +119,144 @@ public class NewsArticle {
         return mDate;
     }
 
-    //Returns the author of the News Article
+    //Returns the first contributor of the News Article, or an empty String if it has none
     public String getAuthor() {
-        return mAuthor;
+        return mContributors.length == 0 ? "" : mContributors[0];
+    }
+
+    //Returns the contributors of the News Article, in the order of the byline
+    public List<String> getContributors() {
+        return Collections.unmodifiableList(Arrays.asList(mContributors));
+    }
+
+    /*
+     * Returns the names of all contributors separated by commas, or an empty String if the
+     * article has none
+     */
+    public String getByline() {
+        if (mContributors.length <= 1) {
+            return getAuthor();
+        }
+        StringBuilder byline = new StringBuilder(mContributors[0]);
+        for (int i = 1; i < mContributors.length; i++) {
+            byline.append(", ").append(mContributors[i]);
+        }
+        return byline.toString();
+    }
+
+    //Returns the ids of the tags of the News Article that are not contributors
+    public List<String> getTags() {
+        return Collections.unmodifiableList(Arrays.asList(mTags));
+    }
+
+    //Returns the URL of the thumbnail image, or an empty String if the article has none
+    public String getThumbnail() {
+        return mThumbnail;
+    }
+
+    //Returns the short summary of the article, or an empty String if it has none
+    public String getTrailText() {
+        return mTrailText;
+    }
+
+    //Returns the number of words in the article, or 0 if it is unknown
+    public int getWordCount() {
+        return mWordCount;
+    }
+
+    //Returns the date of publication in milliseconds since the epoch, or 0 if it is unknown
+    public long getPublishedMillis() {
+        return mPublishedMillis;
+    }
+
+    /*
+     * Returns the date of publication formatted for the current locale. It is formatted once and
+     * then cached, so call prepareForDisplay on a background thread before the list is shown.
+     */
+    public String getDisplayDate() {
+        Locale locale = Locale.getDefault();
+        DisplayDate displayDate = mDisplayDate;
+        if (displayDate == null || !locale.equals(displayDate.mLocale)) {
+            displayDate = new DisplayDate(locale, formatDisplayDate(locale));
+            mDisplayDate = displayDate;
+        }
+        return displayDate.mText;
+    }
+
+    /*
+     * Returns true if the other article has the same URL and every other field is equal
+     */
+    boolean hasSameContent(NewsArticle other) {
+        return mUrl.equals(other.mUrl) && mTitle.equals(other.mTitle) && mSection.equals(other.mSection)
+                && mSectionId.equals(other.mSectionId)
+                && mDate.equals(other.mDate) && Arrays.equals(mContributors, other.mContributors)
+                && Arrays.equals(mTags, other.mTags) && mThumbnail.equals(other.mThumbnail)
+                && mTrailText.equals(other.mTrailText) && mWordCount == other.mWordCount;
+    }
+
+    /*
+     * Returns true if both lists hold articles with the same content in the same order
+     */
+    static boolean haveSameContent(List<NewsArticle> first, List<NewsArticle> second) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (int i = 0; i < first.size(); i++) {
+            if (!first.get(i).hasSameContent(second.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Format the display dates of all articles, so binding them to the list does not have to
+     */
+    public static void prepareForDisplay(List<NewsArticle> articles) {
+        if (articles == null) {
+            return;
+        }
+        for (NewsArticle article : articles) {
+            article.getDisplayDate();
+        }
+    }
+
+    private String formatDisplayDate(Locale locale) {
+        //Without a parsed date, fall back to the day part of the original date
+        if (mPublishedMillis == 0) {
+            int separator = mDate.indexOf('T');
+            return separator < 0 ? mDate : mDate.substring(0, separator);
+        }
+
+        DisplayFormat displayFormat = DISPLAY_FORMAT.get();
+        if (displayFormat == null || !locale.equals(displayFormat.mLocale)) {
+            displayFormat = new DisplayFormat(locale);
+            DISPLAY_FORMAT.set(displayFormat);
+        }
+        return displayFormat.mFormat.format(new Date(mPublishedMillis));
+    }
+
+    //A formatted date together with the locale it was formatted for
+    private static class DisplayDate {
+
+        private final Locale mLocale;
+        private final String mText;
+
+        DisplayDate(Locale locale, String text) {
+            mLocale = locale;
+            mText = text;
+        }
+    }
+
+    //A date format together with the locale it was made for
+    private static class DisplayFormat {
+
+        private final Locale mLocale;
+        private final DateFormat mFormat;
+
+        DisplayFormat(Locale locale) {
+            mLocale = locale;
+            mFormat = DateFormat.getDateInstance(DateFormat.MEDIUM, locale);
+        }
     }
 }
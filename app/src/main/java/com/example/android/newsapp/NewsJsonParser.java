@@ -0,0 +1,263 @@
+package com.example.android.newsapp;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Streaming parser for the Guardian search response. Instead of reading the whole body into a
+ * String and building a JSONObject tree, it pulls tokens straight from the InputStream, skips
+ * every field a NewsArticle does not need and hands each article out as soon as it is complete.
+ */
+public final class NewsJsonParser {
+
+    //Type of the tags that name the contributors of an article
+    static final String CONTRIBUTOR_TAG = "contributor";
+
+    /*
+     * Receives every NewsArticle as soon as it has been read from the stream
+     */
+    public interface ArticleCallback {
+        void onArticle(NewsArticle article);
+    }
+
+    /*
+     * This is a private constructor, because the class only holds static methods.
+     */
+    private NewsJsonParser() {
+    }
+
+    /*
+     * Parse the Guardian response from the InputStream and return the list of NewsArticle objects
+     */
+    public static List<NewsArticle> parse(InputStream inputStream) throws IOException {
+        final List<NewsArticle> newsArticles = new ArrayList<>();
+        parse(inputStream, new ArticleCallback() {
+            @Override
+            public void onArticle(NewsArticle article) {
+                newsArticles.add(article);
+            }
+        });
+        return newsArticles;
+    }
+
+    /*
+     * Parse the Guardian response from the InputStream and pass each NewsArticle to the callback
+     * as soon as it has been read. Returns the number of articles that were emitted.
+     */
+    public static int parse(InputStream inputStream, ArticleCallback callback) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+        try {
+            return readBase(reader, callback);
+        } catch (IllegalStateException e) {
+            //JsonReader reports unexpected token types as IllegalStateException
+            throw new IOException("Unexpected JSON structure in the news article results", e);
+        }
+    }
+
+    /*
+     * Read the outer object and look for the "response" object in it
+     */
+    private static int readBase(JsonReader reader, ArticleCallback callback) throws IOException {
+        int count = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("response".equals(reader.nextName())) {
+                count += readResponse(reader, callback);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return count;
+    }
+
+    /*
+     * Read the "response" object and look for the "results" array in it
+     */
+    private static int readResponse(JsonReader reader, ArticleCallback callback) throws IOException {
+        int count = 0;
+        ArticleMapper mapper = new ArticleMapper();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("results".equals(reader.nextName())) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    NewsArticle article = readArticle(reader, mapper);
+                    if (article != null) {
+                        callback.onArticle(article);
+                        count++;
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return count;
+    }
+
+    /*
+     * Read a single result object and create a NewsArticle from the fields that are needed.
+     * A field with an unexpected type is skipped, so the rest of the result is still used.
+     * Returns null when the result is left out.
+     */
+    private static NewsArticle readArticle(JsonReader reader, ArticleMapper mapper) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            mapper.skip();
+            return null;
+        }
+
+        mapper.reset();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "webTitle":
+                    mapper.set(ArticleMapper.Field.TITLE, readString(reader, mapper, ArticleMapper.Field.TITLE));
+                    break;
+                case "sectionName":
+                    mapper.set(ArticleMapper.Field.SECTION, readString(reader, mapper, ArticleMapper.Field.SECTION));
+                    break;
+                case "sectionId":
+                    mapper.set(ArticleMapper.Field.SECTION_ID, readString(reader, mapper, ArticleMapper.Field.SECTION_ID));
+                    break;
+                case "webUrl":
+                    mapper.set(ArticleMapper.Field.URL, readString(reader, mapper, ArticleMapper.Field.URL));
+                    break;
+                case "webPublicationDate":
+                    mapper.set(ArticleMapper.Field.DATE, readString(reader, mapper, ArticleMapper.Field.DATE));
+                    break;
+                case "tags":
+                    readTags(reader, mapper);
+                    break;
+                case "fields":
+                    readFields(reader, mapper);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return mapper.build();
+    }
+
+    /*
+     * Read the "tags" array. The webTitle of every contributor tag is added to the byline and
+     * the id of every other tag to the tags. A tag without a type is taken for a contributor,
+     * because only contributors are asked for unless the query says otherwise.
+     */
+    private static void readTags(JsonReader reader, ArticleMapper mapper) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return;
+        }
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            mapper.fail(ArticleMapper.Field.AUTHOR);
+            return;
+        }
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                mapper.fail(ArticleMapper.Field.TAG);
+                continue;
+            }
+
+            String id = null;
+            String type = null;
+            String title = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id":
+                        id = readString(reader, mapper, ArticleMapper.Field.TAG);
+                        break;
+                    case "type":
+                        type = readString(reader, mapper, ArticleMapper.Field.TAG);
+                        break;
+                    case "webTitle":
+                        title = readString(reader, mapper, ArticleMapper.Field.AUTHOR);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            if (type == null || CONTRIBUTOR_TAG.equals(type)) {
+                mapper.set(ArticleMapper.Field.AUTHOR, title);
+            } else {
+                mapper.set(ArticleMapper.Field.TAG, id);
+            }
+        }
+        reader.endArray();
+    }
+
+    /*
+     * Read the "fields" object, which only holds the fields the query asked for with show-fields
+     */
+    private static void readFields(JsonReader reader, ArticleMapper mapper) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return;
+        }
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            mapper.fail(ArticleMapper.Field.THUMBNAIL);
+            return;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "thumbnail":
+                    mapper.set(ArticleMapper.Field.THUMBNAIL, readString(reader, mapper, ArticleMapper.Field.THUMBNAIL));
+                    break;
+                case "trailText":
+                    mapper.set(ArticleMapper.Field.TRAIL_TEXT, readString(reader, mapper, ArticleMapper.Field.TRAIL_TEXT));
+                    break;
+                case "wordcount":
+                    mapper.set(ArticleMapper.Field.WORD_COUNT, readString(reader, mapper, ArticleMapper.Field.WORD_COUNT));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+    }
+
+    /*
+     * Return the next value as a String, or null if it is null. A value that is not a string
+     * or a number is skipped and recorded as a failure of the field.
+     */
+    private static String readString(JsonReader reader, ArticleMapper mapper, ArticleMapper.Field field)
+            throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+            case NUMBER:
+                return reader.nextString();
+            case NULL:
+                reader.nextNull();
+                return null;
+            default:
+                reader.skipValue();
+                mapper.fail(field);
+                return null;
+        }
+    }
+}
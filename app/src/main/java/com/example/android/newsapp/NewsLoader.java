@@ -1,38 +1,175 @@
 package com.example.android.newsapp;
 
-import android.content.AsyncTaskLoader;
 import android.content.Context;
+import android.util.Log;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class NewsLoader extends AsyncTaskLoader<List<NewsArticle>> {
+/*
+ * Loads one page of the feed on the LoadEngine. The articles that are already in memory or on
+ * disk are published first, so they can be shown while the feed is refreshed from the server.
+ * When the load is cancelled, the requests it is waiting for are broken off.
+ */
+public class NewsLoader implements LoadEngine.Job<NewsResult> {
 
     //Tag for log messages
     private static final String LOG_TAG = NewsLoader.class.getName();
 
-    //Query URL
-    private String mUrl;
+    //Context to reach the NewsRepository with
+    private final Context mContext;
+
+    //Query URLs of the page, usually one that asks for every section that is shown
+    private List<String> mUrls;
+
+    //Page of the feed the query URLs ask for, the first page is 1
+    private int mPage;
+
+    //Whether the merged feed of several queries is ordered from newest to oldest
+    private boolean mNewestFirst;
+
+    //Whether there is a network connection to revalidate the stored articles with
+    private boolean mOnline;
 
     //Constructs new NewsLoader
-    public NewsLoader(Context context, String url) {
-        super(context);
-        mUrl = url;
+    public NewsLoader(Context context, List<String> urls, int page, boolean newestFirst, boolean online) {
+        mContext = context.getApplicationContext();
+        mUrls = urls;
+        mPage = page;
+        mNewestFirst = newestFirst;
+        mOnline = online;
     }
 
-    @Override
-    protected void onStartLoading() {
-        forceLoad();
+    //Returns the page of the feed this loader loads
+    public int getPage() {
+        return mPage;
     }
 
-    //This is a background thread
+    //This is a thread of the LoadEngine
     @Override
-    public List<NewsArticle> loadInBackground() {
-        if (mUrl == null) {
-            return null;
+    public NewsResult run(LoadEngine.Load<NewsResult> load) {
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        long loadStart = metrics.startTimer();
+        try {
+            return load(load);
+        } catch (RuntimeException e) {
+            //The LoadEngine delivers nothing for a job that throws, so hand out the error
+            //result here and the feed shows its error state instead of loading forever
+            Log.e(LOG_TAG, "Problem loading the feed", e);
+            return NewsResult.failure(0, null);
+        } finally {
+            metrics.stopTimer(PipelineMetrics.Stage.LOAD, loadStart);
+            metrics.increment(PipelineMetrics.Counter.LOADS, 1);
+        }
+    }
+
+    /*
+     * Load the articles of all query URLs, from the network when possible
+     */
+    private NewsResult load(LoadEngine.Load<NewsResult> load) {
+        if (mUrls.isEmpty()) {
+            return NewsResult.success(null);
+        }
+
+        //Publish the articles that are already in memory right away, even if they are stale
+        List<List<NewsArticle>> sections = new ArrayList<>();
+        boolean stale = false;
+        for (String url : mUrls) {
+            QueryCache.Entry entry = QueryCache.getInstance().peek(url);
+            if (entry == null) {
+                sections = null;
+                break;
+            }
+            sections.add(entry.getArticles());
+            stale |= entry.isStale();
+        }
+
+        boolean inMemory = sections != null;
+        if (inMemory) {
+            NewsResult fromMemory = NewsResult.success(merge(sections));
+            if (!stale) {
+                //Nothing to refresh
+                return fromMemory;
+            }
+            load.publish(fromMemory);
+        }
+
+        final NewsRepository repository = NewsRepository.getInstance(mContext);
+        if (!mOnline) {
+            //Read the articles that were stored the last time these queries were loaded
+            return prepareForDisplay(NewsResult.failure(0, getCached(repository)));
         }
 
-        //Perform network request, parse the response and extract a list of news articles
-        List<NewsArticle> news = Utils.fetchNewsData(mUrl);
-        return news;
+        //Show the stored articles right away while they are revalidated with the server
+        if (!inMemory) {
+            List<NewsArticle> cached = getCached(repository);
+            if (cached != null) {
+                NewsArticle.prepareForDisplay(cached);
+                load.publish(NewsResult.success(cached));
+            }
+        }
+
+        //The user may have left while the stored articles were read
+        final CancelSignal signal = load.getCancelSignal();
+        final LoadEngine.Priority priority = load.getPriority();
+        if (signal.isCancelled()) {
+            return NewsResult.failure(0, null);
+        }
+
+        //Perform network request, parse the response and extract a list of news articles.
+        //Loads that ask for the same query at the same time share this request, which is
+        //broken off when the load is cancelled and waits for the quota as urgently as the load.
+        QueryCache.Fetcher fetcher = new QueryCache.Fetcher() {
+            @Override
+            public NewsResult fetch(String url) {
+                return QueryCache.getInstance().load(url, priority, signal, new QueryCache.Fetcher() {
+                    @Override
+                    public NewsResult fetch(String url) {
+                        return repository.fetch(url, signal, priority);
+                    }
+                });
+            }
+        };
+
+        //Sections that do not fit in one query are loaded at the same time and merged into one feed
+        if (mUrls.size() > 1) {
+            return prepareForDisplay(MultiSectionFetcher.getInstance(repository).fetchAll(mUrls, mNewestFirst, fetcher));
+        }
+        return prepareForDisplay(fetcher.fetch(mUrls.get(0)));
+    }
+
+    /*
+     * Format the display fields of the articles here on the background thread, so the list
+     * does not have to while it is being scrolled, and make them searchable
+     */
+    private static NewsResult prepareForDisplay(NewsResult result) {
+        NewsArticle.prepareForDisplay(result.getArticles());
+        ArticleSearchIndex.getInstance().addAll(result.getArticles());
+        return result;
+    }
+
+    /*
+     * Returns the stored articles of all queries that have any, merged into one feed, or null
+     */
+    private List<NewsArticle> getCached(NewsRepository repository) {
+        List<List<NewsArticle>> sections = new ArrayList<>();
+        for (String url : mUrls) {
+            List<NewsArticle> cached = repository.getCached(url);
+            if (cached != null) {
+                sections.add(cached);
+            }
+        }
+        return sections.isEmpty() ? null : merge(sections);
+    }
+
+    /*
+     * Merge the queries into one feed. A single query keeps the order of the server, which
+     * can be by relevance.
+     */
+    private List<NewsArticle> merge(List<List<NewsArticle>> sections) {
+        if (sections.size() == 1) {
+            return sections.get(0);
+        }
+        return MultiSectionFetcher.merge(sections, mNewestFirst);
     }
 }
@@ -0,0 +1,142 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Keeps track of which pages of the news feed have been loaded, decides when the next page should
+ * be fetched while the user scrolls, and filters out articles that are already in the list
+ * because the feed shifted between two page requests.
+ */
+public class NewsPaginator {
+
+    //Number of articles that is requested per page
+    private final int mPageSize;
+
+    //Number of rows before the end of the list at which the next page is fetched
+    private final int mPrefetchDistance;
+
+    //Page that will be requested next, the first page is 1
+    private int mNextPage = 1;
+
+    //Whether a page is currently being loaded
+    private boolean mLoading;
+
+    //Whether the last page was reached
+    private boolean mEndReached;
+
+    //URLs of all articles that are in the list
+    private final Set<String> mUrls = new HashSet<>();
+
+    //Constructs a new NewsPaginator
+    public NewsPaginator(int pageSize, int prefetchDistance) {
+        mPageSize = pageSize;
+        mPrefetchDistance = prefetchDistance;
+    }
+
+    //Returns the number of articles that is requested per page
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    //Returns the page that will be requested next
+    public int getNextPage() {
+        return mNextPage;
+    }
+
+    /*
+     * Returns whether the next page should be fetched now that the user can see up to
+     * lastVisibleRow of totalRows rows
+     */
+    public boolean shouldLoadMore(int lastVisibleRow, int totalRows) {
+        return !mLoading && !mEndReached && totalRows > 0
+                && lastVisibleRow >= totalRows - mPrefetchDistance;
+    }
+
+    //Returns whether the last page was reached
+    public boolean isEndReached() {
+        return mEndReached;
+    }
+
+    /*
+     * Mark the next page as being loaded
+     */
+    public void onLoadStarted() {
+        mLoading = true;
+    }
+
+    /*
+     * Start over from the first page with the given articles. Returns the articles without duplicates.
+     */
+    public List<NewsArticle> reset(List<NewsArticle> firstPage) {
+        return reset(firstPage, true);
+    }
+
+    /*
+     * Start over like reset, with the articles of a first page that was loaded, or the stored
+     * ones of a first page that failed to load, which is asked for again
+     */
+    public List<NewsArticle> reset(List<NewsArticle> firstPage, boolean loaded) {
+        mUrls.clear();
+        mNextPage = 1;
+        mEndReached = false;
+        return loaded ? onPageLoaded(1, firstPage) : onPageFailed(1, firstPage);
+    }
+
+    /*
+     * Continue with a list that was put together without loading it, like the loaded articles
+     * filtered for other settings. A page that was being loaded is forgotten.
+     */
+    public void restore(List<NewsArticle> articles, int nextPage, boolean endReached) {
+        mUrls.clear();
+        for (NewsArticle article : articles) {
+            mUrls.add(article.getWebsite());
+        }
+        mNextPage = nextPage;
+        mEndReached = endReached;
+        mLoading = false;
+    }
+
+    /*
+     * Record that the given page was loaded and return the articles of it that are not in the
+     * list yet. A page can be delivered more than once, first from the cache and then from the
+     * network. A short page means the end of the feed was reached, a missing one that it failed.
+     */
+    public List<NewsArticle> onPageLoaded(int page, List<NewsArticle> articles) {
+        if (articles == null) {
+            return onPageFailed(page, null);
+        }
+        mLoading = false;
+        if (page >= mNextPage) {
+            mNextPage = page + 1;
+            mEndReached = articles.size() < mPageSize;
+        }
+        return add(articles);
+    }
+
+    /*
+     * Record that the given page failed to load and return the stored articles of it, which may
+     * be null, that are not in the list yet. The page is asked for again when the user scrolls
+     * on, because only a page that was loaded tells where the feed ends.
+     */
+    public List<NewsArticle> onPageFailed(int page, List<NewsArticle> storedArticles) {
+        mLoading = false;
+        return add(storedArticles);
+    }
+
+    //Add the articles that are not in the list yet and return them
+    private List<NewsArticle> add(List<NewsArticle> articles) {
+        List<NewsArticle> newArticles = new ArrayList<>();
+        if (articles == null) {
+            return newArticles;
+        }
+        for (NewsArticle article : articles) {
+            if (mUrls.add(article.getWebsite())) {
+                newArticles.add(article);
+            }
+        }
+        return newArticles;
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/*
+ * Gives access to the news articles of a query. Articles are kept in an ArticleDiskCache so they
+ * can be shown straight away, also without a connection, and are revalidated with the server
+ * using ETag / If-Modified-Since so an unchanged feed only costs a 304 response. Temporary
+ * failures are retried, and a CircuitBreaker keeps us away from a server that is throttling us.
+ * Every request first waits for the RequestScheduler, which keeps the app within its quota.
+ */
+public class NewsRepository {
+
+    //Tag for the log messages
+    private static final String LOG_TAG = NewsRepository.class.getSimpleName();
+
+    //Name of the directory inside the cache directory of the app
+    private static final String CACHE_DIRECTORY = "news";
+
+    //The disk cache may hold 2 MB of articles, which are kept for at most a week
+    private static final long CACHE_MAX_BYTES = 2 * 1024 * 1024;
+    private static final long CACHE_MAX_AGE_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    //A request is tried at most 3 times, waiting up to 0.5, 1 and at most 8 seconds in between
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_DELAY_MILLIS = 500;
+    private static final long MAX_DELAY_MILLIS = 8000;
+
+    //After 3 failures in a row the server is left alone for a minute
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long BREAKER_OPEN_MILLIS = 60 * 1000;
+
+    //The one instance that is shared by all loaders of the app
+    private static NewsRepository sInstance;
+
+    //Transport used to talk to the server
+    private final HttpTransport mTransport;
+
+    //Cache of the articles of each query
+    private final ArticleDiskCache mCache;
+
+    //Decides which failed requests are retried and how long to wait in between
+    private final RetryPolicy mRetryPolicy;
+
+    //Stops requests for a while when the server keeps failing or asks us to back off
+    private final CircuitBreaker mCircuitBreaker;
+
+    //Records how long parsing takes and how many articles were parsed
+    private final PipelineMetrics mMetrics;
+
+    //Lets the requests go within the quota of the api-key, or null to send them right away
+    private final RequestScheduler mScheduler;
+
+    //Constructs a new NewsRepository that sends its requests right away
+    public NewsRepository(HttpTransport transport, ArticleDiskCache cache, RetryPolicy retryPolicy,
+                          CircuitBreaker circuitBreaker, PipelineMetrics metrics) {
+        this(transport, cache, retryPolicy, circuitBreaker, metrics, null);
+    }
+
+    //Constructs a new NewsRepository whose requests wait for the scheduler
+    public NewsRepository(HttpTransport transport, ArticleDiskCache cache, RetryPolicy retryPolicy,
+                          CircuitBreaker circuitBreaker, PipelineMetrics metrics, RequestScheduler scheduler) {
+        mScheduler = scheduler;
+        mTransport = transport;
+        mCache = cache;
+        mRetryPolicy = retryPolicy;
+        mCircuitBreaker = circuitBreaker;
+        mMetrics = metrics;
+    }
+
+    /*
+     * Returns the NewsRepository that is shared by the whole app
+     */
+    public static synchronized NewsRepository getInstance(Context context) {
+        if (sInstance == null) {
+            File directory = new File(context.getApplicationContext().getCacheDir(), CACHE_DIRECTORY);
+            sInstance = new NewsRepository(
+                    new MeteredTransport(OkHttpTransport.getInstance(), PipelineMetrics.getInstance(),
+                            FetchPolicy.getInstance(context)),
+                    new ArticleDiskCache(directory, CACHE_MAX_BYTES, CACHE_MAX_AGE_MILLIS),
+                    new RetryPolicy(MAX_ATTEMPTS, BASE_DELAY_MILLIS, MAX_DELAY_MILLIS, new Random()),
+                    new CircuitBreaker(FAILURE_THRESHOLD, BREAKER_OPEN_MILLIS),
+                    PipelineMetrics.getInstance(),
+                    RequestScheduler.getInstance(context));
+        }
+        return sInstance;
+    }
+
+    /*
+     * Returns the stored articles for the query URL without going to the network, or null
+     */
+    public List<NewsArticle> getCached(String requestUrl) {
+        ArticleDiskCache.Entry entry = mCache.get(QueryCache.normalize(requestUrl));
+        return entry == null ? null : entry.getArticles();
+    }
+
+    /*
+     * Revalidate the stored articles for the query URL with the server and return the result.
+     * Failures that are likely to be temporary are retried with backoff. When the server can not
+     * be reached, or the circuit breaker is open, the stored articles are returned as STALE.
+     */
+    public NewsResult fetch(String requestUrl) {
+        return fetch(requestUrl, new CancelSignal());
+    }
+
+    /*
+     * Revalidate the stored articles like fetch, but stop as soon as the signal is cancelled.
+     * The response that is being read is broken off, and a cancelled request is neither retried
+     * nor counted as a failure of the server.
+     */
+    public NewsResult fetch(String requestUrl, CancelSignal signal) {
+        return fetch(requestUrl, signal, LoadEngine.Priority.VISIBLE);
+    }
+
+    /*
+     * Revalidate the stored articles like fetch, with requests that wait for the quota with the
+     * given priority. A request the scheduler drops ends the fetch like a cancelled one.
+     */
+    public NewsResult fetch(String requestUrl, CancelSignal signal, LoadEngine.Priority priority) {
+        //Queries for the same feed share their stored articles, also when their from-date differs
+        String cacheKey = QueryCache.normalize(requestUrl);
+        ArticleDiskCache.Entry cached = mCache.get(cacheKey);
+        List<NewsArticle> stored = cached == null ? null : cached.getArticles();
+
+        //Ask the server to only send the articles if they changed since they were stored
+        Map<String, String> headers = new HashMap<>();
+        if (cached != null && cached.getEtag() != null) {
+            headers.put("If-None-Match", cached.getEtag());
+        }
+        if (cached != null && cached.getLastModified() != null) {
+            headers.put("If-Modified-Since", cached.getLastModified());
+        }
+
+        int code = 0;
+        for (int attempt = 1; attempt <= mRetryPolicy.getMaxAttempts(); attempt++) {
+            if (signal.isCancelled()) {
+                return NewsResult.failure(0, stored);
+            }
+            if (mCircuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                Log.w(LOG_TAG, "Not contacting the server while the circuit breaker is open");
+                return NewsResult.failure(code, stored);
+            }
+            //Wait for the quota first, so a trial of the breaker is not held while waiting
+            if (mScheduler != null && !mScheduler.acquire(priority, cacheKey, signal)) {
+                return NewsResult.failure(0, stored);
+            }
+            if (!mCircuitBreaker.allowRequest()) {
+                Log.w(LOG_TAG, "Not contacting the server while the circuit breaker is open");
+                return NewsResult.failure(code, stored);
+            }
+
+            code = 0;
+            long retryAfterMillis = -1;
+            HttpResponse response = null;
+            try {
+                //The transport breaks off the request as soon as the load is cancelled, also
+                //while it connects and waits for the response
+                response = mTransport.execute(requestUrl, headers, signal);
+                code = response.getCode();
+
+                if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                    mCircuitBreaker.recordSuccess();
+                    mCache.touch(cacheKey);
+                    return NewsResult.success(stored);
+                }
+
+                if (code == HttpURLConnection.HTTP_OK && response.getBody() != null) {
+                    long parseStart = mMetrics.startTimer();
+                    List<NewsArticle> news = NewsJsonParser.parse(response.getBody());
+                    mMetrics.stopTimer(PipelineMetrics.Stage.PARSE, parseStart);
+                    mMetrics.increment(PipelineMetrics.Counter.ARTICLES_PARSED, news.size());
+                    mCircuitBreaker.recordSuccess();
+                    mCache.put(cacheKey, response.getHeader("ETag"), response.getHeader("Last-Modified"), news);
+                    return NewsResult.success(news);
+                }
+
+                Log.e(LOG_TAG, "Error response code: " + code);
+                retryAfterMillis = RetryPolicy.parseRetryAfter(response.getHeader("Retry-After"),
+                        System.currentTimeMillis());
+            } catch (IOException e) {
+                //No response, or a response that broke off while it was being parsed
+                code = 0;
+                if (signal.isCancelled()) {
+                    mCircuitBreaker.releaseTrial();
+                    return NewsResult.failure(0, stored);
+                }
+                Log.e(LOG_TAG, "Problem retrieving the news article JSON results", e);
+            } finally {
+                closeQuietly(response);
+            }
+
+            //A request the server rejects, like a bad api-key, will not succeed when it is repeated
+            if (!RetryPolicy.isRetryable(code)) {
+                mCircuitBreaker.releaseTrial();
+                return NewsResult.failure(code, stored);
+            }
+
+            mCircuitBreaker.recordFailure();
+            if (retryAfterMillis > mRetryPolicy.getMaxDelayMillis()) {
+                //The server wants us to wait longer than is worth blocking for, so stop asking until then
+                mCircuitBreaker.openFor(retryAfterMillis);
+                break;
+            }
+
+            if (attempt < mRetryPolicy.getMaxAttempts()) {
+                try {
+                    sleep(retryAfterMillis >= 0 ? retryAfterMillis : mRetryPolicy.backoffMillis(attempt));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        return NewsResult.failure(code, stored);
+    }
+
+    /*
+     * Wait before the next attempt. Tests override this so they do not have to wait.
+     */
+    void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    private static void closeQuietly(HttpResponse response) {
+        if (response == null) {
+            return;
+        }
+        try {
+            response.close();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem closing the response", e);
+        }
+    }
+}
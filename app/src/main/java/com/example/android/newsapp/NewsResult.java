@@ -0,0 +1,75 @@
+package com.example.android.newsapp;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * The outcome of loading the news articles of a query. Besides the articles it tells whether
+ * they are fresh, whether the feed is simply empty, or whether loading failed and the articles
+ * (if any) are stored ones that could not be revalidated.
+ */
+public class NewsResult {
+
+    public enum Status {
+        //Fresh articles from the server, or from the cache after the server confirmed them
+        SUCCESS,
+        //The server answered, but there are no articles for the query
+        EMPTY,
+        //Loading failed and there were no stored articles to show instead
+        ERROR,
+        //Loading failed, so stored articles are shown instead
+        STALE
+    }
+
+    private final Status mStatus;
+    private final List<NewsArticle> mArticles;
+
+    //HTTP status code of the failed response, or 0 when there was no response
+    private final int mErrorCode;
+
+    private NewsResult(Status status, List<NewsArticle> articles, int errorCode) {
+        mStatus = status;
+        mArticles = articles;
+        mErrorCode = errorCode;
+    }
+
+    /*
+     * Returns a SUCCESS result, or an EMPTY result if there are no articles
+     */
+    public static NewsResult success(List<NewsArticle> articles) {
+        if (articles == null || articles.isEmpty()) {
+            return new NewsResult(Status.EMPTY, Collections.<NewsArticle>emptyList(), 0);
+        }
+        return new NewsResult(Status.SUCCESS, articles, 0);
+    }
+
+    /*
+     * Returns a STALE result with the stored articles, or an ERROR result if there are none
+     */
+    public static NewsResult failure(int errorCode, List<NewsArticle> storedArticles) {
+        if (storedArticles == null || storedArticles.isEmpty()) {
+            return new NewsResult(Status.ERROR, Collections.<NewsArticle>emptyList(), errorCode);
+        }
+        return new NewsResult(Status.STALE, storedArticles, errorCode);
+    }
+
+    //Returns the status of the result
+    public Status getStatus() {
+        return mStatus;
+    }
+
+    //Returns the articles to show, never null
+    public List<NewsArticle> getArticles() {
+        return mArticles;
+    }
+
+    //Returns the HTTP status code of the failed response, or 0 when there was no response
+    public int getErrorCode() {
+        return mErrorCode;
+    }
+
+    //Returns whether the server answered with articles or with an empty feed
+    public boolean isFresh() {
+        return mStatus == Status.SUCCESS || mStatus == Status.EMPTY;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.android.newsapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Headers;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/*
+ * HttpTransport backed by OkHttp. The feed, the article bodies and the thumbnails are loaded
+ * through the one shared instance, so they share one client with its connection pool and
+ * dispatcher. Connections
+ * are pooled and kept alive between refreshes, requests to the same host are multiplexed over a
+ * single HTTP/2 connection when the server supports it, and gzip is requested and decompressed
+ * transparently.
+ */
+public class OkHttpTransport implements HttpTransport {
+
+    //Timeouts for reading and connecting in milliseconds
+    private static final int READ_TIMEOUT = 10000;
+    private static final int CONNECT_TIMEOUT = 15000;
+
+    //Idle connections are kept for five minutes, at most five of them
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    //The one instance that is shared by the whole app
+    private static OkHttpTransport sInstance;
+
+    private final OkHttpClient mClient;
+
+    //Constructs a new OkHttpTransport with its own connection pool
+    public OkHttpTransport() {
+        this(PipelineMetrics.getInstance());
+    }
+
+    //Constructs a new OkHttpTransport that records how long new connections take in the metrics
+    public OkHttpTransport(final PipelineMetrics metrics) {
+        mClient = new OkHttpClient.Builder()
+                .connectTimeout(CONNECT_TIMEOUT, TimeUnit.MILLISECONDS)
+                .readTimeout(READ_TIMEOUT, TimeUnit.MILLISECONDS)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .eventListenerFactory(new EventListener.Factory() {
+                    @Override
+                    public EventListener create(Call call) {
+                        return new ConnectionTimer(metrics);
+                    }
+                })
+                .build();
+    }
+
+    /*
+     * Returns the OkHttpTransport that is shared by the whole app
+     */
+    public static synchronized OkHttpTransport getInstance() {
+        if (sInstance == null) {
+            sInstance = new OkHttpTransport();
+        }
+        return sInstance;
+    }
+
+    @Override
+    public HttpResponse execute(String url, Map<String, String> headers, final CancelSignal signal)
+            throws IOException {
+        Request.Builder request = new Request.Builder().url(url);
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                request.header(header.getKey(), header.getValue());
+            }
+        }
+
+        final Call call = mClient.newCall(request.build());
+
+        //Cancel the call while it connects and waits for the headers as well, not only while the
+        //body is read. A call that is already cancelled fails right away.
+        final Runnable cancel = new Runnable() {
+            @Override
+            public void run() {
+                call.cancel();
+            }
+        };
+        if (signal != null) {
+            signal.addOnCancelListener(cancel);
+        }
+        final Response response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            if (signal != null) {
+                signal.removeOnCancelListener(cancel);
+            }
+            throw e;
+        }
+
+        ResponseBody body = response.body();
+        return new HttpResponse(response.code(), readHeaders(response.headers()),
+                response.isSuccessful() && body != null ? body.byteStream() : null,
+                new Closeable() {
+                    @Override
+                    public void close() {
+                        if (signal != null) {
+                            signal.removeOnCancelListener(cancel);
+                        }
+                        //Closing the response hands the connection back to the pool
+                        response.close();
+                    }
+                }, new Closeable() {
+                    @Override
+                    public void close() {
+                        call.cancel();
+                    }
+                });
+    }
+
+    private static Map<String, String> readHeaders(Headers headers) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < headers.size(); i++) {
+            map.put(headers.name(i), headers.value(i));
+        }
+        return map;
+    }
+
+    /*
+     * Times the DNS lookup, the connection and the TLS handshake of a call. A call that reuses a
+     * pooled connection does none of these, so nothing is recorded for it.
+     */
+    private static class ConnectionTimer extends EventListener {
+
+        private final PipelineMetrics mMetrics;
+        private long mDnsStart;
+        private long mConnectStart;
+        private long mSecureConnectStart;
+
+        ConnectionTimer(PipelineMetrics metrics) {
+            mMetrics = metrics;
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            mDnsStart = mMetrics.startTimer();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            mMetrics.stopTimer(PipelineMetrics.Stage.DNS, mDnsStart);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            mConnectStart = mMetrics.startTimer();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            mSecureConnectStart = mMetrics.startTimer();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            mMetrics.stopTimer(PipelineMetrics.Stage.TLS, mSecureConnectStart);
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            mMetrics.stopTimer(PipelineMetrics.Stage.CONNECT, mConnectStart);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.android.newsapp;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Records how long each stage of loading the feed takes and counts what went through it, so a
+ * slow refresh can be traced to the connection, the server, parsing or binding the list.
+ * Durations go into histograms, everything else into counters. While the metrics are disabled
+ * nothing is measured or recorded.
+ */
+public class PipelineMetrics {
+
+    /*
+     * The stages of a load that are timed
+     */
+    public enum Stage {
+        //Looking up the address of the host
+        DNS,
+        //Opening the connection, including the TLS handshake
+        CONNECT,
+        //Only the TLS handshake
+        TLS,
+        //From sending the request until the response headers arrived
+        FIRST_BYTE,
+        //Reading and parsing the response body, which happens while it is downloaded
+        PARSE,
+        //The whole background part of a load, including retries and reading the cache
+        LOAD,
+        //From the result of a load arriving until the list shows it
+        BIND,
+        //Binding a single row of the list
+        BIND_ROW,
+        //Reading the snapshot of the feed when the app starts
+        SNAPSHOT,
+        //From the activity being created until the list shows articles, from the snapshot or a load
+        FIRST_CONTENT
+    }
+
+    /*
+     * The things that are counted
+     */
+    public enum Counter {
+        //Requests that got a response
+        REQUESTS,
+        //Requests that failed without a response
+        FAILURES,
+        //Bytes read from response bodies, after decompression
+        BYTES_READ,
+        //Articles parsed from response bodies
+        ARTICLES_PARSED,
+        //Loads that were run in the background
+        LOADS,
+        //Results that were left out because they could not be turned into an article
+        ARTICLES_SKIPPED,
+        //Fields of a result that had the wrong type or could not be read, the article is kept
+        //without them, except for a missing URL
+        INVALID_TITLE,
+        INVALID_SECTION,
+        INVALID_URL,
+        INVALID_DATE,
+        INVALID_AUTHOR,
+        INVALID_TAG,
+        INVALID_THUMBNAIL,
+        INVALID_TRAIL_TEXT,
+        INVALID_WORD_COUNT,
+        //Requests that had to wait for the request quota before they were sent
+        QUOTA_WAITS,
+        //Requests that were dropped while they waited for the quota, because a more urgent request
+        //asked for the same URL
+        QUOTA_SUPERSEDED,
+        //Requests that stopped waiting for the quota because they were cancelled
+        QUOTA_CANCELLED,
+        //Requests that were not sent because they were not visible and most of the daily quota was used
+        QUOTA_REFUSED
+    }
+
+    //The one instance that is shared by the whole app
+    private static final PipelineMetrics sInstance = new PipelineMetrics();
+
+    //Whether anything is recorded
+    private volatile boolean mEnabled;
+
+    private final Histogram[] mHistograms = new Histogram[Stage.values().length];
+    private final AtomicLong[] mCounters = new AtomicLong[Counter.values().length];
+
+    //Constructs new PipelineMetrics, which start out disabled
+    public PipelineMetrics() {
+        for (int i = 0; i < mHistograms.length; i++) {
+            mHistograms[i] = new Histogram();
+        }
+        for (int i = 0; i < mCounters.length; i++) {
+            mCounters[i] = new AtomicLong();
+        }
+    }
+
+    /*
+     * Returns the PipelineMetrics that are shared by the whole app
+     */
+    public static PipelineMetrics getInstance() {
+        return sInstance;
+    }
+
+    //Turns recording on or off
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    //Returns whether anything is recorded
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /*
+     * Returns the time a stage starts, to pass to stopTimer when it ends, or 0 while disabled
+     */
+    public long startTimer() {
+        return mEnabled ? System.nanoTime() : 0;
+    }
+
+    /*
+     * Record the time since startTimer returned startNanos as the duration of the stage
+     */
+    public void stopTimer(Stage stage, long startNanos) {
+        if (mEnabled && startNanos != 0) {
+            recordNanos(stage, System.nanoTime() - startNanos);
+        }
+    }
+
+    /*
+     * Record a duration of the stage in nanoseconds
+     */
+    public void recordNanos(Stage stage, long nanos) {
+        if (mEnabled) {
+            mHistograms[stage.ordinal()].record(nanos / 1000);
+        }
+    }
+
+    /*
+     * Add the amount to the counter
+     */
+    public void increment(Counter counter, long amount) {
+        if (mEnabled) {
+            mCounters[counter.ordinal()].addAndGet(amount);
+        }
+    }
+
+    //Returns the histogram of the durations of the stage
+    public Histogram getHistogram(Stage stage) {
+        return mHistograms[stage.ordinal()];
+    }
+
+    //Returns the current value of the counter
+    public long getCount(Counter counter) {
+        return mCounters[counter.ordinal()].get();
+    }
+
+    /*
+     * Forget everything that was recorded
+     */
+    public void reset() {
+        for (Histogram histogram : mHistograms) {
+            histogram.reset();
+        }
+        for (AtomicLong counter : mCounters) {
+            counter.set(0);
+        }
+    }
+
+    /*
+     * Returns everything that was recorded as text, one stage or counter per line
+     */
+    public String dump() {
+        StringBuilder dump = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            Histogram histogram = getHistogram(stage);
+            dump.append(String.format(Locale.US, "%-10s count=%d mean=%.1fms p50=%.1fms p99=%.1fms max=%.1fms%n",
+                    stage, histogram.getCount(), histogram.getMeanMicros() / 1000.0,
+                    histogram.getPercentileMicros(50) / 1000.0, histogram.getPercentileMicros(99) / 1000.0,
+                    histogram.getMaxMicros() / 1000.0));
+        }
+        for (Counter counter : Counter.values()) {
+            dump.append(String.format(Locale.US, "%-15s %d%n", counter, getCount(counter)));
+        }
+        return dump.toString();
+    }
+
+    @Override
+    public String toString() {
+        return dump();
+    }
+
+    /*
+     * Durations in microseconds, counted in buckets that each cover twice the range of the one
+     * before, so recording is cheap and the memory used is fixed. Percentiles are accurate to
+     * the bucket a value falls in.
+     */
+    public static class Histogram {
+
+        //Bucket i holds the values below 2^i microseconds, the last one everything above 2^30
+        private static final int BUCKET_COUNT = 32;
+
+        private final long[] mBuckets = new long[BUCKET_COUNT];
+        private long mCount;
+        private long mSumMicros;
+        private long mMaxMicros;
+
+        synchronized void record(long micros) {
+            micros = Math.max(0, micros);
+            int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+            mBuckets[bucket]++;
+            mCount++;
+            mSumMicros += micros;
+            mMaxMicros = Math.max(mMaxMicros, micros);
+        }
+
+        synchronized void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                mBuckets[i] = 0;
+            }
+            mCount = 0;
+            mSumMicros = 0;
+            mMaxMicros = 0;
+        }
+
+        //Returns the number of recorded durations
+        public synchronized long getCount() {
+            return mCount;
+        }
+
+        //Returns the average duration in microseconds
+        public synchronized long getMeanMicros() {
+            return mCount == 0 ? 0 : mSumMicros / mCount;
+        }
+
+        //Returns the longest duration in microseconds
+        public synchronized long getMaxMicros() {
+            return mMaxMicros;
+        }
+
+        /*
+         * Returns the upper bound of the bucket the percentile falls in, but never more than the
+         * longest duration
+         */
+        public synchronized long getPercentileMicros(double percentile) {
+            if (mCount == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile / 100 * mCount);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank && mBuckets[i] > 0) {
+                    return Math.min(mMaxMicros, (1L << i) - 1);
+                }
+            }
+            return mMaxMicros;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/*
+ * Process-wide in-memory cache of the articles of each query, shared by all loaders.
+ * Entries are kept in least-recently-used order and become stale after a time-to-live, but stale
+ * entries are still handed out so they can be shown while a fresh copy is loaded. Identical
+ * queries that are loaded at the same time share a single request, unless the one in flight is
+ * less urgent: a prefetch may wait for the quota or be refused, so a visible load sends its own
+ * request and the prefetch takes over its result. A load that shares a request can stop waiting
+ * for it on its own, and sends the request again when the load it shared it with was cancelled.
+ */
+public class QueryCache {
+
+    //The cache holds the 20 most recently used queries, which are fresh for 5 minutes
+    private static final int MAX_ENTRIES = 20;
+    private static final long TIME_TO_LIVE_MILLIS = 5 * 60 * 1000;
+
+    //Query parameter that is left out of the cache key because it does not change the results
+    private static final String API_KEY_PARAMETER = "api-key";
+
+    //Query parameter that is left out of the cache key because the window it sets rolls forward
+    //every day, while the feed it asks for stays the same
+    private static final String FROM_DATE_PARAMETER = "from-date";
+
+    //The one instance that is shared by all loaders of the app
+    private static final QueryCache sInstance = new QueryCache(MAX_ENTRIES, TIME_TO_LIVE_MILLIS);
+
+    //Entries by normalized URL, in access order so the eldest entry is the least recently used
+    private final LinkedHashMap<String, Entry> mEntries;
+
+    //Requests that are currently being loaded, by normalized URL
+    private final ConcurrentHashMap<String, InFlight> mInFlight = new ConcurrentHashMap<>();
+
+    private final long mTimeToLiveMillis;
+
+    /*
+     * Loads the articles of a query when they are not in the cache
+     */
+    public interface Fetcher {
+        NewsResult fetch(String url);
+    }
+
+    /*
+     * A cached list of articles and the time it was stored
+     */
+    public class Entry {
+
+        private final List<NewsArticle> mArticles;
+        private final long mStoredAt;
+
+        Entry(List<NewsArticle> articles, long storedAt) {
+            mArticles = articles;
+            mStoredAt = storedAt;
+        }
+
+        //Returns the cached articles
+        public List<NewsArticle> getArticles() {
+            return mArticles;
+        }
+
+        //Returns whether the time-to-live of the entry has passed
+        public boolean isStale() {
+            return currentTimeMillis() - mStoredAt > mTimeToLiveMillis;
+        }
+    }
+
+    /*
+     * A request that is being loaded, how urgent it is and the signal of the load that sends it.
+     * Loads that wait for it are woken when it is done.
+     */
+    private static final class InFlight {
+        final FutureTask<NewsResult> mTask;
+        final LoadEngine.Priority mPriority;
+        final CancelSignal mSignal;
+
+        //The more urgent request that took over from this one, or null
+        volatile InFlight mOvertakenBy;
+
+        InFlight(Callable<NewsResult> fetch, LoadEngine.Priority priority, CancelSignal signal) {
+            mTask = new FutureTask<NewsResult>(fetch) {
+                @Override
+                protected void done() {
+                    synchronized (InFlight.this) {
+                        InFlight.this.notifyAll();
+                    }
+                }
+            };
+            mPriority = priority;
+            mSignal = signal;
+        }
+    }
+
+    //Constructs a new QueryCache
+    public QueryCache(final int maxEntries, long timeToLiveMillis) {
+        mTimeToLiveMillis = timeToLiveMillis;
+        mEntries = new LinkedHashMap<String, Entry>(maxEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /*
+     * Returns the QueryCache that is shared by the whole app
+     */
+    public static QueryCache getInstance() {
+        return sInstance;
+    }
+
+    /*
+     * Returns the cached entry of the query URL, fresh or stale, or null if there is none
+     */
+    public synchronized Entry peek(String url) {
+        return mEntries.get(normalize(url));
+    }
+
+    /*
+     * Store the articles of the query URL
+     */
+    public synchronized void put(String url, List<NewsArticle> articles) {
+        mEntries.put(normalize(url), new Entry(Collections.unmodifiableList(articles), currentTimeMillis()));
+    }
+
+    /*
+     * Remove every entry
+     */
+    public synchronized void clear() {
+        mEntries.clear();
+    }
+
+    /*
+     * Load the articles of the query URL with the fetcher as a visible load that is not cancelled
+     */
+    public NewsResult load(String url, Fetcher fetcher) {
+        return load(url, LoadEngine.Priority.VISIBLE, new CancelSignal(), fetcher);
+    }
+
+    /*
+     * Load the articles of the query URL with the fetcher and store them when they are fresh.
+     * When the same query is already being loaded on another thread at least as urgently, wait
+     * for that result instead of loading it again. The wait ends when the signal is cancelled,
+     * and when the load that was waited for was cancelled itself, the query is loaded again.
+     */
+    public NewsResult load(final String url, LoadEngine.Priority priority, CancelSignal signal,
+                           final Fetcher fetcher) {
+        String key = normalize(url);
+        while (true) {
+            InFlight own = new InFlight(new Callable<NewsResult>() {
+                @Override
+                public NewsResult call() {
+                    NewsResult result = fetcher.fetch(url);
+                    if (result.isFresh()) {
+                        put(url, result.getArticles());
+                    }
+                    return result;
+                }
+            }, priority, signal);
+
+            InFlight inFlight;
+            while (true) {
+                inFlight = mInFlight.putIfAbsent(key, own);
+                if (inFlight == null) {
+                    inFlight = own;
+                    break;
+                }
+                if (inFlight.mPriority.ordinal() <= priority.ordinal()) {
+                    break;
+                }
+                //The request in flight is less urgent, send this one instead of waiting behind it
+                if (mInFlight.replace(key, inFlight, own)) {
+                    inFlight.mOvertakenBy = own;
+                    inFlight = own;
+                    break;
+                }
+            }
+
+            if (inFlight == own) {
+                //No one else is loading this query, so load it on this thread
+                try {
+                    own.mTask.run();
+                } finally {
+                    mInFlight.remove(key, own);
+                }
+            }
+
+            NewsResult result = await(inFlight, signal);
+            //A request that was dropped for a more urgent one of the same query takes over its result
+            if (!result.isFresh() && inFlight.mOvertakenBy != null) {
+                inFlight = inFlight.mOvertakenBy;
+                result = await(inFlight, signal);
+            }
+
+            //The load this one waited for was cancelled, while this one is still wanted
+            if (inFlight != own && !result.isFresh() && inFlight.mSignal.isCancelled() && !signal.isCancelled()) {
+                mInFlight.remove(key, inFlight);
+                continue;
+            }
+            return result;
+        }
+    }
+
+    /*
+     * Wait for the result of the request in flight, or until the signal is cancelled
+     */
+    private static NewsResult await(final InFlight inFlight, CancelSignal signal) {
+        Runnable wake = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (inFlight) {
+                    inFlight.notifyAll();
+                }
+            }
+        };
+        signal.addOnCancelListener(wake);
+        try {
+            synchronized (inFlight) {
+                while (!inFlight.mTask.isDone()) {
+                    if (signal.isCancelled()) {
+                        return NewsResult.failure(0, null);
+                    }
+                    inFlight.wait();
+                }
+            }
+            return inFlight.mTask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return NewsResult.failure(0, null);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            signal.removeOnCancelListener(wake);
+        }
+    }
+
+    /*
+     * Returns the URL with its query parameters in a fixed order and without the api-key and
+     * from-date, so URLs that ask for the same feed map to the same entry
+     */
+    static String normalize(String url) {
+        int queryStart = url.indexOf('?');
+        if (queryStart < 0) {
+            return url;
+        }
+
+        List<String> parameters = new ArrayList<>();
+        for (String parameter : url.substring(queryStart + 1).split("&")) {
+            if (parameter.isEmpty() || parameter.startsWith(API_KEY_PARAMETER + "=")
+                    || parameter.startsWith(FROM_DATE_PARAMETER + "=")) {
+                continue;
+            }
+            parameters.add(parameter);
+        }
+        Collections.sort(parameters);
+
+        StringBuilder normalized = new StringBuilder(url.length());
+        normalized.append(url, 0, queryStart);
+        for (int i = 0; i < parameters.size(); i++) {
+            normalized.append(i == 0 ? '?' : '&').append(parameters.get(i));
+        }
+        return normalized.toString();
+    }
+
+    /*
+     * Returns the current time in milliseconds. Tests override this to move the clock.
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
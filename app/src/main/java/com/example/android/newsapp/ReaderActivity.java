@@ -0,0 +1,150 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.TextView;
+
+import java.io.IOException;
+
+/*
+ * Shows the text of an article in the app. An article that was prefetched is read from the
+ * device and opens right away, also without a connection; any other article is downloaded once
+ * and stored for the next time. The article can still be opened on the website from the menu.
+ */
+public class ReaderActivity extends AppCompatActivity {
+
+    //Tag for the log messages
+    private static final String LOG_TAG = ReaderActivity.class.getSimpleName();
+
+    //Extras of the intent that opens an article
+    private static final String EXTRA_URL = "com.example.android.newsapp.extra.URL";
+    private static final String EXTRA_TITLE = "com.example.android.newsapp.extra.TITLE";
+    private static final String EXTRA_BYLINE = "com.example.android.newsapp.extra.BYLINE";
+    private static final String EXTRA_DATE = "com.example.android.newsapp.extra.DATE";
+
+    //Website of the article
+    private String mUrl;
+
+    //Load of the text of the article, which is kept across configuration changes
+    private LoadEngine.Load<String> mLoad;
+
+    //Receives the text of the article, or null if it could not be loaded
+    private final LoadEngine.Receiver<String> mReceiver = new LoadEngine.Receiver<String>() {
+        @Override
+        public void onLoadResult(LoadEngine.Load<String> load, String text) {
+            showText(text);
+        }
+    };
+
+    /*
+     * Returns the intent that opens the article in the reader
+     */
+    public static Intent newIntent(Context context, NewsArticle article) {
+        return new Intent(context, ReaderActivity.class)
+                .putExtra(EXTRA_URL, article.getWebsite())
+                .putExtra(EXTRA_TITLE, article.getTitle())
+                .putExtra(EXTRA_BYLINE, article.getByline())
+                .putExtra(EXTRA_DATE, article.getDisplayDate());
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_reader);
+
+        Intent intent = getIntent();
+        mUrl = intent.getStringExtra(EXTRA_URL);
+        ((TextView) findViewById(R.id.reader_title_text_view)).setText(intent.getStringExtra(EXTRA_TITLE));
+        ((TextView) findViewById(R.id.reader_byline_text_view)).setText(intent.getStringExtra(EXTRA_BYLINE));
+        ((TextView) findViewById(R.id.reader_date_text_view)).setText(intent.getStringExtra(EXTRA_DATE));
+
+        //Pick up the load of the activity before a configuration change, or start a new one
+        @SuppressWarnings("unchecked")
+        LoadEngine.Load<String> retainedLoad = (LoadEngine.Load<String>) getLastCustomNonConfigurationInstance();
+        mLoad = retainedLoad != null
+                ? retainedLoad
+                : LoadEngine.getInstance().start(LoadEngine.Priority.VISIBLE, createJob(mUrl));
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        mLoad.attach(mReceiver);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        mLoad.detach();
+    }
+
+    @Override
+    public Object onRetainCustomNonConfigurationInstance() {
+        //The new activity takes over the load of the text
+        return mLoad;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (!isChangingConfigurations()) {
+            mLoad.cancel();
+        }
+    }
+
+    /*
+     * Returns the job that loads the text of the article, from the device when it is stored
+     */
+    private LoadEngine.Job<String> createJob(final String url) {
+        final ArticleBodyLoader loader = ArticleBodyLoader.getInstance(this);
+        return new LoadEngine.Job<String>() {
+            @Override
+            public String run(LoadEngine.Load<String> load) {
+                try {
+                    return loader.load(url, load.getCancelSignal());
+                } catch (IOException e) {
+                    if (!load.isCancelled()) {
+                        Log.e(LOG_TAG, "Problem loading the article", e);
+                    }
+                    return null;
+                }
+            }
+        };
+    }
+
+    /*
+     * Show the text of the article, or tell the user it could not be loaded
+     */
+    private void showText(String text) {
+        findViewById(R.id.reader_loading_indicator).setVisibility(View.GONE);
+        TextView bodyTextView = (TextView) findViewById(R.id.reader_body_text_view);
+        if (text == null || text.isEmpty()) {
+            bodyTextView.setText(R.string.article_unavailable);
+        } else {
+            bodyTextView.setText(text);
+        }
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.reader, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_open_in_browser) {
+            //Send a web intent to open the article on the website
+            startActivity(new Intent(Intent.ACTION_VIEW, Uri.parse(mUrl)));
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Keeps the app within the request quota of its api-key. Every request to the Guardian takes a
+ * token from a bucket that fills up at a steady rate, so a burst of rotations, pages and
+ * sections waits for a moment instead of being answered with 429. Requests that wait are served
+ * by priority: what the user is looking at goes before what is fetched ahead. A waiting request
+ * that is cancelled, or whose URL is asked for again by a more urgent request, is dropped
+ * without using a token. Once most of the daily quota is used only visible requests are sent,
+ * so prefetching can not leave the user without a feed for the rest of the day.
+ *
+ * The number of requests of the current day is kept in the preferences, so it survives the
+ * process. Days follow UTC, like the quota of the server.
+ */
+public class RequestScheduler {
+
+    //Name of the preferences file the usage of the day is kept in
+    private static final String PREFERENCES = "request_quota";
+    private static final String KEY_DAY = "day";
+    private static final String KEY_USED = "used";
+
+    //A developer key may make 12 calls a second and 5000 a day, stay a little below that
+    private static final int BURST = 10;
+    private static final double REQUESTS_PER_SECOND = 10;
+    private static final int DAILY_LIMIT = 5000;
+
+    //Part of the daily quota that requests which are not visible may use
+    private static final double BACKGROUND_SHARE = 0.8;
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final long SECOND_NANOS = 1000000000L;
+
+    //The one instance that is shared by the whole app
+    private static RequestScheduler sInstance;
+
+    //Keeps the usage of the day, or null in tests
+    private final SharedPreferences mPreferences;
+
+    private final int mBurst;
+    private final double mRequestsPerSecond;
+    private final int mDailyLimit;
+    private final int mBackgroundLimit;
+
+    //Counts the waits, drops and refusals
+    private final PipelineMetrics mMetrics;
+
+    //The fields below are guarded by this
+    private double mTokens;
+    private long mRefilledNanos;
+    private long mDay;
+    private int mUsedToday;
+    private long mSequence;
+
+    //Requests that wait for a token, most urgent first
+    private final List<Waiter> mWaiters = new ArrayList<>();
+
+    //Constructs a new RequestScheduler whose bucket starts out full
+    RequestScheduler(SharedPreferences preferences, int burst, double requestsPerSecond, int dailyLimit,
+                     PipelineMetrics metrics) {
+        mPreferences = preferences;
+        mBurst = burst;
+        mRequestsPerSecond = requestsPerSecond;
+        mDailyLimit = dailyLimit;
+        mBackgroundLimit = (int) (dailyLimit * BACKGROUND_SHARE);
+        mMetrics = metrics;
+        mTokens = burst;
+        mRefilledNanos = System.nanoTime();
+        mDay = currentTimeMillis() / DAY_MILLIS;
+        if (preferences != null && preferences.getLong(KEY_DAY, -1) == mDay) {
+            mUsedToday = preferences.getInt(KEY_USED, 0);
+        }
+    }
+
+    /*
+     * Returns the RequestScheduler that is shared by the whole app
+     */
+    public static synchronized RequestScheduler getInstance(Context context) {
+        if (sInstance == null) {
+            SharedPreferences preferences = context.getApplicationContext()
+                    .getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+            sInstance = new RequestScheduler(preferences, BURST, REQUESTS_PER_SECOND, DAILY_LIMIT,
+                    PipelineMetrics.getInstance());
+        }
+        return sInstance;
+    }
+
+    /*
+     * Wait until the request for the URL may be sent and take a token for it. Returns false
+     * when it must not be sent: the signal was cancelled, a more urgent request for the same
+     * URL came in while it waited, or it is not visible and most of the daily quota is used.
+     */
+    public boolean acquire(LoadEngine.Priority priority, String url, CancelSignal signal) {
+        Waiter waiter;
+        synchronized (this) {
+            startDay();
+            if (priority != LoadEngine.Priority.VISIBLE && mUsedToday >= mBackgroundLimit) {
+                mMetrics.increment(PipelineMetrics.Counter.QUOTA_REFUSED, 1);
+                return false;
+            }
+
+            //A less urgent request for the same URL would only repeat this one
+            for (Waiter other : mWaiters) {
+                if (other.mUrl.equals(url) && other.mPriority.ordinal() > priority.ordinal()) {
+                    other.mSuperseded = true;
+                }
+            }
+            waiter = new Waiter(priority, url, mSequence++);
+            int index = 0;
+            while (index < mWaiters.size() && mWaiters.get(index).comesBefore(waiter)) {
+                index++;
+            }
+            mWaiters.add(index, waiter);
+            notifyAll();
+        }
+
+        //Wake up the waiting thread when the request is no longer wanted
+        Runnable wake = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (RequestScheduler.this) {
+                    RequestScheduler.this.notifyAll();
+                }
+            }
+        };
+        signal.addOnCancelListener(wake);
+        try {
+            synchronized (this) {
+                boolean waited = false;
+                while (true) {
+                    if (waiter.mSuperseded || signal.isCancelled()) {
+                        mWaiters.remove(waiter);
+                        notifyAll();
+                        mMetrics.increment(waiter.mSuperseded ? PipelineMetrics.Counter.QUOTA_SUPERSEDED
+                                : PipelineMetrics.Counter.QUOTA_CANCELLED, 1);
+                        return false;
+                    }
+
+                    refill();
+                    boolean first = mWaiters.get(0) == waiter;
+                    if (first && mTokens >= 1) {
+                        mTokens--;
+                        mWaiters.remove(0);
+                        startDay();
+                        mUsedToday++;
+                        if (mPreferences != null) {
+                            mPreferences.edit().putLong(KEY_DAY, mDay).putInt(KEY_USED, mUsedToday).apply();
+                        }
+                        if (waited) {
+                            mMetrics.increment(PipelineMetrics.Counter.QUOTA_WAITS, 1);
+                        }
+                        //The next one may be able to go as well
+                        notifyAll();
+                        return true;
+                    }
+
+                    //The first waiter sleeps until the next token, the others until they are first
+                    waited = true;
+                    if (first) {
+                        long waitNanos = (long) ((1 - mTokens) * SECOND_NANOS / mRequestsPerSecond);
+                        wait(Math.max(1, waitNanos / 1000000));
+                    } else {
+                        wait();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            synchronized (this) {
+                mWaiters.remove(waiter);
+                notifyAll();
+            }
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            signal.removeOnCancelListener(wake);
+        }
+    }
+
+    //Returns the number of requests that were sent today
+    public synchronized int getUsedToday() {
+        startDay();
+        return mUsedToday;
+    }
+
+    //Returns the number of requests the api-key may make in a day
+    public int getDailyLimit() {
+        return mDailyLimit;
+    }
+
+    //Returns the number of requests that are waiting for a token
+    public synchronized int getWaitingCount() {
+        return mWaiters.size();
+    }
+
+    /*
+     * Returns the current time in milliseconds. Tests override this to move to another day.
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    //Add the tokens that came in since the last refill, up to the burst
+    private void refill() {
+        long now = System.nanoTime();
+        mTokens = Math.min(mBurst, mTokens + (now - mRefilledNanos) * mRequestsPerSecond / SECOND_NANOS);
+        mRefilledNanos = now;
+    }
+
+    //Start counting from 0 when a new day began
+    private void startDay() {
+        long day = currentTimeMillis() / DAY_MILLIS;
+        if (day != mDay) {
+            mDay = day;
+            mUsedToday = 0;
+        }
+    }
+
+    /*
+     * A request that waits for a token
+     */
+    private static final class Waiter {
+        final LoadEngine.Priority mPriority;
+        final String mUrl;
+        final long mSequence;
+        boolean mSuperseded;
+
+        Waiter(LoadEngine.Priority priority, String url, long sequence) {
+            mPriority = priority;
+            mUrl = url;
+            mSequence = sequence;
+        }
+
+        //Returns whether this request is served before the other one
+        boolean comesBefore(Waiter other) {
+            if (mPriority != other.mPriority) {
+                return mPriority.ordinal() < other.mPriority.ordinal();
+            }
+            return mSequence < other.mSequence;
+        }
+    }
+}
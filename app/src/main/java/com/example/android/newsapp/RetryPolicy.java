@@ -0,0 +1,97 @@
+package com.example.android.newsapp;
+
+import java.net.HttpURLConnection;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/*
+ * Decides whether a failed request is retried and how long to wait before the next attempt.
+ * The delay grows exponentially with full jitter, so clients that failed together do not retry
+ * together, and a Retry-After header from the server takes precedence.
+ */
+public class RetryPolicy {
+
+    //HTTP status code for too many requests, which HttpURLConnection has no constant for
+    public static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    //Format of a Retry-After header that holds a date instead of a number of seconds
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    private final int mMaxAttempts;
+    private final long mBaseDelayMillis;
+    private final long mMaxDelayMillis;
+    private final Random mRandom;
+
+    //Constructs a new RetryPolicy
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, Random random) {
+        mMaxAttempts = maxAttempts;
+        mBaseDelayMillis = baseDelayMillis;
+        mMaxDelayMillis = maxDelayMillis;
+        mRandom = random;
+    }
+
+    //Returns the number of attempts including the first one
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    //Returns the longest time that is waited between two attempts
+    public long getMaxDelayMillis() {
+        return mMaxDelayMillis;
+    }
+
+    /*
+     * Returns whether a response with this status code is worth trying again. A code of 0
+     * means there was no response at all, for example because the connection failed.
+     */
+    public static boolean isRetryable(int code) {
+        return code == 0
+                || code == HTTP_TOO_MANY_REQUESTS
+                || code == HttpURLConnection.HTTP_INTERNAL_ERROR
+                || code == HttpURLConnection.HTTP_BAD_GATEWAY
+                || code == HttpURLConnection.HTTP_UNAVAILABLE
+                || code == HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+    }
+
+    /*
+     * Returns the time to wait before the attempt after the given one, which starts at 1.
+     * This is a random time between zero and the exponential backoff for that attempt.
+     */
+    public long backoffMillis(int attempt) {
+        long ceiling = mBaseDelayMillis << Math.min(attempt - 1, 30);
+        if (ceiling <= 0 || ceiling > mMaxDelayMillis) {
+            ceiling = mMaxDelayMillis;
+        }
+        return (long) (mRandom.nextDouble() * ceiling);
+    }
+
+    /*
+     * Returns the number of milliseconds the Retry-After header asks to wait, or -1 if the
+     * header is missing or can not be read. The header holds either seconds or a date.
+     */
+    public static long parseRetryAfter(String retryAfter, long nowMillis) {
+        if (retryAfter == null) {
+            return -1;
+        }
+
+        String value = retryAfter.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            //Not a number of seconds, so try to read it as a date
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            Date date = format.parse(value);
+            return Math.max(0, date.getTime() - nowMillis);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+}
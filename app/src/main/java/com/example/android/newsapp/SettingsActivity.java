@@ -3,10 +3,17 @@ package com.example.android.newsapp;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.preference.ListPreference;
+import android.preference.MultiSelectListPreference;
 import android.preference.Preference;
 import android.preference.PreferenceFragment;
 import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 public class SettingsActivity extends AppCompatActivity {
 
@@ -24,11 +31,14 @@ public class SettingsActivity extends AppCompatActivity {
 
             Preference orderBy = findPreference(getString(R.string.settings_order_by_key));
             bindPreferenceSummaryToValue(orderBy);
+
+            Preference sections = findPreference(getString(R.string.settings_sections_key));
+            bindSectionsSummaryToValue(sections);
         }
 
         @Override
         public boolean onPreferenceChange(Preference preference, Object value) {
-            String stringValue = value.toString();
+            String stringValue = String.valueOf(value);
 
             if (preference instanceof ListPreference) {
                 ListPreference listPreference = (ListPreference) preference;
@@ -37,6 +47,18 @@ public class SettingsActivity extends AppCompatActivity {
                     CharSequence[] labels = listPreference.getEntries();
                     preference.setSummary(labels[prefIndex]);
                 }
+            } else if (preference instanceof MultiSelectListPreference) {
+                //Show the labels of all selected sections
+                MultiSelectListPreference multiSelectPreference = (MultiSelectListPreference) preference;
+                CharSequence[] labels = multiSelectPreference.getEntries();
+                List<String> selected = new ArrayList<>();
+                for (Object section : (Set<?>) value) {
+                    int prefIndex = multiSelectPreference.findIndexOfValue(section.toString());
+                    if (prefIndex >= 0) {
+                        selected.add(labels[prefIndex].toString());
+                    }
+                }
+                preference.setSummary(TextUtils.join(", ", selected));
             } else {
 
                 preference.setSummary(stringValue);
@@ -51,5 +73,13 @@ public class SettingsActivity extends AppCompatActivity {
             String preferenceString = preferences.getString(preference.getKey(), "");
             onPreferenceChange(preference, preferenceString);
         }
+
+        private void bindSectionsSummaryToValue(Preference preference) {
+            preference.setOnPreferenceChangeListener(this);
+            SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(preference.getContext());
+            Set<String> sections = preferences.getStringSet(preference.getKey(),
+                    Collections.singleton(getString(R.string.settings_section_default)));
+            onPreferenceChange(preference, sections);
+        }
     }
 }
@@ -0,0 +1,54 @@
+package com.example.android.newsapp;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Hands out one shared instance for every equal String, so values that repeat in every
+ * response, like section names and contributors, are only kept in memory once. Unlike
+ * String.intern the pool is bounded: once it is full, new values are returned as they are.
+ */
+public class StringPool {
+
+    //Sections, contributors and tag ids of every response and every cached batch go through
+    //the same pool. A few thousand of them are used by the sections the app shows.
+    private static final StringPool sInstance = new StringPool(8192);
+
+    private final int mMaxSize;
+    private final Map<String, String> mStrings = new HashMap<>();
+
+    //Constructs a new StringPool that holds at most maxSize strings
+    public StringPool(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /*
+     * Returns the StringPool that is shared by the whole app
+     */
+    public static StringPool getInstance() {
+        return sInstance;
+    }
+
+    /*
+     * Returns the pooled instance that is equal to the value, or the value itself when it is
+     * the first of its kind
+     */
+    public synchronized String intern(String value) {
+        if (value == null || value.isEmpty()) {
+            return value;
+        }
+        String pooled = mStrings.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (mStrings.size() < mMaxSize) {
+            mStrings.put(value, value);
+        }
+        return value;
+    }
+
+    //Returns the number of strings in the pool
+    public synchronized int size() {
+        return mStrings.size();
+    }
+}
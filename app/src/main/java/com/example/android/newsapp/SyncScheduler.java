@@ -0,0 +1,119 @@
+package com.example.android.newsapp;
+
+import android.annotation.TargetApi;
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.SystemClock;
+
+import java.util.List;
+
+/*
+ * Schedules the periodic background sync of the followed sections. From Lollipop on it is a
+ * JobScheduler job that only runs with a network connection. From Oreo on the job also waits
+ * until the battery is not low; before that, and with the inexact alarm of older versions that
+ * does not wake the device up, the sync checks the battery itself when it runs.
+ */
+public final class SyncScheduler {
+
+    //ID of the sync job
+    private static final int SYNC_JOB_ID = 1;
+
+    //Below this battery level in percent the sync only runs while charging
+    private static final int LOW_BATTERY_PERCENT = 15;
+
+    /*
+     * This is a private constructor, because the class only holds static methods.
+     */
+    private SyncScheduler() {
+    }
+
+    /*
+     * Schedule the periodic sync, unless it is already scheduled. The time between two syncs
+     * comes from the profile of the current link, metered links sync less often.
+     */
+    public static void schedule(Context context) {
+        Context appContext = context.getApplicationContext();
+        long intervalMillis = FetchPolicy.getInstance(appContext).getProfile().getSyncIntervalMillis();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            scheduleJob(appContext, intervalMillis);
+        } else {
+            scheduleAlarm(appContext, intervalMillis);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static void scheduleJob(Context context, long intervalMillis) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        List<JobInfo> pendingJobs = scheduler.getAllPendingJobs();
+        for (JobInfo job : pendingJobs) {
+            //A job with another interval is replaced, scheduling a job with the same ID does that
+            if (job.getId() == SYNC_JOB_ID && job.getIntervalMillis() == intervalMillis) {
+                return;
+            }
+        }
+
+        JobInfo.Builder job = new JobInfo.Builder(SYNC_JOB_ID, new ComponentName(context, FeedSyncJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setPeriodic(intervalMillis)
+                .setPersisted(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            job.setRequiresBatteryNotLow(true);
+        }
+        scheduler.schedule(job.build());
+    }
+
+    /*
+     * An alarm that is already set keeps its interval, because it can not be read back
+     */
+    private static void scheduleAlarm(Context context, long intervalMillis) {
+        Intent intent = new Intent(context, FeedSyncReceiver.class);
+        if (PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_NO_CREATE) != null) {
+            return;
+        }
+
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME,
+                SystemClock.elapsedRealtime() + intervalMillis, intervalMillis,
+                PendingIntent.getBroadcast(context, 0, intent, 0));
+    }
+
+    /*
+     * Returns whether the battery is low and not charging, so the sync should wait. Versions
+     * before Oreo can not make the job wait for it, so the sync checks this when it runs.
+     */
+    static boolean isBatteryLow(Context context) {
+        //The battery state is a sticky broadcast, so it can be read without a receiver
+        Intent battery = context.getApplicationContext()
+                .registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null) {
+            return false;
+        }
+        int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        boolean charging = status == BatteryManager.BATTERY_STATUS_CHARGING
+                || status == BatteryManager.BATTERY_STATUS_FULL;
+        int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        return !charging && level >= 0 && scale > 0 && level * 100 / scale < LOW_BATTERY_PERCENT;
+    }
+
+    /*
+     * Refresh the followed sections and store how many new articles were found. This does
+     * network requests, so it must not run on the main thread.
+     */
+    static FeedSyncer.Result syncFollowedSections(Context context) {
+        FeedSettings settings = new FeedSettings(context);
+        FeedSyncer syncer = new FeedSyncer(NewsRepository.getInstance(context), QueryCache.getInstance(),
+                ArticleSearchIndex.getInstance());
+        FeedSyncer.Result result = syncer.sync(settings.buildQueryUrls(1));
+        settings.recordSync(result, System.currentTimeMillis());
+        return result;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.android.newsapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Stores downloaded thumbnail images in files on disk, so a thumbnail is only downloaded once.
+ * The files are kept as they were downloaded and decoded at the size they are shown. When the
+ * cache grows beyond its size limit, the least recently used files are deleted.
+ */
+public class ThumbnailDiskCache {
+
+    //Extension of the cache files
+    private static final String FILE_EXTENSION = ".thumbnail";
+
+    //Extension of files that are still being written
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    //Directory the cache files are stored in
+    private final File mDirectory;
+
+    //Maximum number of bytes all cache files together may take up
+    private final long mMaxBytes;
+
+    //Constructs a new ThumbnailDiskCache
+    public ThumbnailDiskCache(File directory, long maxBytes) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+    }
+
+    /*
+     * Returns the file of the thumbnail URL, or null if it is not cached. The file is marked as
+     * used, so it is the last to be deleted.
+     */
+    public synchronized File get(String url) {
+        File file = fileFor(url);
+        if (!file.exists()) {
+            return null;
+        }
+        file.setLastModified(currentTimeMillis());
+        return file;
+    }
+
+    /*
+     * Store the image that is read from the stream for the thumbnail URL and return its file.
+     * The image is written to a temporary file first, so the cache never holds half an image.
+     */
+    public File put(String url, InputStream in) throws IOException {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Could not create cache directory " + mDirectory);
+        }
+
+        //Every download gets its own temporary file, the streams are copied outside of the lock
+        File temp = File.createTempFile(ArticleDiskCache.hash(url), TEMP_EXTENSION, mDirectory);
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+
+        synchronized (this) {
+            File file = fileFor(url);
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Could not move cache file into place " + file);
+            }
+            file.setLastModified(currentTimeMillis());
+            trimToSize();
+            return file;
+        }
+    }
+
+    /*
+     * Delete the least recently used files until the cache fits in its size limit
+     */
+    synchronized void trimToSize() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        List<File> cacheFiles = new ArrayList<>();
+        long totalBytes = 0;
+        for (File file : files) {
+            if (file.getName().endsWith(FILE_EXTENSION)) {
+                cacheFiles.add(file);
+                totalBytes += file.length();
+            }
+        }
+        if (totalBytes <= mMaxBytes) {
+            return;
+        }
+
+        //Files are only marked as used while the lock is held, so their times do not change here
+        Collections.sort(cacheFiles, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long difference = first.lastModified() - second.lastModified();
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+
+        for (File file : cacheFiles) {
+            if (totalBytes <= mMaxBytes) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                totalBytes -= length;
+            }
+        }
+    }
+
+    /*
+     * Returns the current time in milliseconds. Tests override this to move the clock.
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /*
+     * Returns the file that stores the thumbnail URL, named after a hash of the URL
+     */
+    private File fileFor(String url) {
+        return new File(mDirectory, ArticleDiskCache.hash(url) + FILE_EXTENSION);
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Loads the thumbnails of the articles into the rows of the list. A thumbnail is downloaded
+ * once into a disk cache, decoded at the size it is shown rather than its full size, and kept
+ * in a memory cache that is bounded by the bytes of its bitmaps. When a row is recycled before
+ * its thumbnail arrived, the request is cancelled, so a fling does not queue up images of rows
+ * that are long gone. Rows that are about to scroll into view can be prefetched; those requests
+ * wait until the visible rows have their thumbnails.
+ */
+public class ThumbnailLoader {
+
+    //Tag for the log messages
+    private static final String LOG_TAG = ThumbnailLoader.class.getSimpleName();
+
+    //Directory in the cache directory of the app the thumbnails are stored in
+    private static final String CACHE_DIRECTORY = "thumbnails";
+
+    //The thumbnails on disk take up at most 10 MB
+    private static final long DISK_CACHE_MAX_BYTES = 10 * 1024 * 1024;
+
+    //The bitmaps in memory take up at most an eighth of the heap the app may use
+    private static final int MEMORY_CACHE_FRACTION = 8;
+
+    //Number of thumbnails that are loaded at the same time
+    private static final int THREADS = 2;
+
+    //Requests for visible rows are run before prefetches
+    private static final int PRIORITY_VISIBLE = 0;
+    private static final int PRIORITY_PREFETCH = 1;
+
+    private static ThumbnailLoader sInstance;
+
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final ThumbnailDiskCache mDiskCache;
+    private final HttpTransport mTransport;
+    private final ThreadPoolExecutor mExecutor;
+
+    //Runs the results on the main thread
+    private final Executor mMainThread;
+
+    //Size in pixels the thumbnails are shown at
+    private final int mTargetWidth;
+    private final int mTargetHeight;
+
+    //The request that is loading the thumbnail of each view. Only used on the main thread, and
+    //a view is removed as soon as its request finished or was cancelled.
+    private final Map<ImageView, Request> mRequests = new HashMap<>();
+
+    //Downloads in progress by URL, so a prefetch and a row that ask for the same thumbnail
+    //download it only once
+    private final ConcurrentHashMap<String, FutureTask<File>> mDownloads = new ConcurrentHashMap<>();
+
+    //Orders requests of the same priority by the time they were made
+    private final AtomicLong mSequence = new AtomicLong();
+
+    //Constructs a new ThumbnailLoader
+    ThumbnailLoader(ThumbnailDiskCache diskCache, HttpTransport transport, int targetWidth, int targetHeight,
+                    int threads, Executor mainThread) {
+        mMainThread = mainThread;
+        mDiskCache = diskCache;
+        mTransport = transport;
+        mTargetWidth = targetWidth;
+        mTargetHeight = targetHeight;
+
+        int maxKilobytes = (int) (Runtime.getRuntime().maxMemory() / 1024 / MEMORY_CACHE_FRACTION);
+        mMemoryCache = new LruCache<String, Bitmap>(maxKilobytes) {
+            @Override
+            protected int sizeOf(String url, Bitmap bitmap) {
+                return bitmap.getByteCount() / 1024;
+            }
+        };
+
+        mExecutor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /*
+     * Returns the ThumbnailLoader that is shared by the whole app
+     */
+    public static synchronized ThumbnailLoader getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            final Handler mainHandler = new Handler(Looper.getMainLooper());
+            sInstance = new ThumbnailLoader(
+                    new ThumbnailDiskCache(new File(appContext.getCacheDir(), CACHE_DIRECTORY), DISK_CACHE_MAX_BYTES),
+                    OkHttpTransport.getInstance(),
+                    appContext.getResources().getDimensionPixelSize(R.dimen.thumbnail_width),
+                    appContext.getResources().getDimensionPixelSize(R.dimen.thumbnail_height),
+                    THREADS,
+                    new Executor() {
+                        @Override
+                        public void execute(Runnable command) {
+                            mainHandler.post(command);
+                        }
+                    });
+        }
+        return sInstance;
+    }
+
+    /*
+     * Show the thumbnail at the URL in the view. A thumbnail that is in memory is shown right
+     * away, otherwise the view is cleared until it has been loaded. Must be called on the main thread.
+     */
+    public void load(ImageView view, String url) {
+        cancel(view);
+
+        Bitmap bitmap = mMemoryCache.get(url);
+        if (bitmap != null) {
+            view.setImageBitmap(bitmap);
+            return;
+        }
+
+        view.setImageDrawable(null);
+        Request request = new Request(view, url, PRIORITY_VISIBLE);
+        mRequests.put(view, request);
+        mExecutor.execute(request);
+    }
+
+    /*
+     * Stop loading a thumbnail into the view, because its row was recycled or shows another
+     * article now. Must be called on the main thread.
+     */
+    public void cancel(ImageView view) {
+        Request request = mRequests.remove(view);
+        if (request != null) {
+            //A download that is running is finished, so the thumbnail is cached for later
+            request.cancel(false);
+        }
+    }
+
+    //Returns the number of views that wait for their thumbnail. Must be called on the main thread.
+    int getLoadingCount() {
+        return mRequests.size();
+    }
+
+    /*
+     * Load the thumbnail at the URL into the memory cache, so it can be shown right away when
+     * its row scrolls into view
+     */
+    public void prefetch(String url) {
+        if (url.isEmpty() || mMemoryCache.get(url) != null) {
+            return;
+        }
+        mExecutor.execute(new Request(null, url, PRIORITY_PREFETCH));
+    }
+
+    /*
+     * Returns the thumbnail at the URL at the target size, from memory, disk or the network
+     */
+    private Bitmap loadBitmap(String url) throws IOException {
+        Bitmap bitmap = mMemoryCache.get(url);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
+        File file = mDiskCache.get(url);
+        if (file == null) {
+            file = download(url);
+        }
+        bitmap = decode(file, mTargetWidth, mTargetHeight);
+        if (bitmap == null) {
+            //Not an image, so do not keep it
+            file.delete();
+            throw new IOException("Could not decode the thumbnail " + url);
+        }
+        mMemoryCache.put(url, bitmap);
+        return bitmap;
+    }
+
+    /*
+     * Download the thumbnail into the disk cache. When it is already being downloaded on
+     * another thread, wait for that download instead.
+     */
+    private File download(final String url) throws IOException {
+        FutureTask<File> task = new FutureTask<>(new Callable<File>() {
+            @Override
+            public File call() throws IOException {
+                HttpResponse response = mTransport.execute(url, null, null);
+                try {
+                    if (response.getCode() != HttpURLConnection.HTTP_OK) {
+                        throw new IOException("Error response code: " + response.getCode());
+                    }
+                    return mDiskCache.put(url, response.getBody());
+                } finally {
+                    response.close();
+                }
+            }
+        });
+
+        FutureTask<File> inFlight = mDownloads.putIfAbsent(url, task);
+        if (inFlight == null) {
+            inFlight = task;
+            try {
+                task.run();
+            } finally {
+                mDownloads.remove(url, task);
+            }
+        }
+
+        try {
+            return inFlight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /*
+     * Decode the image in the file, scaled down by a power of two so it is not much larger than
+     * the target size. Returns null if the file is not an image.
+     */
+    private static Bitmap decode(File file, int targetWidth, int targetHeight) {
+        //Only read the size of the image first
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight);
+        options.inJustDecodeBounds = false;
+        //Photos have no transparency, so two bytes per pixel are enough
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        return BitmapFactory.decodeFile(file.getPath(), options);
+    }
+
+    /*
+     * Returns the largest power of two the image can be scaled down by while both its sides
+     * stay at least as large as the target
+     */
+    static int calculateInSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return sampleSize;
+        }
+        while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /*
+     * Loads one thumbnail on the executor and shows it in its view, unless it was cancelled.
+     * Requests for visible rows come before prefetches, and otherwise they are run in the order
+     * they were made.
+     */
+    private class Request extends FutureTask<Bitmap> implements Comparable<Request> {
+
+        //The view the thumbnail is shown in, or null for a prefetch
+        private final ImageView mView;
+        private final int mPriority;
+        private final long mSequence;
+
+        Request(ImageView view, final String url, int priority) {
+            super(new Callable<Bitmap>() {
+                @Override
+                public Bitmap call() throws IOException {
+                    return loadBitmap(url);
+                }
+            });
+            mView = view;
+            mPriority = priority;
+            mSequence = ThumbnailLoader.this.mSequence.getAndIncrement();
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            if (mPriority != other.mPriority) {
+                return mPriority < other.mPriority ? -1 : 1;
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence > other.mSequence ? 1 : 0);
+        }
+
+        @Override
+        protected void done() {
+            //A cancelled request was already forgotten by cancel
+            if (mView == null || isCancelled()) {
+                return;
+            }
+
+            Bitmap loaded = null;
+            try {
+                loaded = get();
+            } catch (InterruptedException | ExecutionException e) {
+                Log.e(LOG_TAG, "Problem loading the thumbnail", e);
+            }
+
+            //The view is forgotten whether or not the thumbnail loaded, so the loader that
+            //outlives the activity does not hold on to it
+            final Bitmap bitmap = loaded;
+            mMainThread.execute(new Runnable() {
+                @Override
+                public void run() {
+                    //The view may have been given to another article in the meantime
+                    if (mRequests.get(mView) == Request.this) {
+                        mRequests.remove(mView);
+                        if (bitmap != null) {
+                            mView.setImageBitmap(bitmap);
+                        }
+                    }
+                }
+            });
+        }
+    }
+}
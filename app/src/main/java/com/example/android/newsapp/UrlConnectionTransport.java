@@ -0,0 +1,151 @@
+package com.example.android.newsapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/*
+ * HttpTransport that uses a HttpURLConnection for every request. The connection is not
+ * disconnected when the response is closed: the body is read to the end instead, so the
+ * platform can keep the socket alive and reuse it for the next request to the same host.
+ * Responses are requested gzip compressed and decompressed here.
+ */
+public class UrlConnectionTransport implements HttpTransport {
+
+    //Timeouts for reading and connecting in milliseconds
+    private static final int READ_TIMEOUT = 10000;
+    private static final int CONNECT_TIMEOUT = 15000;
+
+    //Size of the buffer that is used to read the rest of a body before it is closed
+    private static final int DRAIN_BUFFER_SIZE = 4096;
+
+    //Records how long opening each connection took
+    private final PipelineMetrics mMetrics;
+
+    //Constructs a new UrlConnectionTransport that records into the metrics of the whole app
+    public UrlConnectionTransport() {
+        this(PipelineMetrics.getInstance());
+    }
+
+    //Constructs a new UrlConnectionTransport that records into the given metrics
+    public UrlConnectionTransport(PipelineMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    @Override
+    public HttpResponse execute(String url, Map<String, String> headers, final CancelSignal signal)
+            throws IOException {
+        final HttpURLConnection urlConnection = (HttpURLConnection) new URL(url).openConnection();
+
+        //Close the socket when the request is cancelled, so connecting or waiting for the
+        //response fails right away instead of when the server answers
+        final Runnable disconnect = new Runnable() {
+            @Override
+            public void run() {
+                urlConnection.disconnect();
+            }
+        };
+        if (signal != null) {
+            signal.addOnCancelListener(disconnect);
+        }
+        try {
+            urlConnection.setReadTimeout(READ_TIMEOUT);
+            urlConnection.setConnectTimeout(CONNECT_TIMEOUT);
+            urlConnection.setRequestMethod("GET");
+            urlConnection.setRequestProperty("Accept-Encoding", "gzip");
+            if (headers != null) {
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    urlConnection.setRequestProperty(header.getKey(), header.getValue());
+                }
+            }
+            //This includes the DNS lookup and TLS handshake, and takes almost no time when a
+            //kept-alive connection is reused
+            long connectStart = mMetrics.startTimer();
+            urlConnection.connect();
+            mMetrics.stopTimer(PipelineMetrics.Stage.CONNECT, connectStart);
+
+            //A cancel before the connection was made had nothing to close yet
+            if (signal != null && signal.isCancelled()) {
+                throw new IOException("Canceled");
+            }
+
+            final int code = urlConnection.getResponseCode();
+
+            //Only a successful response has a body that is worth reading
+            InputStream body = null;
+            if (code == HttpURLConnection.HTTP_OK) {
+                body = urlConnection.getInputStream();
+                if ("gzip".equalsIgnoreCase(urlConnection.getContentEncoding())) {
+                    body = new GZIPInputStream(body);
+                }
+            }
+
+            final InputStream responseBody = body;
+            return new HttpResponse(code, readHeaders(urlConnection), body, new Closeable() {
+                @Override
+                public void close() throws IOException {
+                    if (signal != null) {
+                        signal.removeOnCancelListener(disconnect);
+                    }
+                    //Read what is left so the connection can go back to the pool
+                    if (responseBody != null) {
+                        drain(responseBody);
+                    } else {
+                        drain(urlConnection.getErrorStream());
+                    }
+                }
+            }, new Closeable() {
+                @Override
+                public void close() {
+                    //Closes the socket, so a read that is blocked on it fails right away
+                    urlConnection.disconnect();
+                }
+            });
+        } catch (IOException e) {
+            if (signal != null) {
+                signal.removeOnCancelListener(disconnect);
+            }
+            //A connection that failed half way can not be reused
+            urlConnection.disconnect();
+            throw e;
+        }
+    }
+
+    /*
+     * Read the stream to the end and close it
+     */
+    private static void drain(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+            while (inputStream.read(buffer) != -1) {
+                //Discard the rest of the body
+            }
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /*
+     * Copy the response headers into a map, keeping the last value of headers that occur more than once
+     */
+    private static Map<String, String> readHeaders(HttpURLConnection urlConnection) {
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : urlConnection.getHeaderFields().entrySet()) {
+            List<String> values = header.getValue();
+            //The status line is stored under a null key
+            if (header.getKey() != null && values != null && !values.isEmpty()) {
+                headers.put(header.getKey(), values.get(values.size() - 1));
+            }
+        }
+        return headers;
+    }
+}
@@ -32,20 +32,24 @@ public final class Utils {
      * Query the Guardian dataset and return a list of NewsArticle objects
      */
     public static List<NewsArticle> fetchNewsData(String requestUrl) {
+        return fetchNewsData(new UrlConnectionTransport(), requestUrl);
+    }
+
+    /*
+     * Query the Guardian dataset over the given transport and return a list of NewsArticle objects
+     */
+    public static List<NewsArticle> fetchNewsData(HttpTransport transport, String requestUrl) {
         //Create URL object
         URL url = createUrl(requestUrl);
 
-        //Perform HTTP request to the URL and receive JSON response back
-        String jsonResponse = null;
+        //Perform HTTP request to the URL and parse the JSON response while it is being downloaded
+        List<NewsArticle> news = null;
         try {
-            jsonResponse = makeHttpRequest(url);
+            news = makeHttpRequest(transport, url);
         } catch (IOException e) {
             Log.e(LOG_TAG, "Problem making the HTTP request", e);
         }
 
-        //Extract relevant fields from the JSON response and create a list of NewsArticle objects
-        List<NewsArticle> news = extractFeatureFromJson(jsonResponse);
-
         //Return list of NewsArticle objects
         return news;
     }
@@ -64,54 +68,163 @@ public final class Utils {
     }
 
     /*
-     * Make the HTTP request to the given URL and return a String as response
+     * Make the HTTP request to the given URL and return the list of NewsArticle objects that
+     * were parsed from the response stream, or null if there was no usable response
      */
-    private static String makeHttpRequest(URL url) throws IOException {
-        String jsonResponse = "";
-
+    private static List<NewsArticle> makeHttpRequest(HttpTransport transport, URL url) throws IOException {
         //If the URL is null, then return early
         if (url == null) {
-            return jsonResponse;
+            return null;
         }
 
-        HttpURLConnection urlConnection = null;
-        InputStream inputStream = null;
+        List<NewsArticle> newsArticles = null;
+        HttpResponse response = null;
         try {
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(10000 /* milliseconds */);
-            urlConnection.setConnectTimeout(15000 /* milliseconds */);
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
+            response = transport.execute(url.toString(), null, null);
 
             // If the request was successful (response code 200),
-            // then read the input stream and parse the response.
-            if (urlConnection.getResponseCode() == 200) {
-                inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
+            // then parse the input stream while it is being read.
+            if (response.getCode() == HttpURLConnection.HTTP_OK) {
+                PipelineMetrics metrics = PipelineMetrics.getInstance();
+                long parseStart = metrics.startTimer();
+                newsArticles = extractFeatureFromStream(response.getBody());
+                metrics.stopTimer(PipelineMetrics.Stage.PARSE, parseStart);
+                metrics.increment(PipelineMetrics.Counter.ARTICLES_PARSED, newsArticles.size());
             } else {
-                Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
+                Log.e(LOG_TAG, "Error response code: " + response.getCode());
             }
         } catch (IOException e) {
             Log.e(LOG_TAG, "Problem retrieving the news article JSON results", e);
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
-            }
-            if (inputStream != null) {
-                // Closing the input stream could throw an IOException, which is why
-                // the makeHttpRequest(URL url) method signature specifies than an IOException
+            if (response != null) {
+                // Closing the response could throw an IOException, which is why
+                // the makeHttpRequest method signature specifies than an IOException
                 // could be thrown.
-                inputStream.close();
+                response.close();
+            }
+        }
+        return newsArticles;
+    }
+
+    /*
+     * Returns a List<NewsArticle> by parsing the JSON response directly from the InputStream.
+     * Articles that were read before a problem in the stream occurred are still returned.
+     */
+    static List<NewsArticle> extractFeatureFromStream(InputStream inputStream) {
+        final List<NewsArticle> newsArticles = new ArrayList<>();
+        try {
+            NewsJsonParser.parse(inputStream, new NewsJsonParser.ArticleCallback() {
+                @Override
+                public void onArticle(NewsArticle article) {
+                    newsArticles.add(article);
+                }
+            });
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem parsing the news article JSON results", e);
+        }
+        return newsArticles;
+    }
+
+    /*
+     * Returns the milliseconds since the epoch of an ISO 8601 date in UTC like the Guardian sends,
+     * for example 2018-05-14T07:41:12Z, or 0 if the date does not have that form. The fields are
+     * read directly, which is much cheaper than SimpleDateFormat.
+     */
+    public static long parseIsoDate(String date) {
+        if (date == null || date.length() != 20 || date.charAt(4) != '-' || date.charAt(7) != '-'
+                || date.charAt(10) != 'T' || date.charAt(13) != ':' || date.charAt(16) != ':'
+                || date.charAt(19) != 'Z') {
+            return 0;
+        }
+
+        int year = parseDigits(date, 0, 4);
+        int month = parseDigits(date, 5, 7);
+        int day = parseDigits(date, 8, 10);
+        int hour = parseDigits(date, 11, 13);
+        int minute = parseDigits(date, 14, 16);
+        int second = parseDigits(date, 17, 19);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return 0;
+        }
+
+        //Days since 1970-01-01 in the proleptic Gregorian calendar, counting years from March
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long days = era * 146097L + dayOfEra - 719468;
+
+        return ((days * 24 + hour) * 60 + minute) * 60000L + second * 1000L;
+    }
+
+    /*
+     * Format milliseconds since the epoch as an ISO 8601 date in UTC, like 2018-05-14T07:41:12Z.
+     * This is the inverse of parseIsoDate for whole seconds.
+     */
+    public static String formatIsoDate(long millis) {
+        long seconds = millis >= 0 ? millis / 1000 : (millis - 999) / 1000;
+        long days = seconds >= 0 ? seconds / 86400 : (seconds - 86399) / 86400;
+        int secondOfDay = (int) (seconds - days * 86400);
+
+        //Civil date from the days since 1970-01-01, counting years from March
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        int month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] date = new char[20];
+        appendDigits(date, 0, year, 4);
+        date[4] = '-';
+        appendDigits(date, 5, month, 2);
+        date[7] = '-';
+        appendDigits(date, 8, day, 2);
+        date[10] = 'T';
+        appendDigits(date, 11, secondOfDay / 3600, 2);
+        date[13] = ':';
+        appendDigits(date, 14, secondOfDay / 60 % 60, 2);
+        date[16] = ':';
+        appendDigits(date, 17, secondOfDay % 60, 2);
+        date[19] = 'Z';
+        return new String(date);
+    }
+
+    /*
+     * Write the value as a number of the given amount of digits, padded with zeros
+     */
+    private static void appendDigits(char[] text, int start, long value, int digits) {
+        for (int i = start + digits - 1; i >= start; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /*
+     * Returns the number made up by the digits from start to end, or -1 if one of them is not a digit
+     */
+    private static int parseDigits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
             }
+            value = value * 10 + (c - '0');
         }
-        return jsonResponse;
+        return value;
     }
 
     /*
      * Convert the InputStream into a String which contains the
-     * whole JSON response from the server.
+     * whole JSON response from the server. Only used to compare against the streaming parser.
      */
-    private static String readFromStream(InputStream inputStream) throws IOException {
+    static String readFromStream(InputStream inputStream) throws IOException {
         StringBuilder output = new StringBuilder();
         if (inputStream != null) {
             InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
@@ -127,8 +240,10 @@ public final class Utils {
 
     /*
      * Returns an ArrayList<NewsArticle> by parsing out information about the news articles from the input newsJSON String.
+     * This builds the whole JSON tree in memory and is kept to compare against the streaming parser.
+     * Every result is mapped on its own, so a malformed result only loses that article.
      */
-    private static List<NewsArticle> extractFeatureFromJson(String newsJSON) {
+    static List<NewsArticle> extractFeatureFromJson(String newsJSON) {
         //if the JSON String is empty or null, then return early
         if (TextUtils.isEmpty(newsJSON)) {
             return null;
@@ -137,72 +252,85 @@ public final class Utils {
         //Create an empty ArrayList that the news articles can be added to
         List<NewsArticle> newsArticles = new ArrayList<>();
 
-        /*
-         * Try to parse the JSON response String. If there is a problem with it, a JSONException will
-         * be thrown.
-         * Catch the exception so the app does not crash, print he error message to the logs.
-         */
+        //Extract the JSON array with the key called "results", which represents a list of news articles.
+        //Without it there is nothing to map.
+        JSONArray newsArticlesArray;
         try {
-
-            //Create a JSON object from the JSON response String
             JSONObject baseJsonResponse = new JSONObject(newsJSON);
+            newsArticlesArray = baseJsonResponse.getJSONObject("response").getJSONArray("results");
+        } catch (JSONException e) {
+            Log.e(LOG_TAG, "Problem parsing the news article JSON results", e);
+            return newsArticles;
+        }
 
-            JSONObject response = baseJsonResponse.getJSONObject("response");
-
-            //Extract the JSON array with the key called "response", which represents a list of news articles
-            JSONArray newsArticlesArray = response.getJSONArray("results");
-
-            //For each News Article, create a NewsArticle object
-
-            for (int i = 0; i < newsArticlesArray.length(); i++) {
-
-                //Get a single NewsArticle at position i within the list of news articles
-                JSONObject currentNewsArticle = newsArticlesArray.getJSONObject(i);
-
-                //Extract the value for the key called "webTitle"
-                String title = "";
-                if (currentNewsArticle.has("webTitle")) {
-                    title = currentNewsArticle.getString("webTitle");
-                }
-
-                //Extract the value for the key called "sectionName"
-                String section = "";
-                if (currentNewsArticle.has("sectionName")) {
-                    section = currentNewsArticle.getString("sectionName");
-                }
+        //For each News Article, create a NewsArticle object
+        ArticleMapper mapper = new ArticleMapper();
+        for (int i = 0; i < newsArticlesArray.length(); i++) {
+            //Get a single NewsArticle at position i within the list of news articles
+            JSONObject currentNewsArticle = newsArticlesArray.optJSONObject(i);
+            if (currentNewsArticle == null) {
+                mapper.skip();
+                continue;
+            }
 
-                //Extract the value for the key called "webUrl"
-                String url = "";
-                if (currentNewsArticle.has("webUrl")) {
-                    url = currentNewsArticle.getString("webUrl");
-                }
+            mapper.reset();
+            mapper.set(ArticleMapper.Field.TITLE, readString(currentNewsArticle, "webTitle", mapper, ArticleMapper.Field.TITLE));
+            mapper.set(ArticleMapper.Field.SECTION, readString(currentNewsArticle, "sectionName", mapper, ArticleMapper.Field.SECTION));
+            mapper.set(ArticleMapper.Field.SECTION_ID, readString(currentNewsArticle, "sectionId", mapper, ArticleMapper.Field.SECTION_ID));
+            mapper.set(ArticleMapper.Field.URL, readString(currentNewsArticle, "webUrl", mapper, ArticleMapper.Field.URL));
+            mapper.set(ArticleMapper.Field.DATE, readString(currentNewsArticle, "webPublicationDate", mapper, ArticleMapper.Field.DATE));
 
-                //Extract the value for the key called "webPublicationDate"
-                String date = "";
-                if (currentNewsArticle.has("webPublicationDate")) {
-                    date = currentNewsArticle.getString("webPublicationDate");
+            //Get the contributors and the other tags, an article can have no tags at all
+            JSONArray tags = currentNewsArticle.optJSONArray("tags");
+            if (tags == null && !currentNewsArticle.isNull("tags")) {
+                mapper.fail(ArticleMapper.Field.AUTHOR);
+            }
+            for (int j = 0; tags != null && j < tags.length(); j++) {
+                JSONObject tag = tags.optJSONObject(j);
+                if (tag == null) {
+                    mapper.fail(ArticleMapper.Field.TAG);
+                    continue;
                 }
-
-                //Get the contributor from the JSON Array in the currentNewArticle object
-                JSONArray tags = currentNewsArticle.getJSONArray("tags");
-                JSONObject currentAuthor = tags.getJSONObject(0);
-                String author = "";
-                if (currentAuthor.has("webTitle")) {
-                    author = currentAuthor.getString("webTitle");
+                String type = readString(tag, "type", mapper, ArticleMapper.Field.TAG);
+                if (type == null || NewsJsonParser.CONTRIBUTOR_TAG.equals(type)) {
+                    mapper.set(ArticleMapper.Field.AUTHOR, readString(tag, "webTitle", mapper, ArticleMapper.Field.AUTHOR));
+                } else {
+                    mapper.set(ArticleMapper.Field.TAG, readString(tag, "id", mapper, ArticleMapper.Field.TAG));
                 }
+            }
 
-                //Create a new NewsArticles object with the title, section and url from the JSON response
-                NewsArticle news = new NewsArticle(title, section, url, date, author);
+            //Extract the fields the query asked for from the "fields" object
+            JSONObject fields = currentNewsArticle.optJSONObject("fields");
+            if (fields != null) {
+                mapper.set(ArticleMapper.Field.THUMBNAIL, readString(fields, "thumbnail", mapper, ArticleMapper.Field.THUMBNAIL));
+                mapper.set(ArticleMapper.Field.TRAIL_TEXT, readString(fields, "trailText", mapper, ArticleMapper.Field.TRAIL_TEXT));
+                mapper.set(ArticleMapper.Field.WORD_COUNT, readString(fields, "wordcount", mapper, ArticleMapper.Field.WORD_COUNT));
+            }
 
-                //Add the new object to the list of news articles
+            //Add the new object to the list of news articles, unless it has no URL
+            NewsArticle news = mapper.build();
+            if (news != null) {
                 newsArticles.add(news);
             }
-
-        } catch (JSONException e) {
-            //If an error is thrown, catch the exception here. Print a log message with the exception message
-            Log.e("Utils", "Problem parsing the news article JSON results, e");
         }
+
         //Return the list of news articles
         return newsArticles;
     }
+
+    /*
+     * Returns the value of the key as a String, or null if the object does not have it. A value
+     * that is not a string or a number is recorded as a failure of the field.
+     */
+    private static String readString(JSONObject object, String key, ArticleMapper mapper, ArticleMapper.Field field) {
+        Object value = object.opt(key);
+        if (value == null || value == JSONObject.NULL) {
+            return null;
+        }
+        if (!(value instanceof String) && !(value instanceof Number)) {
+            mapper.fail(field);
+            return null;
+        }
+        return value.toString();
+    }
 }
@@ -0,0 +1,101 @@
+package com.example.android.newsapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that article bodies are read from the content endpoint, stored as text and read from
+ * the store afterwards, and that prefetching skips what is already stored.
+ */
+public class ArticleBodyLoaderTest {
+
+    private static final String FIRST = "https://www.theguardian.com/business/2018/may/14/first";
+    private static final String SECOND = "https://www.theguardian.com/business/2018/may/14/second";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void readBody_skipsEverythingButTheBody() throws IOException {
+        String json = "{\"response\":{\"status\":\"ok\",\"content\":{\"id\":\"a\",\"tags\":[{\"id\":\"b\"}],"
+                + "\"fields\":{\"headline\":\"H\",\"body\":\"<p>Text</p>\"},\"webUrl\":\"x\"}}}";
+
+        assertEquals("<p>Text</p>", ArticleBodyLoader.readBody(GuardianFixtures.stream(json)));
+        assertNull(ArticleBodyLoader.readBody(GuardianFixtures.stream("{\"response\":{\"content\":{}}}")));
+    }
+
+    @Test
+    public void load_storesSanitizedTextAndReadsItOffline() throws IOException {
+        FakeTransport transport = new FakeTransport().enqueue(200, body("<p>Fish &amp; chips</p><p>Second</p>"));
+        ArticleBodyLoader loader = new ArticleBodyLoader(
+                new ArticleBodyStore(mFolder.getRoot(), 1024 * 1024), transport, null);
+
+        assertEquals("Fish & chips\n\nSecond", loader.load(FIRST, new CancelSignal()));
+        assertTrue(transport.requestUrls.get(0).startsWith(
+                "https://content.guardianapis.com/business/2018/may/14/first?show-fields=body"));
+
+        //No response is queued anymore, so this can only come from the store
+        assertEquals("Fish & chips\n\nSecond", loader.load(FIRST, new CancelSignal()));
+        assertEquals(1, transport.requestCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void load_failsOnErrorResponse() throws IOException {
+        FakeTransport transport = new FakeTransport().enqueue(404, "{}");
+        ArticleBodyLoader loader = new ArticleBodyLoader(
+                new ArticleBodyStore(mFolder.getRoot(), 1024 * 1024), transport, null);
+
+        loader.load(FIRST, new CancelSignal());
+    }
+
+    @Test
+    public void prefetch_onlyDownloadsArticlesThatAreNotStored() throws Exception {
+        ArticleBodyStore store = new ArticleBodyStore(mFolder.getRoot(), 1024 * 1024);
+        store.put(FIRST, "Stored before");
+        FakeTransport transport = new FakeTransport().enqueue(200, body("<p>Prefetched</p>"));
+        final ExecutorService mainThread = Executors.newSingleThreadExecutor();
+        ArticleBodyLoader loader = new ArticleBodyLoader(store, transport, new LoadEngine(1, mainThread));
+
+        final LoadEngine.Load<Integer> load = loader.prefetch(Arrays.asList(
+                new NewsArticle("First", "Business", FIRST, "", ""),
+                new NewsArticle("Second", "Business", SECOND, "", "")));
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger stored = new AtomicInteger();
+        mainThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                load.attach(new LoadEngine.Receiver<Integer>() {
+                    @Override
+                    public void onLoadResult(LoadEngine.Load<Integer> load, Integer result) {
+                        stored.set(result);
+                        done.countDown();
+                    }
+                });
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        mainThread.shutdown();
+        assertEquals(1, stored.get());
+        assertEquals(1, transport.requestCount());
+        assertEquals("Stored before", store.get(FIRST));
+        assertEquals("Prefetched", store.get(SECOND));
+    }
+
+    private static String body(String html) {
+        return "{\"response\":{\"content\":{\"fields\":{\"body\":\"" + html.replace("\"", "\\\"") + "\"}}}}";
+    }
+}
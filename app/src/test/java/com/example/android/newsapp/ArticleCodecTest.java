@@ -0,0 +1,199 @@
+package com.example.android.newsapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that batches of articles survive encoding. Reading them is compared against parsing
+ * JSON by ParseBenchmark in the benchmarks module.
+ */
+public class ArticleCodecTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip_keepsEveryField() throws IOException {
+        List<NewsArticle> articles = NewsJsonParser.parse(
+                GuardianFixtures.stream(GuardianFixtures.withResults(200)));
+
+        List<NewsArticle> decoded = ArticleCodec.decode(ByteBuffer.wrap(ArticleCodec.encode(articles)));
+
+        assertEquals(articles.size(), decoded.size());
+        for (int i = 0; i < articles.size(); i++) {
+            assertSameArticle(articles.get(i), decoded.get(i));
+        }
+    }
+
+    @Test
+    public void roundTrip_keepsDatesInOtherFormsAndUnicode() throws IOException {
+        List<NewsArticle> articles = Arrays.asList(
+                new NewsArticle("Caf\u00e9 prices \u20ac", "Business", "https://a", "2018-05-14T07:41:12Z", "Zo\u00eb"),
+                new NewsArticle("Offset", "Business", "https://b", "2018-05-14T07:41:12+02:00", ""),
+                new NewsArticle("Fraction", "World", "https://c", "2018-05-14T07:41:12.5Z", "Zo\u00eb"),
+                new NewsArticle("", "", "", "", ""),
+                new NewsArticle("Thumbnail", "World", "https://d", "2018-05-14T07:41:12Z", "",
+                        "https://media.guim.co.uk/d/500.jpg"));
+
+        List<NewsArticle> decoded = ArticleCodec.decode(ByteBuffer.wrap(ArticleCodec.encode(articles)));
+
+        assertEquals(articles.size(), decoded.size());
+        for (int i = 0; i < articles.size(); i++) {
+            assertSameArticle(articles.get(i), decoded.get(i));
+        }
+    }
+
+    @Test
+    public void roundTrip_keepsContributorsTagsAndSharesThemBetweenBatches() throws IOException {
+        NewsArticle article = new NewsArticle("Budget", "Business", "business", "https://e", "2018-05-14T07:41:12Z",
+                new String[]{"Richard Partington", "Larry Elliott"},
+                new String[]{"business/economics", "uk/uk"},
+                "", "<p>What the budget means</p>", 812, Utils.parseIsoDate("2018-05-14T07:41:12Z"));
+        byte[] batch = ArticleCodec.encode(Arrays.asList(article));
+
+        NewsArticle first = ArticleCodec.decode(ByteBuffer.wrap(batch)).get(0);
+        NewsArticle second = ArticleCodec.decode(ByteBuffer.wrap(batch)).get(0);
+
+        assertSameArticle(article, first);
+        assertEquals("business", first.getSectionId());
+        assertEquals("Richard Partington, Larry Elliott", first.getByline());
+        assertTrue(article.hasSameContent(first));
+        //Batches that are read separately still point at one copy of every contributor and tag
+        assertSame(first.getContributors().get(1), second.getContributors().get(1));
+        assertSame(first.getTags().get(0), second.getTags().get(0));
+    }
+
+    @Test
+    public void read_decodesRecordsFromMappedFile() throws IOException {
+        List<NewsArticle> articles = NewsJsonParser.parse(
+                GuardianFixtures.stream(GuardianFixtures.withResults(50)));
+        File file = mFolder.newFile("batch");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            ArticleCodec.write(articles, out);
+        } finally {
+            out.close();
+        }
+
+        List<NewsArticle> decoded = ArticleCodec.read(file);
+
+        //Records can be read in any order
+        assertSameArticle(articles.get(49), decoded.get(49));
+        assertSameArticle(articles.get(0), decoded.get(0));
+        assertEquals(50, decoded.size());
+    }
+
+    @Test
+    public void encode_isSmallerThanJson() throws IOException {
+        String json = GuardianFixtures.withResults(200);
+        List<NewsArticle> articles = NewsJsonParser.parse(GuardianFixtures.stream(json));
+
+        int jsonBytes = json.getBytes("UTF-8").length;
+        int batchBytes = ArticleCodec.encode(articles).length;
+
+        assertTrue(batchBytes < jsonBytes);
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsOtherData() throws IOException {
+        ArticleCodec.decode(ByteBuffer.wrap("{\"response\":{}}".getBytes("UTF-8")));
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsTruncatedBatch() throws IOException {
+        byte[] batch = ArticleCodec.encode(NewsJsonParser.parse(
+                GuardianFixtures.stream(GuardianFixtures.withResults(10))));
+        ArticleCodec.decode(ByteBuffer.wrap(Arrays.copyOf(batch, batch.length / 2)));
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsRecordThatPointsOutsideTheStringTable() throws IOException {
+        List<NewsArticle> articles = Arrays.asList(
+                new NewsArticle("First", "Business", "https://example.com/first", "2018-05-14T07:00:00Z", "Author"),
+                new NewsArticle("Last", "Business", "https://example.com/last", "2018-05-14T08:00:00Z", "Author"));
+
+        ArticleCodec.decode(ByteBuffer.wrap(damageSectionOf(ArticleCodec.encode(articles), "https://example.com/last")));
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsRecordThatRunsPastTheBatch() throws IOException {
+        List<NewsArticle> articles = Arrays.asList(
+                new NewsArticle("First", "Business", "https://example.com/first", "2018-05-14T07:00:00Z", "Author"),
+                new NewsArticle("Last", "Business", "https://example.com/last", "2018-05-14T08:00:00Z", "Author"));
+        byte[] batch = ArticleCodec.encode(articles);
+
+        //Make the title of the last record longer than what is left of the batch
+        int title = indexOf(batch, "Last".getBytes("UTF-8"));
+        batch[title - 1] = 0x7f;
+
+        ArticleCodec.decode(ByteBuffer.wrap(batch));
+    }
+
+    @Test
+    public void read_rejectsFileWithDamagedRecord() throws IOException {
+        List<NewsArticle> articles = NewsJsonParser.parse(
+                GuardianFixtures.stream(GuardianFixtures.withResults(10)));
+        byte[] batch = damageSectionOf(ArticleCodec.encode(articles), articles.get(9).getWebsite());
+        File file = mFolder.newFile("batch");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(batch);
+        } finally {
+            out.close();
+        }
+
+        try {
+            ArticleCodec.read(file);
+            throw new AssertionError("A damaged record must be found when the batch is read");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("damaged"));
+        }
+    }
+
+    /**
+     * Returns the batch with the section index of the record with the URL pointing past the
+     * end of the string table. The index follows the URL of the record.
+     */
+    private static byte[] damageSectionOf(byte[] batch, String url) throws IOException {
+        byte[] bytes = url.getBytes("UTF-8");
+        int at = indexOf(batch, bytes) + bytes.length;
+        batch[at] = 0x7f;
+        return batch;
+    }
+
+    private static int indexOf(byte[] data, byte[] part) {
+        for (int i = data.length - part.length; i >= 0; i--) {
+            if (Arrays.equals(Arrays.copyOfRange(data, i, i + part.length), part)) {
+                return i;
+            }
+        }
+        throw new AssertionError("Not found in the batch");
+    }
+
+    private static void assertSameArticle(NewsArticle expected, NewsArticle actual) {
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getSection(), actual.getSection());
+        assertEquals(expected.getSectionId(), actual.getSectionId());
+        assertEquals(expected.getWebsite(), actual.getWebsite());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getAuthor(), actual.getAuthor());
+        assertEquals(expected.getContributors(), actual.getContributors());
+        assertEquals(expected.getTags(), actual.getTags());
+        assertEquals(expected.getThumbnail(), actual.getThumbnail());
+        assertEquals(expected.getTrailText(), actual.getTrailText());
+        assertEquals(expected.getWordCount(), actual.getWordCount());
+        assertEquals(expected.getPublishedMillis(), actual.getPublishedMillis());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks tokenizing, prefix matching and ranking of the search index. How long queries take
+ * over 50,000 articles is measured by SearchBenchmark in the benchmarks module.
+ */
+public class ArticleSearchIndexTest {
+
+    @Test
+    public void tokenize_lowercasesAndRemovesAccentsAndPunctuation() {
+        assertEquals(Arrays.asList("cafe", "prices", "rise", "3", "in", "sao", "paulo"),
+                ArticleSearchIndex.tokenize("Caf\u00e9 prices rise 3% in S\u00e3o-Paulo!"));
+        assertTrue(ArticleSearchIndex.tokenize("  ,.- ").isEmpty());
+    }
+
+    @Test
+    public void search_matchesPrefixesOfEveryWord() {
+        ArticleSearchIndex index = new ArticleSearchIndex();
+        index.addAll(Arrays.asList(
+                article("a", "Pound falls as inflation eases", "Business", "Larry Elliott", "2018-05-14T07:41:12Z"),
+                article("b", "Pound rallies", "Money", "Jill Treanor", "2018-05-13T07:41:12Z"),
+                article("c", "Interest rates on hold", "Business", "Larry Elliott", "2018-05-12T07:41:12Z")));
+
+        assertEquals(urls("a", "b"), urls(index.search("pou", 10)));
+        assertEquals(urls("a"), urls(index.search("POUND infl", 10)));
+        assertEquals(urls("a", "c"), urls(index.search("elliott business", 10)));
+        assertEquals(urls("b"), urls(index.search("money", 10)));
+        assertTrue(index.search("pound rates", 10).isEmpty());
+        assertTrue(index.search("", 10).isEmpty());
+    }
+
+    @Test
+    public void search_ranksNewestFirstAndHonorsLimit() {
+        ArticleSearchIndex index = new ArticleSearchIndex();
+        index.add(article("old", "Markets", "Business", "", "2018-05-01T00:00:00Z"));
+        index.add(article("new", "Markets", "Business", "", "2018-05-03T00:00:00Z"));
+        index.add(article("mid", "Markets", "Business", "", "2018-05-02T00:00:00Z"));
+
+        assertEquals(urls("new", "mid", "old"), urls(index.search("markets", 10)));
+        assertEquals(urls("new", "mid"), urls(index.search("markets", 2)));
+    }
+
+    @Test
+    public void add_skipsUnchangedAndReplacesChangedArticles() {
+        ArticleSearchIndex index = new ArticleSearchIndex();
+        assertTrue(index.add(article("a", "Pound falls", "Business", "", "2018-05-14T07:41:12Z")));
+        assertEquals(0, index.addAll(Arrays.asList(article("a", "Pound falls", "Business", "", "2018-05-14T07:41:12Z"))));
+
+        assertTrue(index.add(article("a", "Euro falls", "Business", "", "2018-05-14T07:41:12Z")));
+
+        assertEquals(1, index.size());
+        assertTrue(index.search("pound", 10).isEmpty());
+        assertEquals("Euro falls", index.search("falls", 10).get(0).getTitle());
+    }
+
+    @Test
+    public void add_changedArticlesDoNotGrowTheIndex() {
+        ArticleSearchIndex index = new ArticleSearchIndex();
+        for (int i = 0; i < 20; i++) {
+            index.add(article("stable" + i, "Markets steady " + i, "Business", "", "2018-05-14T07:41:12Z"));
+        }
+        int documents = index.getDocumentCount();
+        int words = index.getWordCount();
+
+        //A live blog whose title changes with every refresh
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(index.add(article("live", "Live update" + i, "Business", "", "2018-05-14T07:41:12Z")));
+        }
+
+        assertEquals(21, index.size());
+        assertTrue(index.getDocumentCount() <= documents + 1 + 21 / 4 + 1);
+        assertTrue(index.getWordCount() <= words + 2 + 21 / 4 + 1);
+        assertEquals(urls("live"), urls(index.search("live", 10)));
+        assertEquals("Live update999", index.search("update999", 10).get(0).getTitle());
+        assertTrue(index.search("update998", 10).isEmpty());
+        assertEquals(20, index.search("markets", 50).size());
+    }
+
+    private static NewsArticle article(String id, String title, String section, String author, String date) {
+        return new NewsArticle(title, section, "https://example.com/" + id, date, author);
+    }
+
+    private static List<String> urls(String... ids) {
+        List<String> urls = new ArrayList<>();
+        for (String id : ids) {
+            urls.add("https://example.com/" + id);
+        }
+        return urls;
+    }
+
+    private static List<String> urls(List<NewsArticle> articles) {
+        List<String> urls = new ArrayList<>();
+        for (NewsArticle article : articles) {
+            urls.add(article.getWebsite());
+        }
+        return urls;
+    }
+}
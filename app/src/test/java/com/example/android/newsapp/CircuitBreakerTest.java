@@ -0,0 +1,92 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        TestBreaker breaker = new TestBreaker(3, 1000);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void successResetsFailureCount() {
+        TestBreaker breaker = new TestBreaker(3, 1000);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenLetsOneTrialThrough() {
+        TestBreaker breaker = new TestBreaker(1, 1000);
+        breaker.recordFailure();
+
+        breaker.now += 1000;
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+
+        breaker.recordSuccess();
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void releasedTrialLetsTheNextRequestThrough() {
+        TestBreaker breaker = new TestBreaker(1, 1000);
+        breaker.recordFailure();
+        breaker.now += 1000;
+
+        assertTrue(breaker.allowRequest());
+        breaker.releaseTrial();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedTrialOpensAgain() {
+        TestBreaker breaker = new TestBreaker(3, 1000);
+        breaker.openFor(5000);
+
+        breaker.now += 4999;
+        assertFalse(breaker.allowRequest());
+        breaker.now += 1;
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    private static class TestBreaker extends CircuitBreaker {
+        long now = 1000000;
+
+        TestBreaker(int failureThreshold, long openMillis) {
+            super(failureThreshold, openMillis);
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return now;
+        }
+    }
+}
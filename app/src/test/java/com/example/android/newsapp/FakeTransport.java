@@ -0,0 +1,64 @@
+package com.example.android.newsapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HttpTransport that answers with queued responses and records the requests it received.
+ */
+class FakeTransport implements HttpTransport {
+
+    private final Deque<Object> mResponses = new ArrayDeque<>();
+    final List<String> requestUrls = new ArrayList<>();
+    final List<Map<String, String>> requestHeaders = new ArrayList<>();
+
+    /**
+     * Queues a response with the given status code, headers (name, value, name, value...) and body.
+     */
+    FakeTransport enqueue(int code, String body, String... headers) {
+        Map<String, String> headerMap = new HashMap<>();
+        for (int i = 0; i + 1 < headers.length; i += 2) {
+            headerMap.put(headers[i], headers[i + 1]);
+        }
+        byte[] bytes = body == null ? null : body.getBytes(Charset.forName("UTF-8"));
+        mResponses.add(new Object[]{code, headerMap, bytes});
+        return this;
+    }
+
+    /**
+     * Queues a failure, as if the connection could not be made.
+     */
+    FakeTransport enqueueFailure(IOException failure) {
+        mResponses.add(failure);
+        return this;
+    }
+
+    int requestCount() {
+        return requestUrls.size();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public HttpResponse execute(String url, Map<String, String> headers, CancelSignal signal) throws IOException {
+        requestUrls.add(url);
+        requestHeaders.add(headers == null ? new HashMap<String, String>() : new HashMap<>(headers));
+        Object next = mResponses.poll();
+        if (next == null) {
+            throw new IOException("No response queued for " + url);
+        }
+        if (next instanceof IOException) {
+            throw (IOException) next;
+        }
+        Object[] response = (Object[]) next;
+        byte[] body = (byte[]) response[2];
+        return new HttpResponse((Integer) response[0], (Map<String, String>) response[1],
+                body == null ? null : new ByteArrayInputStream(body), null);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.android.newsapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the snapshot of the feed comes back for the same settings only. Reading it is
+ * compared against parsing the first page of the feed by SnapshotBenchmark in the benchmarks
+ * module.
+ */
+public class FeedSnapshotTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void read_returnsTopOfTheFeedForTheSameKey() throws IOException {
+        List<NewsArticle> feed = NewsJsonParser.parse(GuardianFixtures.stream(GuardianFixtures.withResults(50)));
+        FeedSnapshot snapshot = new FeedSnapshot(new File(mFolder.getRoot(), "snapshot"), 30, DIRECT);
+
+        snapshot.write("newest|business", feed);
+        List<NewsArticle> restored = snapshot.read("newest|business");
+
+        assertEquals(30, restored.size());
+        for (int i = 0; i < restored.size(); i++) {
+            assertTrue(feed.get(i).hasSameContent(restored.get(i)));
+        }
+    }
+
+    @Test
+    public void read_ignoresSnapshotOfOtherSettings() throws IOException {
+        List<NewsArticle> feed = NewsJsonParser.parse(GuardianFixtures.stream(GuardianFixtures.withResults(5)));
+        FeedSnapshot snapshot = new FeedSnapshot(new File(mFolder.getRoot(), "snapshot"), 30, DIRECT);
+
+        snapshot.write("newest|business", feed);
+
+        assertTrue(snapshot.read("oldest|business").isEmpty());
+        assertEquals(5, snapshot.read("newest|business").size());
+    }
+
+    @Test
+    public void read_deletesSnapshotWithDamagedRecord() throws IOException {
+        List<NewsArticle> feed = NewsJsonParser.parse(GuardianFixtures.stream(GuardianFixtures.withResults(5)));
+        File file = new File(mFolder.getRoot(), "snapshot");
+        FeedSnapshot snapshot = new FeedSnapshot(file, 30, DIRECT);
+        snapshot.write("newest|business", feed);
+
+        //Point the section of the last record past the string table, the byte after its URL
+        byte[] data = readAll(file);
+        byte[] url = feed.get(4).getWebsite().getBytes("UTF-8");
+        for (int i = data.length - url.length; i >= 0; i--) {
+            if (Arrays.equals(Arrays.copyOfRange(data, i, i + url.length), url)) {
+                data[i + url.length] = 0x7f;
+                break;
+            }
+        }
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+
+        assertTrue(snapshot.read("newest|business").isEmpty());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void read_deletesDamagedSnapshot() throws IOException {
+        File file = mFolder.newFile("snapshot");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[]{0, 0, 0, 1, 20, 'n'});
+        } finally {
+            out.close();
+        }
+        FeedSnapshot snapshot = new FeedSnapshot(file, 30, DIRECT);
+
+        assertTrue(snapshot.read("newest|business").isEmpty());
+        assertFalse(file.exists());
+        assertTrue(new FeedSnapshot(new File(mFolder.getRoot(), "missing"), 30, DIRECT).read("newest").isEmpty());
+    }
+
+    private static byte[] readAll(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < data.length) {
+                read += in.read(data, read, data.length - read);
+            }
+        } finally {
+            in.close();
+        }
+        return data;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.android.newsapp;
+
+import android.support.v7.util.DiffUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Refreshes the feed against the local mock server, the way the app does it: a request over a
+ * real connection with retries, streaming parsing, storing the articles and diffing them
+ * against the list that is shown. The soak runs thousands of refreshes while the server
+ * injects faults, to catch leaks and regressions. It takes a while, so it only runs when it is
+ * asked for with -Psoak.refreshes=N, and writes throughput, latency, the growth of the heap and
+ * the metrics of the repository to the file in soak.results instead of the test output.
+ */
+public class FeedSoakTest {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int WARMUP_REFRESHES = 100;
+    private static final int REFRESHES = Integer.getInteger("soak.refreshes", 0);
+    private static final String RESULTS = System.getProperty("soak.results", "build/reports/soak/results.txt");
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private MockGuardianServer mServer;
+    private PipelineMetrics mMetrics;
+    private NewsRepository mRepository;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockGuardianServer();
+        mMetrics = new PipelineMetrics();
+        mRepository = new NewsRepository(new MeteredTransport(new UrlConnectionTransport(mMetrics), mMetrics),
+                new ArticleDiskCache(mFolder.newFolder("news"), 2 * 1024 * 1024, 7 * 24 * 60 * 60 * 1000L),
+                new RetryPolicy(3, 1, 5, new Random(1)),
+                new CircuitBreaker(5, 10),
+                mMetrics);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.close();
+    }
+
+    @Test
+    public void server_injectsFaultsAndScalesPages() throws IOException {
+        HttpTransport transport = new UrlConnectionTransport();
+        mServer.enqueue(MockGuardianServer.Fault.TOO_MANY_REQUESTS, MockGuardianServer.Fault.SERVER_ERROR,
+                MockGuardianServer.Fault.TRUNCATED);
+
+        assertEquals(429, code(transport, url(PAGE_SIZE)));
+        assertEquals(503, code(transport, url(PAGE_SIZE)));
+        //The truncated body only comes apart while it is parsed, with the articles before the break
+        List<NewsArticle> truncated = Utils.fetchNewsData(transport, url(PAGE_SIZE));
+        assertTrue(truncated == null || truncated.size() < PAGE_SIZE);
+
+        assertEquals(200, Utils.fetchNewsData(transport, url(200)).size());
+        assertEquals(1, mServer.faultCount(MockGuardianServer.Fault.TRUNCATED));
+    }
+
+    @Test
+    public void repository_recoversFromInjectedFaults() {
+        mServer.enqueue(MockGuardianServer.Fault.SERVER_ERROR, MockGuardianServer.Fault.TOO_MANY_REQUESTS);
+
+        NewsResult result = mRepository.fetch(url(PAGE_SIZE));
+
+        assertEquals(NewsResult.Status.SUCCESS, result.getStatus());
+        assertEquals(PAGE_SIZE, result.getArticles().size());
+        assertEquals(3, mServer.requestCount());
+    }
+
+    @Test
+    public void soak_refreshesUnderFaults() throws IOException {
+        assumeTrue("Run the soak with -Psoak.refreshes=N", REFRESHES > 0);
+        mServer.setLatencyMillis(1);
+        mServer.failEvery(7, MockGuardianServer.Fault.SERVER_ERROR);
+        mServer.failEvery(13, MockGuardianServer.Fault.TOO_MANY_REQUESTS);
+        mServer.failEvery(19, MockGuardianServer.Fault.TRUNCATED);
+
+        List<NewsArticle> shown = Collections.emptyList();
+        for (int i = 0; i < WARMUP_REFRESHES; i++) {
+            shown = refresh(shown);
+        }
+        long heapBefore = usedHeap();
+        mMetrics.setEnabled(true);
+
+        PipelineMetrics.Histogram latency = new PipelineMetrics.Histogram();
+        int failed = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < REFRESHES; i++) {
+            long refreshStart = System.nanoTime();
+            List<NewsArticle> refreshed = refresh(shown);
+            latency.record((System.nanoTime() - refreshStart) / 1000);
+            if (refreshed == shown) {
+                failed++;
+            }
+            shown = refreshed;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        mMetrics.setEnabled(false);
+        //The heap is only measured after asking for a collection, so its growth is reported for
+        //comparing soaks instead of failing the test
+        long heapGrowth = usedHeap() - heapBefore;
+
+        writeResults(String.format(Locale.US, "Soak of %d refreshes, %d failed: %.0f refreshes/s, p50 %.3f ms, "
+                        + "p99 %.3f ms, heap growth %d KB, %d requests, faults 429 %d, 503 %d, truncated %d%n%n%s",
+                REFRESHES, failed, REFRESHES / seconds, latency.getPercentileMicros(50) / 1000.0,
+                latency.getPercentileMicros(99) / 1000.0, heapGrowth / 1024, mServer.requestCount(),
+                mServer.faultCount(MockGuardianServer.Fault.TOO_MANY_REQUESTS),
+                mServer.faultCount(MockGuardianServer.Fault.SERVER_ERROR),
+                mServer.faultCount(MockGuardianServer.Fault.TRUNCATED), mMetrics.dump()));
+
+        //Retries hide almost every fault, and the stored articles the rest
+        assertEquals(PAGE_SIZE, shown.size());
+        assertTrue(failed < REFRESHES / 20);
+        assertTrue(mServer.faultCount(MockGuardianServer.Fault.TRUNCATED) > 0);
+    }
+
+    /**
+     * Refreshes the feed and diffs it against the shown list like the adapter does. Returns the
+     * new list, or the shown one when the refresh failed.
+     */
+    private List<NewsArticle> refresh(List<NewsArticle> shown) {
+        NewsResult result = mRepository.fetch(url(PAGE_SIZE));
+        assertNotNull(result);
+        if (result.getStatus() != NewsResult.Status.SUCCESS) {
+            return shown;
+        }
+        List<NewsArticle> articles = result.getArticles();
+        DiffUtil.calculateDiff(new NewsAdapter.ArticleDiffCallback(shown, articles));
+        return articles;
+    }
+
+    private String url(int pageSize) {
+        return mServer.url("/search?section=business&page-size=" + pageSize);
+    }
+
+    private static int code(HttpTransport transport, String url) throws IOException {
+        HttpResponse response = transport.execute(url, null, null);
+        try {
+            return response.getCode();
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Writes the results of the soak to the results file, replacing those of the last run.
+     */
+    private static void writeResults(String results) throws IOException {
+        File file = new File(RESULTS);
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"));
+        try {
+            writer.write(results);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.android.newsapp;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests how the background sync compares refreshed sections with the stored ones.
+ */
+public class FeedSyncerTest {
+
+    private static final String BUSINESS = "https://content.guardianapis.com/search?section=business";
+    private static final String MONEY = "https://content.guardianapis.com/search?section=money";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeTransport transport;
+    private NewsRepository repository;
+    private ArticleSearchIndex index;
+    private FeedSyncer syncer;
+    private List<NewsArticle> recorded;
+
+    @Before
+    public void setUp() throws IOException {
+        transport = new FakeTransport();
+        repository = new NewsRepository(transport,
+                new ArticleDiskCache(folder.newFolder("news"), 1024 * 1024, 24 * 60 * 60 * 1000L),
+                new RetryPolicy(1, 0, 0, new Random(1)), new CircuitBreaker(3, 60 * 1000),
+                new PipelineMetrics());
+        index = new ArticleSearchIndex();
+        syncer = new FeedSyncer(repository, new QueryCache(10, 60 * 1000), index);
+        recorded = NewsJsonParser.parse(GuardianFixtures.stream(GuardianFixtures.load(GuardianFixtures.BUSINESS_PAGE)));
+    }
+
+    @Test
+    public void compare_findsNewChangedAndRemovedArticles() {
+        List<NewsArticle> previous = recorded.subList(2, 10);
+        List<NewsArticle> current = new ArrayList<>(recorded.subList(0, 9));
+        NewsArticle edited = current.get(4);
+        current.set(4, new NewsArticle(edited.getTitle() + " (updated)", edited.getSection(),
+                edited.getWebsite(), edited.getDate(), edited.getAuthor()));
+
+        FeedSyncer.Result result = new FeedSyncer.Result();
+        FeedSyncer.compare(previous, current, result);
+
+        assertEquals(2, result.getNewCount());
+        assertEquals(1, result.getChangedCount());
+        assertEquals(1, result.getRemovedCount());
+    }
+
+    @Test
+    public void sync_firstRunIsBaselineWithoutNewArticles() throws IOException {
+        transport.enqueue(200, GuardianFixtures.load(GuardianFixtures.BUSINESS_PAGE));
+
+        FeedSyncer.Result result = syncer.sync(Collections.singletonList(BUSINESS));
+
+        assertTrue(result.isComplete());
+        assertEquals(0, result.getNewCount());
+        assertEquals(10, repository.getCached(BUSINESS).size());
+        assertEquals(10, index.size());
+    }
+
+    @Test
+    public void sync_countsArticlesInSeveralSectionsOnce() throws IOException {
+        String page = GuardianFixtures.load(GuardianFixtures.BUSINESS_PAGE);
+        String larger = GuardianFixtures.withResults(12);
+        transport.enqueue(200, page).enqueue(200, page);
+        syncer.sync(Arrays.asList(BUSINESS, MONEY));
+
+        //Both sections now hold the same twelve results, each under a new URL
+        transport.enqueue(200, larger).enqueue(200, larger);
+        FeedSyncer.Result result = syncer.sync(Arrays.asList(BUSINESS, MONEY));
+
+        assertTrue(result.isComplete());
+        assertEquals(12, result.getNewCount());
+        assertEquals(10, result.getRemovedCount() / 2);
+        assertEquals(0, result.getChangedCount());
+    }
+
+    @Test
+    public void sync_withFailedSectionIsIncomplete() throws IOException {
+        transport.enqueue(200, GuardianFixtures.load(GuardianFixtures.BUSINESS_PAGE));
+        transport.enqueue(503, null);
+
+        FeedSyncer.Result result = syncer.sync(Arrays.asList(BUSINESS, MONEY));
+
+        assertFalse(result.isComplete());
+        assertEquals(2, transport.requestCount());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FetchPolicyTest {
+
+    private static final long SECOND_NANOS = 1000000000L;
+
+    @Test
+    public void choose_dependsOnMeteringAndThroughput() {
+        long slow = FetchPolicy.SLOW_BYTES_PER_SECOND - 1;
+        long fast = FetchPolicy.SLOW_BYTES_PER_SECOND * 10;
+
+        assertEquals(FetchPolicy.Profile.UNMETERED, FetchPolicy.choose(true, 0));
+        assertEquals(FetchPolicy.Profile.UNMETERED, FetchPolicy.choose(true, fast));
+        assertEquals(FetchPolicy.Profile.METERED, FetchPolicy.choose(true, slow));
+        assertEquals(FetchPolicy.Profile.METERED, FetchPolicy.choose(false, 0));
+        assertEquals(FetchPolicy.Profile.METERED, FetchPolicy.choose(false, fast));
+        assertEquals(FetchPolicy.Profile.SLOW, FetchPolicy.choose(false, slow));
+    }
+
+    @Test
+    public void recordTransfer_slowResponsesShrinkThePayloads() {
+        FetchPolicy policy = new FetchPolicy(null, FetchPolicy.Profile.UNMETERED);
+        policy.onLinkChanged(true, false);
+        assertEquals(FetchPolicy.Profile.METERED, policy.getProfile());
+
+        //20 KB in two seconds, a few times in a row
+        for (int i = 0; i < 3; i++) {
+            policy.recordTransfer(20 * 1024, 2 * SECOND_NANOS);
+        }
+        assertEquals(FetchPolicy.Profile.SLOW, policy.getProfile());
+        assertEquals(10 * 1024, policy.getBytesPerSecond());
+
+        //The average moves back up once responses get faster
+        for (int i = 0; i < 10; i++) {
+            policy.recordTransfer(200 * 1024, SECOND_NANOS / 2);
+        }
+        assertEquals(FetchPolicy.Profile.METERED, policy.getProfile());
+    }
+
+    @Test
+    public void recordTransfer_ignoresSmallResponses() {
+        FetchPolicy policy = new FetchPolicy(null, FetchPolicy.Profile.UNMETERED);
+
+        policy.recordTransfer(FetchPolicy.MIN_MEASURED_BYTES - 1, 10 * SECOND_NANOS);
+
+        assertEquals(0, policy.getBytesPerSecond());
+        assertEquals(FetchPolicy.Profile.UNMETERED, policy.getProfile());
+    }
+
+    @Test
+    public void onLinkChanged_keepsTheProfileOfflineAndForgetsTheThroughputOfAnotherLink() {
+        FetchPolicy policy = new FetchPolicy(null, FetchPolicy.Profile.METERED);
+        policy.onLinkChanged(true, false);
+        policy.recordTransfer(20 * 1024, 2 * SECOND_NANOS);
+        assertEquals(FetchPolicy.Profile.SLOW, policy.getProfile());
+
+        policy.onLinkChanged(false, false);
+        assertEquals(FetchPolicy.Profile.SLOW, policy.getProfile());
+
+        policy.onLinkChanged(true, true);
+        assertEquals(0, policy.getBytesPerSecond());
+        assertEquals(FetchPolicy.Profile.UNMETERED, policy.getProfile());
+    }
+
+    @Test
+    public void profiles_fetchLessOnCheaperLinks() {
+        FetchPolicy.Profile[] profiles = FetchPolicy.Profile.values();
+        for (int i = 1; i < profiles.length; i++) {
+            FetchPolicy.Profile richer = profiles[i - 1];
+            FetchPolicy.Profile cheaper = profiles[i];
+            assertTrue(cheaper.getPageSize() <= richer.getPageSize());
+            assertTrue(cheaper.getFields().length < richer.getFields().length);
+            assertTrue(cheaper.getThumbnailPrefetchRows() < richer.getThumbnailPrefetchRows());
+            assertTrue(cheaper.getSyncIntervalMillis() > richer.getSyncIntervalMillis());
+        }
+        assertTrue(FetchPolicy.Profile.UNMETERED.getBodyPrefetchArticles() > 0);
+        assertEquals(0, FetchPolicy.Profile.METERED.getBodyPrefetchArticles());
+    }
+
+    @Test
+    public void thumbnailUrl_followsTheQualityOfTheProfile() {
+        String thumbnail = "https://media.guim.co.uk/8f7e4e1a/0_134_4000_2400/500.jpg";
+        String other = "https://example.com/images/500.jpg";
+
+        assertEquals(thumbnail, FetchPolicy.Profile.UNMETERED.thumbnailUrl(thumbnail));
+        assertEquals("https://media.guim.co.uk/8f7e4e1a/0_134_4000_2400/140.jpg",
+                FetchPolicy.Profile.METERED.thumbnailUrl(thumbnail));
+        assertEquals(other, FetchPolicy.Profile.METERED.thumbnailUrl(other));
+        assertEquals("", FetchPolicy.Profile.SLOW.thumbnailUrl(thumbnail));
+    }
+}
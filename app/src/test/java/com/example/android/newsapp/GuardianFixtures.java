@@ -0,0 +1,61 @@
+package com.example.android.newsapp;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+/**
+ * Loads the recorded Guardian search responses in src/test/resources and scales them up to the
+ * page sizes the app requests.
+ */
+final class GuardianFixtures {
+
+    static final String BUSINESS_PAGE = "guardian_search_business.json";
+
+    private GuardianFixtures() {
+    }
+
+    /**
+     * Returns the recorded response as a String.
+     */
+    static String load(String name) throws IOException {
+        InputStream in = GuardianFixtures.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("Missing fixture " + name);
+        }
+        try {
+            return Utils.readFromStream(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns the recorded response with its results repeated until it holds {@code count}
+     * results. Every copy gets a unique webUrl so the results stay distinguishable.
+     */
+    static String withResults(int count) throws IOException {
+        JsonObject base = new JsonParser().parse(load(BUSINESS_PAGE)).getAsJsonObject();
+        JsonObject response = base.getAsJsonObject("response");
+        JsonArray recorded = response.getAsJsonArray("results");
+        JsonArray results = new JsonArray();
+        for (int i = 0; i < count; i++) {
+            JsonObject copy = recorded.get(i % recorded.size()).getAsJsonObject().deepCopy();
+            copy.addProperty("webUrl", copy.get("webUrl").getAsString() + "?copy=" + i);
+            results.add(copy);
+        }
+        response.add("results", results);
+        response.addProperty("pageSize", count);
+        return base.toString();
+    }
+
+    static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(Charset.forName("UTF-8")));
+    }
+}
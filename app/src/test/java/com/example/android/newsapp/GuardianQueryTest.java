@@ -0,0 +1,96 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the URLs the query builder produces and the rolling from-date window.
+ */
+public class GuardianQueryTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    //2018-05-14T07:41:12Z
+    private static final long NOW = 1526283672000L;
+
+    @Test
+    public void toUrl_asksOnlyForWhatNewsArticleReads() {
+        String url = new GuardianQuery.Builder()
+                .section("business")
+                .fromMillis(NOW)
+                .orderBy("newest")
+                .pageSize(20)
+                .page(2)
+                .build()
+                .toUrl();
+
+        assertEquals("https://content.guardianapis.com/search?section=business&from-date=2018-05-14"
+                + "&order-date=published&show-tags=contributor&order-by=newest&page-size=20&page=2"
+                + "&api-key=ec9ac2e5-63b6-4320-9e51-b3a9c0ba63f7", url);
+        assertFalse(url.contains("show-fields"));
+    }
+
+    @Test
+    public void toUrl_encodesSearchTermsAndFields() {
+        String url = new GuardianQuery.Builder()
+                .searchTerms("brexit AND \"interest rates\"")
+                .showFields("thumbnail", "wordcount")
+                .build()
+                .toUrl();
+
+        assertTrue(url.contains("q=brexit+AND+%22interest+rates%22"));
+        assertTrue(url.contains("show-fields=thumbnail%2Cwordcount"));
+        assertTrue(url.contains("page-size=10&page=1"));
+        assertFalse(url.contains("section="));
+    }
+
+    @Test
+    public void sections_areAskedForInOneSortedQuery() {
+        String url = new GuardianQuery.Builder()
+                .sections(Arrays.asList("technology", "business", "politics"))
+                .build()
+                .toUrl();
+
+        assertTrue(url.startsWith("https://content.guardianapis.com/search?section=business%7Cpolitics%7Ctechnology&"));
+    }
+
+    @Test
+    public void contentUrl_asksForFieldsOfTheArticleAtTheWebUrl() {
+        assertEquals("https://content.guardianapis.com/business/2018/may/14/pound-falls?show-fields=body"
+                        + "&api-key=ec9ac2e5-63b6-4320-9e51-b3a9c0ba63f7",
+                GuardianQuery.contentUrl("https://www.theguardian.com/business/2018/may/14/pound-falls?copy=1", "body"));
+        assertEquals(null, GuardianQuery.contentUrl("https://example.com/business/2018/may/14/pound-falls", "body"));
+        assertEquals(null, GuardianQuery.contentUrl("https://www.theguardian.com/", "body"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pageSize_rejectsMoreThanServerAllows() {
+        new GuardianQuery.Builder().pageSize(GuardianQuery.MAX_PAGE_SIZE + 1);
+    }
+
+    @Test
+    public void rollingWindow_coversMinimumWindowWithoutSync() {
+        assertEquals(NOW - GuardianQuery.MIN_WINDOW_DAYS * DAY, GuardianQuery.rollingFromMillis(NOW, 0));
+        assertEquals(NOW - GuardianQuery.MIN_WINDOW_DAYS * DAY, GuardianQuery.rollingFromMillis(NOW, NOW - DAY));
+    }
+
+    @Test
+    public void rollingWindow_reachesBackToOldLastSync() {
+        assertEquals(NOW - 31 * DAY, GuardianQuery.rollingFromMillis(NOW, NOW - 30 * DAY));
+        assertEquals(NOW - GuardianQuery.MAX_WINDOW_DAYS * DAY, GuardianQuery.rollingFromMillis(NOW, NOW - 365 * DAY));
+    }
+
+    @Test
+    public void rollingWindow_sharesCacheKeyAcrossDays() {
+        GuardianQuery today = new GuardianQuery.Builder().section("business").rollingWindow(NOW, 0).build();
+        GuardianQuery tomorrow = new GuardianQuery.Builder().section("business").rollingWindow(NOW + DAY, 0).build();
+
+        assertFalse(today.toUrl().equals(tomorrow.toUrl()));
+        assertEquals(QueryCache.normalize(today.toUrl()), QueryCache.normalize(tomorrow.toUrl()));
+    }
+}
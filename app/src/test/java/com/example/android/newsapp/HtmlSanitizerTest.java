@@ -0,0 +1,43 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the sanitizer keeps the text and paragraphs of an article body and nothing else.
+ */
+public class HtmlSanitizerTest {
+
+    @Test
+    public void sanitize_keepsParagraphsAndCollapsesWhitespace() {
+        String html = "<p>The pound   fell\n on <strong>Monday</strong>.</p>\n"
+                + "<h2>Inflation</h2><p>Prices rose<br>again.</p><ul><li>One</li><li>Two</li></ul>";
+
+        assertEquals("The pound fell on Monday.\n\nInflation\n\nPrices rose\nagain.\n\nOne\n\nTwo",
+                HtmlSanitizer.sanitize(html));
+    }
+
+    @Test
+    public void sanitize_dropsScriptsMediaAndComments() {
+        String html = "<p>Before</p><script>alert('<p>x</p>')</script>"
+                + "<figure><figure><img src=\"a.jpg\"/></figure><figcaption>Caption</figcaption></figure>"
+                + "<!-- <p>Hidden</p> --><aside>Related</aside><p onclick=\"steal()\">After</p>";
+
+        assertEquals("Before\n\nAfter", HtmlSanitizer.sanitize(html));
+    }
+
+    @Test
+    public void sanitize_decodesEntities() {
+        String html = "<p>Fish &amp; chips cost &pound;5 &mdash; &#8220;cheap&#x201D; &lt;b&gt; &unknown; & more</p>";
+
+        assertEquals("Fish & chips cost \u00a35 \u2014 \u201ccheap\u201d <b> &unknown; & more",
+                HtmlSanitizer.sanitize(html));
+    }
+
+    @Test
+    public void sanitize_dropsHalfATagAtTheEnd() {
+        assertEquals("Text", HtmlSanitizer.sanitize("<p>Text</p><a href=\"http://"));
+        assertEquals("", HtmlSanitizer.sanitize(""));
+    }
+}
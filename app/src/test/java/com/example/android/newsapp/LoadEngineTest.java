@@ -0,0 +1,230 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the order loads run in, cancelling them, and delivering their results only to an
+ * attached receiver.
+ */
+public class LoadEngineTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    //Stands in for the main thread: deliveries wait here until the test runs them
+    private final MainThread mainThread = new MainThread();
+
+    @Test
+    public void start_runsVisibleLoadsBeforePrefetches() throws InterruptedException {
+        LoadEngine engine = new LoadEngine(1, mainThread);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        //Keep the only thread busy, so the other loads queue up
+        engine.start(LoadEngine.Priority.VISIBLE, new LoadEngine.Job<String>() {
+            @Override
+            public String run(LoadEngine.Load<String> load) {
+                await(release);
+                return "blocker";
+            }
+        });
+        engine.start(LoadEngine.Priority.PREFETCH, recording("page 2", order));
+        LoadEngine.Load<String> last = engine.start(LoadEngine.Priority.PREFETCH, recording("page 3", order));
+        engine.start(LoadEngine.Priority.VISIBLE, recording("feed", order));
+        release.countDown();
+
+        waitForResult(last);
+        assertEquals(Arrays.asList("feed", "page 2", "page 3"), order);
+    }
+
+    @Test
+    public void cancel_stopsRunningJobAndDropsItsResults() throws InterruptedException {
+        LoadEngine engine = new LoadEngine(1, mainThread);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch aborted = new CountDownLatch(1);
+
+        LoadEngine.Load<String> load = engine.start(LoadEngine.Priority.VISIBLE, new LoadEngine.Job<String>() {
+            @Override
+            public String run(LoadEngine.Load<String> load) {
+                load.publish("stored");
+                //Stands in for a response that is being read
+                load.getCancelSignal().addOnCancelListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        aborted.countDown();
+                    }
+                });
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+                } catch (InterruptedException e) {
+                    return "interrupted";
+                }
+                return "fresh";
+            }
+        });
+        Recorder receiver = new Recorder();
+        load.attach(receiver);
+
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        load.cancel();
+        assertTrue(aborted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        mainThread.runPending();
+
+        assertTrue(load.isCancelled());
+        assertTrue(receiver.results.isEmpty());
+        assertFalse(load.isFinished());
+    }
+
+    @Test
+    public void cancel_skipsQueuedLoad() throws InterruptedException {
+        LoadEngine engine = new LoadEngine(1, mainThread);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        engine.start(LoadEngine.Priority.VISIBLE, new LoadEngine.Job<String>() {
+            @Override
+            public String run(LoadEngine.Load<String> load) {
+                await(release);
+                return "blocker";
+            }
+        });
+        engine.start(LoadEngine.Priority.VISIBLE, recording("cancelled", order)).cancel();
+        LoadEngine.Load<String> last = engine.start(LoadEngine.Priority.VISIBLE, recording("kept", order));
+        release.countDown();
+
+        waitForResult(last);
+        assertEquals(Collections.singletonList("kept"), order);
+    }
+
+    @Test
+    public void attach_deliversLatestResultOncePerReceiver() throws InterruptedException {
+        LoadEngine engine = new LoadEngine(1, mainThread);
+        LoadEngine.Load<String> load = engine.start(LoadEngine.Priority.VISIBLE, new LoadEngine.Job<String>() {
+            @Override
+            public String run(LoadEngine.Load<String> load) {
+                load.publish("stored");
+                return "fresh";
+            }
+        });
+
+        //Nothing is attached while the activity is stopped, so both results wait
+        mainThread.waitUntilIdle(2);
+        assertTrue(load.isFinished());
+
+        Recorder first = new Recorder();
+        load.attach(first);
+        load.detach();
+        load.attach(first);
+        assertEquals(Collections.singletonList("fresh"), first.results);
+
+        //A new activity after a configuration change gets the result again
+        Recorder second = new Recorder();
+        load.attach(second);
+        assertEquals(Collections.singletonList("fresh"), second.results);
+    }
+
+    @Test
+    public void publish_deliversEveryResultWhileAttached() throws InterruptedException {
+        LoadEngine engine = new LoadEngine(1, mainThread);
+        final CountDownLatch release = new CountDownLatch(1);
+        Recorder receiver = new Recorder();
+
+        LoadEngine.Load<String> load = engine.start(LoadEngine.Priority.VISIBLE, new LoadEngine.Job<String>() {
+            @Override
+            public String run(LoadEngine.Load<String> load) {
+                load.publish("memory");
+                load.publish("disk");
+                await(release);
+                return "network";
+            }
+        });
+        load.attach(receiver);
+        release.countDown();
+
+        mainThread.waitUntilIdle(3);
+        assertEquals(3, receiver.results.size());
+        assertEquals("network", receiver.results.get(2));
+    }
+
+    private void waitForResult(LoadEngine.Load<String> load) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (!load.isFinished() && System.currentTimeMillis() < deadline) {
+            mainThread.runPending();
+            Thread.sleep(5);
+        }
+        assertTrue(load.isFinished());
+    }
+
+    private static LoadEngine.Job<String> recording(final String name, final List<String> order) {
+        return new LoadEngine.Job<String>() {
+            @Override
+            public String run(LoadEngine.Load<String> load) {
+                order.add(name);
+                return name;
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Recorder implements LoadEngine.Receiver<String> {
+        final List<String> results = new ArrayList<>();
+
+        @Override
+        public void onLoadResult(LoadEngine.Load<String> load, String result) {
+            results.add(result);
+        }
+    }
+
+    /**
+     * Queues the deliveries, so the test decides when the main thread runs them.
+     */
+    private static class MainThread implements Executor {
+        private final ConcurrentLinkedQueue<Runnable> mPending = new ConcurrentLinkedQueue<>();
+        private int mRun;
+
+        @Override
+        public void execute(Runnable command) {
+            mPending.add(command);
+        }
+
+        void runPending() {
+            Runnable next;
+            while ((next = mPending.poll()) != null) {
+                next.run();
+                mRun++;
+            }
+        }
+
+        /**
+         * Runs deliveries until the given number has been run in total.
+         */
+        void waitUntilIdle(int deliveries) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            while (mRun < deliveries && System.currentTimeMillis() < deadline) {
+                runPending();
+                Thread.sleep(5);
+            }
+            assertEquals(deliveries, mRun);
+        }
+    }
+}
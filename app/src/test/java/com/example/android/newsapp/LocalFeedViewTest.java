@@ -0,0 +1,204 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LocalFeedViewTest {
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000;
+
+    @Test
+    public void apply_fewerSectionsFiltersWithoutLoading() {
+        LocalFeedView view = new LocalFeedView(20);
+        view.reset(spec(true, "business", "sport"));
+        view.onPageLoaded(feed(0, 20, "business", "sport"), true, 2, false);
+
+        List<NewsArticle> business = view.apply(spec(true, "business"));
+
+        assertEquals(10, business.size());
+        for (NewsArticle article : business) {
+            assertEquals("business", article.getSectionId());
+        }
+        assertNewestFirst(business);
+        //The first page of business alone holds 10 articles that are not loaded yet
+        assertEquals(1, view.getNextPage());
+    }
+
+    @Test
+    public void getNextPage_ofFewerSectionsFollowsTheirLoadedArticles() {
+        LocalFeedView view = new LocalFeedView(20);
+        view.reset(spec(true, "business", "sport", "culture"));
+        view.onPageLoaded(feed(0, 60, "business", "sport", "culture"), true, 4, false);
+
+        view.apply(spec(true, "business", "sport"));
+        assertEquals(3, view.getNextPage());
+        view.apply(spec(true, "business", "sport").withAuthor("author 1"));
+        assertEquals(3, view.getNextPage());
+        view.apply(spec(true, "business", "sport", "culture"));
+        assertEquals(4, view.getNextPage());
+    }
+
+    @Test
+    public void apply_sectionThatWasNotLoadedIsNotCovered() {
+        LocalFeedView view = new LocalFeedView(20);
+        view.reset(spec(true, "business"));
+        view.onPageLoaded(feed(0, 20, "business"), true, 2, false);
+
+        assertFalse(view.covers(spec(true, "business", "sport")));
+        assertNull(view.apply(spec(true, "business", "sport")));
+        assertEquals(20, view.getArticles().size());
+    }
+
+    @Test
+    public void apply_otherOrderOnlyOnceTheWholeFeedIsLoaded() {
+        LocalFeedView view = new LocalFeedView(20);
+        view.reset(spec(true, "business", "sport"));
+        view.onPageLoaded(feed(0, 20, "business", "sport"), true, 2, false);
+        assertNull(view.apply(spec(false, "business", "sport")));
+
+        //A short last page means there is nothing older to show first
+        view.onPageLoaded(feed(20, 7, "business", "sport"), false, 3, true);
+        List<NewsArticle> oldestFirst = view.apply(spec(false, "business", "sport"));
+
+        assertEquals(27, oldestFirst.size());
+        assertEquals("https://example.com/26", oldestFirst.get(0).getWebsite());
+        for (int i = 1; i < oldestFirst.size(); i++) {
+            assertTrue(oldestFirst.get(i - 1).getPublishedMillis() <= oldestFirst.get(i).getPublishedMillis());
+        }
+    }
+
+    @Test
+    public void apply_relevanceIsOnlyLoadedAndOnlySortedByDateWhenComplete() {
+        String relevance = LocalFeedView.Spec.ORDER_RELEVANCE;
+        LocalFeedView view = new LocalFeedView(20);
+        view.reset(spec(true, "business"));
+        view.onPageLoaded(feed(0, 20, "business"), true, 2, false);
+
+        //Newest and relevance both put the newest first, but are not the same order
+        assertFalse(view.covers(spec(relevance, "business")));
+        assertNull(view.apply(spec(relevance, "business")));
+
+        view.onPageLoaded(feed(20, 5, "business"), false, 3, true);
+        assertNull(view.apply(spec(relevance, "business")));
+
+        //A complete feed that was loaded by relevance is sorted by date without the server
+        view.reset(spec(relevance, "business"));
+        List<NewsArticle> byRelevance = feed(0, 25, "business");
+        Collections.reverse(byRelevance);
+        view.onPageLoaded(byRelevance, true, 2, true);
+        List<NewsArticle> newest = view.apply(spec(true, "business"));
+        assertEquals(25, newest.size());
+        assertNewestFirst(newest);
+
+        view.reset(spec(relevance, "business"));
+        view.onPageLoaded(byRelevance, true, 2, false);
+        assertNull(view.apply(spec(true, "business")));
+    }
+
+    @Test
+    public void apply_widerSpecGoesBackToTheLoadedArticles() {
+        LocalFeedView view = new LocalFeedView(20);
+        view.reset(spec(true, "business", "sport"));
+        view.onPageLoaded(feed(0, 20, "business", "sport"), true, 2, false);
+
+        view.apply(spec(true, "sport"));
+        List<NewsArticle> both = view.apply(spec(true, "business", "sport"));
+
+        assertEquals(20, both.size());
+        assertNewestFirst(both);
+    }
+
+    @Test
+    public void apply_authorNarrowsTheSectionsThatAreShown() {
+        LocalFeedView view = new LocalFeedView(20);
+        view.reset(spec(true, "business", "sport"));
+        view.onPageLoaded(feed(0, 20, "business", "sport"), true, 2, false);
+
+        List<NewsArticle> byAuthor = view.apply(spec(true, "business", "sport").withAuthor("author 1"));
+
+        //Every third article is by the same author, whatever its case
+        assertEquals(7, byAuthor.size());
+        assertEquals(20, view.apply(spec(true, "business", "sport")).size());
+    }
+
+    @Test
+    public void onPageLoaded_forFewerSectionsDropsTheOthers() {
+        LocalFeedView view = new LocalFeedView(20);
+        view.reset(spec(true, "business", "sport"));
+        view.onPageLoaded(feed(0, 20, "business", "sport"), true, 2, false);
+        view.apply(spec(true, "business"));
+
+        //The next page only holds business, so sport is no longer loaded up to the same page
+        List<NewsArticle> shown = view.onPageLoaded(feed(20, 20, "business"), false, 3, false);
+
+        assertEquals(30, shown.size());
+        assertFalse(view.covers(spec(true, "business", "sport")));
+        assertTrue(view.covers(spec(true, "business")));
+    }
+
+    @Test
+    public void onPageLoaded_firstPageReplacesWhatWasLoaded() {
+        LocalFeedView view = new LocalFeedView(20);
+        view.reset(spec(true, "business"));
+        view.onPageLoaded(feed(0, 20, "business"), true, 2, false);
+        view.onPageLoaded(feed(20, 20, "business"), false, 3, false);
+
+        List<NewsArticle> shown = view.onPageLoaded(feed(0, 20, "business"), true, 2, false);
+
+        assertEquals(20, shown.size());
+        assertEquals(2, view.getNextPage());
+    }
+
+    @Test
+    public void articlesWithoutSectionId_stayInTheFeed() {
+        LocalFeedView view = new LocalFeedView(20);
+        view.reset(spec(true, "business"));
+        List<NewsArticle> stored = Arrays.asList(
+                new NewsArticle("Old", "Business", "https://example.com/old", "2018-05-14T07:41:12Z", ""));
+
+        assertEquals(1, view.onPageLoaded(stored, true, 2, true).size());
+    }
+
+    /*
+     * Returns a feed that alternates between the sections, newest first, one article an hour
+     */
+    private static List<NewsArticle> feed(int from, int count, String... sections) {
+        long newest = 1526283672000L;
+        List<NewsArticle> articles = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            String section = sections[i % sections.length];
+            String author = "Author " + (i % 3);
+            if (i % 2 == 0) {
+                author = author.toLowerCase(Locale.US);
+            }
+            articles.add(new NewsArticle("Title " + i, section, section, "https://example.com/" + i, "",
+                    new String[]{author}, NewsArticle.NONE, "", "", 0, newest - i * HOUR_MILLIS));
+        }
+        return articles;
+    }
+
+    private static LocalFeedView.Spec spec(boolean newestFirst, String... sections) {
+        return spec(newestFirst ? LocalFeedView.Spec.ORDER_NEWEST : LocalFeedView.Spec.ORDER_OLDEST, sections);
+    }
+
+    private static LocalFeedView.Spec spec(String orderBy, String... sections) {
+        return new LocalFeedView.Spec(orderBy, new HashSet<>(Arrays.asList(sections)), null);
+    }
+
+    private static void assertNewestFirst(List<NewsArticle> articles) {
+        for (int i = 1; i < articles.size(); i++) {
+            assertTrue(articles.get(i - 1).getPublishedMillis() >= articles.get(i).getPublishedMillis());
+        }
+    }
+}
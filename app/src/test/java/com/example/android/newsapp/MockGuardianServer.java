@@ -0,0 +1,373 @@
+package com.example.android.newsapp;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Minimal HTTP/1.1 server on the loopback interface that answers every request with a recorded
+ * Guardian response. It keeps connections alive, compresses the body when the client accepts
+ * gzip, and counts the TCP connections it accepted so tests can check connection reuse.
+ *
+ * <p>To stand in for the real API under load, the recorded response can be scaled to the
+ * page-size of each request, every response can be delayed and sent at a limited bandwidth,
+ * and faults can be injected: rate limiting, server errors and bodies that break off.
+ */
+class MockGuardianServer implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final Pattern PAGE_SIZE = Pattern.compile("[?&]page-size=(\\d+)");
+
+    //Bytes that are written at once while the bandwidth is limited
+    private static final int CHUNK_BYTES = 1024;
+
+    /**
+     * A fault the server can answer a request with instead of the recorded response.
+     */
+    enum Fault {
+        /** 429 with a Retry-After header. */
+        TOO_MANY_REQUESTS,
+        /** 503 with a short error body. */
+        SERVER_ERROR,
+        /** 200 whose body breaks off halfway, after which the connection is closed. */
+        TRUNCATED
+    }
+
+    private final ServerSocket mServerSocket;
+    private final byte[] mBody;
+    private final AtomicInteger mConnectionCount = new AtomicInteger();
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+    private final List<Socket> mSockets = Collections.synchronizedList(new ArrayList<Socket>());
+    private volatile long mLastBodyBytesSent;
+
+    //Recorded responses scaled to a page size and their compressed form, by page size, where
+    //0 stands for the body that is not scaled
+    private final Map<Integer, byte[]> mPages = new ConcurrentHashMap<>();
+    private final Map<Integer, byte[]> mGzippedPages = new ConcurrentHashMap<>();
+    private final boolean mScalePages;
+
+    private volatile long mLatencyMillis;
+    private volatile int mBytesPerSecond;
+    private volatile int mRetryAfterSeconds;
+    private final Queue<Fault> mQueuedFaults = new ConcurrentLinkedQueue<>();
+    private final List<FaultRule> mFaultRules = new CopyOnWriteArrayList<>();
+    private final AtomicInteger[] mFaultCounts = new AtomicInteger[Fault.values().length];
+
+    /**
+     * Answers every request with the given body.
+     */
+    MockGuardianServer(String body) throws IOException {
+        this(body.getBytes(UTF_8), false);
+    }
+
+    /**
+     * Replays the recorded Guardian response with as many results as the page-size of each
+     * request asks for, or the recorded ones when it asks for none.
+     */
+    MockGuardianServer() throws IOException {
+        this(GuardianFixtures.load(GuardianFixtures.BUSINESS_PAGE).getBytes(UTF_8), true);
+    }
+
+    private MockGuardianServer(byte[] body, boolean scalePages) throws IOException {
+        mBody = body;
+        mScalePages = scalePages;
+        for (int i = 0; i < mFaultCounts.length; i++) {
+            mFaultCounts[i] = new AtomicInteger();
+        }
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptLoop();
+            }
+        }, "MockGuardianServer");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    String url(String pathAndQuery) {
+        return "http://127.0.0.1:" + mServerSocket.getLocalPort() + pathAndQuery;
+    }
+
+    int connectionCount() {
+        return mConnectionCount.get();
+    }
+
+    int requestCount() {
+        return mRequestCount.get();
+    }
+
+    long lastBodyBytesSent() {
+        return mLastBodyBytesSent;
+    }
+
+    /**
+     * Waits this long before every response, like the round trip to the real server.
+     */
+    void setLatencyMillis(long latencyMillis) {
+        mLatencyMillis = latencyMillis;
+    }
+
+    /**
+     * Sends every response at no more than this many bytes per second, or as fast as possible
+     * for 0.
+     */
+    void setBytesPerSecond(int bytesPerSecond) {
+        mBytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Sets the Retry-After of the 429 responses, which is 0 unless set.
+     */
+    void setRetryAfterSeconds(int retryAfterSeconds) {
+        mRetryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Answers the next requests with the faults, one request each, before any other rule.
+     */
+    void enqueue(Fault... faults) {
+        Collections.addAll(mQueuedFaults, faults);
+    }
+
+    /**
+     * Answers every {@code interval}th request with the fault. When several rules match a
+     * request, the one that was added first wins.
+     */
+    void failEvery(int interval, Fault fault) {
+        mFaultRules.add(new FaultRule(interval, fault));
+    }
+
+    /**
+     * Returns how many requests were answered with the fault.
+     */
+    int faultCount(Fault fault) {
+        return mFaultCounts[fault.ordinal()].get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mServerSocket.close();
+        synchronized (mSockets) {
+            for (Socket socket : mSockets) {
+                socket.close();
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        while (!mServerSocket.isClosed()) {
+            try {
+                final Socket socket = mServerSocket.accept();
+                //Headers and body are written separately, which must not wait for delayed acks
+                socket.setTcpNoDelay(true);
+                mConnectionCount.incrementAndGet();
+                mSockets.add(socket);
+                Thread connectionThread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                });
+                connectionThread.setDaemon(true);
+                connectionThread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            while (true) {
+                List<String> requestLines = readRequest(in);
+                if (requestLines == null) {
+                    return;
+                }
+                int request = mRequestCount.incrementAndGet();
+
+                boolean gzip = false;
+                for (String line : requestLines) {
+                    String lower = line.toLowerCase(Locale.US);
+                    if (lower.startsWith("accept-encoding:") && lower.contains("gzip")) {
+                        gzip = true;
+                    }
+                }
+
+                sleep(mLatencyMillis);
+                Fault fault = nextFault(request);
+                if (fault != null) {
+                    mFaultCounts[fault.ordinal()].incrementAndGet();
+                }
+                if (fault == Fault.TOO_MANY_REQUESTS || fault == Fault.SERVER_ERROR) {
+                    writeError(out, fault);
+                    continue;
+                }
+
+                byte[] body = body(requestLines.isEmpty() ? "" : requestLines.get(0), gzip);
+                mLastBodyBytesSent = body.length;
+                String headers = "HTTP/1.1 200 OK\r\n"
+                        + "Content-Type: application/json\r\n"
+                        + "Content-Length: " + body.length + "\r\n"
+                        + (gzip ? "Content-Encoding: gzip\r\n" : "")
+                        + "Connection: keep-alive\r\n\r\n";
+                out.write(headers.getBytes(UTF_8));
+                if (fault == Fault.TRUNCATED) {
+                    //Promise the whole body, send half of it and hang up
+                    write(out, body, body.length / 2);
+                    out.flush();
+                    return;
+                }
+                write(out, body, body.length);
+                out.flush();
+            }
+        } catch (SocketException e) {
+            //The client or the test closed the connection
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            mSockets.remove(socket);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private Fault nextFault(int request) {
+        Fault queued = mQueuedFaults.poll();
+        if (queued != null) {
+            return queued;
+        }
+        for (FaultRule rule : mFaultRules) {
+            if (request % rule.mInterval == 0) {
+                return rule.mFault;
+            }
+        }
+        return null;
+    }
+
+    private void writeError(OutputStream out, Fault fault) throws IOException, InterruptedException {
+        byte[] body = ("{\"message\":\"" + fault.name().toLowerCase(Locale.US) + "\"}").getBytes(UTF_8);
+        String status = fault == Fault.TOO_MANY_REQUESTS
+                ? "429 Too Many Requests\r\nRetry-After: " + mRetryAfterSeconds
+                : "503 Service Unavailable";
+        String headers = "HTTP/1.1 " + status + "\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: keep-alive\r\n\r\n";
+        out.write(headers.getBytes(UTF_8));
+        write(out, body, body.length);
+        out.flush();
+    }
+
+    /**
+     * Returns the body for the request line: the recorded response, scaled to its page-size
+     * when this server replays pages. Bodies are built and compressed once per page size.
+     */
+    private byte[] body(String requestLine, boolean gzip) throws IOException {
+        Matcher pageSize = PAGE_SIZE.matcher(requestLine);
+        int results = mScalePages && pageSize.find() ? Integer.parseInt(pageSize.group(1)) : 0;
+        Map<Integer, byte[]> bodies = gzip ? mGzippedPages : mPages;
+        byte[] body = bodies.get(results);
+        if (body == null) {
+            body = results == 0 ? mBody : GuardianFixtures.withResults(results).getBytes(UTF_8);
+            if (gzip) {
+                body = gzip(body);
+            }
+            bodies.put(results, body);
+        }
+        return body;
+    }
+
+    /**
+     * Writes the first {@code length} bytes, in chunks that keep to the bandwidth when it is limited.
+     */
+    private void write(OutputStream out, byte[] bytes, int length) throws IOException, InterruptedException {
+        int bytesPerSecond = mBytesPerSecond;
+        if (bytesPerSecond <= 0) {
+            out.write(bytes, 0, length);
+            return;
+        }
+        long start = System.nanoTime();
+        for (int offset = 0; offset < length; offset += CHUNK_BYTES) {
+            int count = Math.min(CHUNK_BYTES, length - offset);
+            out.write(bytes, offset, count);
+            out.flush();
+            long dueNanos = (offset + count) * 1000000000L / bytesPerSecond;
+            sleep((dueNanos - (System.nanoTime() - start)) / 1000000);
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    /**
+     * Reads the request line and headers, or returns null when the client closed the connection.
+     */
+    private static List<String> readRequest(InputStream in) throws IOException {
+        List<String> lines = new ArrayList<>();
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                String text = new String(line.toByteArray(), UTF_8).trim();
+                line.reset();
+                if (text.isEmpty()) {
+                    return lines;
+                }
+                lines.add(text);
+            } else {
+                line.write(b);
+            }
+        }
+        return null;
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(compressed);
+        out.write(bytes);
+        out.close();
+        return compressed.toByteArray();
+    }
+
+    private static final class FaultRule {
+        final int mInterval;
+        final Fault mFault;
+
+        FaultRule(int interval, Fault fault) {
+            mInterval = interval;
+            mFault = fault;
+        }
+    }
+}
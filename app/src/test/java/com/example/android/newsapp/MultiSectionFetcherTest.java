@@ -0,0 +1,126 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MultiSectionFetcherTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void merge_ordersByDateAndDropsDuplicates() {
+        List<NewsArticle> business = Arrays.asList(
+                article("a", "2018-05-14T07:00:00Z"), article("shared", "2018-05-12T10:00:00Z"));
+        List<NewsArticle> technology = Arrays.asList(
+                article("b", "2018-05-13T09:00:00Z"), article("shared", "2018-05-12T10:00:00Z"));
+
+        List<NewsArticle> newest = MultiSectionFetcher.merge(Arrays.asList(business, technology), true);
+        List<NewsArticle> oldest = MultiSectionFetcher.merge(Arrays.asList(business, technology), false);
+
+        assertEquals(3, newest.size());
+        assertEquals("https://example.com/a", newest.get(0).getWebsite());
+        assertEquals("https://example.com/b", newest.get(1).getWebsite());
+        assertEquals("https://example.com/shared", newest.get(2).getWebsite());
+        assertEquals("https://example.com/shared", oldest.get(0).getWebsite());
+    }
+
+    @Test
+    public void fetchAll_leavesOutSectionsThatMissTheDeadline() {
+        MultiSectionFetcher fetcher = new MultiSectionFetcher(executor, new QueryCache.Fetcher() {
+            @Override
+            public NewsResult fetch(String url) {
+                if (url.contains("slow")) {
+                    sleep(2000);
+                }
+                return NewsResult.success(Collections.singletonList(
+                        article(url.substring(url.indexOf('=') + 1), "2018-05-14T07:00:00Z")));
+            }
+        }, 4, 300);
+
+        long start = System.currentTimeMillis();
+        List<NewsArticle> merged = fetcher.fetchAll(Arrays.asList(
+                "https://content.guardianapis.com/search?section=business",
+                "https://content.guardianapis.com/search?section=slow"), true).getArticles();
+
+        assertTrue(System.currentTimeMillis() - start < 1500);
+        assertEquals(1, merged.size());
+        assertEquals("https://example.com/business", merged.get(0).getWebsite());
+    }
+
+    @Test
+    public void fetchAll_limitsRequestsPerHost() {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        MultiSectionFetcher fetcher = new MultiSectionFetcher(executor, new QueryCache.Fetcher() {
+            @Override
+            public NewsResult fetch(String url) {
+                int now = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), now));
+                }
+                sleep(50);
+                running.decrementAndGet();
+                return NewsResult.success(Collections.singletonList(article(url, "2018-05-14T07:00:00Z")));
+            }
+        }, 2, 5000);
+
+        List<NewsArticle> merged = fetcher.fetchAll(Arrays.asList(
+                "https://content.guardianapis.com/search?section=1",
+                "https://content.guardianapis.com/search?section=2",
+                "https://content.guardianapis.com/search?section=3",
+                "https://content.guardianapis.com/search?section=4",
+                "https://content.guardianapis.com/search?section=5",
+                "https://content.guardianapis.com/search?section=6"), true).getArticles();
+
+        assertEquals(6, merged.size());
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void fetchAll_isStaleWhenNoSectionIsFresh() {
+        MultiSectionFetcher fetcher = new MultiSectionFetcher(executor, new QueryCache.Fetcher() {
+            @Override
+            public NewsResult fetch(String url) {
+                if (url.endsWith("a")) {
+                    return NewsResult.failure(503, Collections.singletonList(article("stored", "2018-05-14T07:00:00Z")));
+                }
+                return NewsResult.failure(503, null);
+            }
+        }, 4, 1000);
+
+        NewsResult result = fetcher.fetchAll(Arrays.asList(
+                "https://content.guardianapis.com/search?section=a",
+                "https://content.guardianapis.com/search?section=b"), true);
+
+        assertEquals(NewsResult.Status.STALE, result.getStatus());
+        assertEquals(503, result.getErrorCode());
+        assertEquals(1, result.getArticles().size());
+    }
+
+    private static NewsArticle article(String id, String date) {
+        return new NewsArticle("Title " + id, "Section", "https://example.com/" + id, date, "Author");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
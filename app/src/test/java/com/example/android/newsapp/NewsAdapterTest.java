@@ -0,0 +1,40 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NewsAdapterTest {
+
+    @Test
+    public void stableId_dependsOnlyOnUrl() {
+        String url = "https://www.theguardian.com/business/2018/may/14/pound-falls";
+
+        assertEquals(NewsAdapter.stableId(url), NewsAdapter.stableId(new String(url)));
+        assertTrue(NewsAdapter.stableId(url) != NewsAdapter.stableId(url + "?copy=1"));
+    }
+
+    @Test
+    public void diffCallback_matchesOnUrlAndComparesShownFields() {
+        NewsArticle original = article("https://example.com/a", "Title");
+        NewsArticle retitled = article("https://example.com/a", "New title");
+        List<NewsArticle> oldList = Arrays.asList(original, article("https://example.com/b", "Other"));
+        List<NewsArticle> newList = Arrays.asList(retitled, article("https://example.com/b", "Other"));
+
+        NewsAdapter.ArticleDiffCallback callback = new NewsAdapter.ArticleDiffCallback(oldList, newList);
+
+        assertTrue(callback.areItemsTheSame(0, 0));
+        assertFalse(callback.areContentsTheSame(0, 0));
+        assertTrue(callback.areContentsTheSame(1, 1));
+        assertFalse(callback.areItemsTheSame(0, 1));
+    }
+
+    private static NewsArticle article(String url, String title) {
+        return new NewsArticle(title, "Business", url, "2018-05-14T07:41:12Z", "Author");
+    }
+}
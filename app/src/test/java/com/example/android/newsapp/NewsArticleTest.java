@@ -0,0 +1,91 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NewsArticleTest {
+
+    private final Locale mDefaultLocale = Locale.getDefault();
+    private final TimeZone mDefaultTimeZone = TimeZone.getDefault();
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(mDefaultLocale);
+        TimeZone.setDefault(mDefaultTimeZone);
+    }
+
+    @Test
+    public void parseIsoDate_matchesSimpleDateFormat() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Random random = new Random(7);
+
+        for (int i = 0; i < 1000; i++) {
+            long millis = (long) (random.nextDouble() * 4102444800000L) / 1000 * 1000;
+            String date = format.format(new Date(millis));
+            assertEquals(date, millis, Utils.parseIsoDate(date));
+        }
+        assertEquals(951782400000L, Utils.parseIsoDate("2000-02-29T00:00:00Z"));
+    }
+
+    @Test
+    public void parseIsoDate_returnsZeroForOtherForms() {
+        assertEquals(0, Utils.parseIsoDate(""));
+        assertEquals(0, Utils.parseIsoDate(null));
+        assertEquals(0, Utils.parseIsoDate("2018-05-14"));
+        assertEquals(0, Utils.parseIsoDate("2018-13-14T07:41:12Z"));
+        assertEquals(0, Utils.parseIsoDate("2018-05-14T07:41:12+02:00"));
+        assertEquals(0, Utils.parseIsoDate("2018-05-14T07:41:12.500Z"));
+    }
+
+    @Test
+    public void formatIsoDate_isInverseOfParse() {
+        String[] dates = {"1970-01-01T00:00:00Z", "2000-02-29T23:59:59Z", "2018-05-14T07:41:12Z",
+                "2100-12-31T12:00:00Z"};
+        for (String date : dates) {
+            assertEquals(date, Utils.formatIsoDate(Utils.parseIsoDate(date)));
+        }
+    }
+
+    @Test
+    public void displayDate_isFormattedForLocaleAndCached() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        Locale.setDefault(Locale.US);
+        NewsArticle article = new NewsArticle("Title", "Business", "https://example.com/a",
+                "2018-05-14T07:41:12Z", "Author");
+
+        String display = article.getDisplayDate();
+        assertEquals("May 14, 2018", display);
+        assertSame(display, article.getDisplayDate());
+
+        Locale.setDefault(Locale.GERMANY);
+        assertEquals("14.05.2018", article.getDisplayDate());
+    }
+
+    @Test
+    public void displayDate_fallsBackToDayOfUnparsedDate() {
+        NewsArticle article = new NewsArticle("Title", "Business", "https://example.com/a",
+                "2018-05-14T07:41:12.123+01:00", "Author");
+
+        assertEquals(0, article.getPublishedMillis());
+        assertEquals("2018-05-14", article.getDisplayDate());
+    }
+
+    @Test
+    public void publishedMillis_ordersArticles() {
+        NewsArticle older = new NewsArticle("", "", "a", "2018-05-13T23:59:59Z", "");
+        NewsArticle newer = new NewsArticle("", "", "b", "2018-05-14T00:00:00Z", "");
+
+        assertTrue(newer.getPublishedMillis() - older.getPublishedMillis() == 1000);
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the streaming parser against the JSONObject based parser. Their speed is compared by
+ * ParseBenchmark in the benchmarks module.
+ */
+public class NewsJsonParserTest {
+
+    @Test
+    public void streamingParse_matchesDomParse() throws IOException {
+        String json = GuardianFixtures.load(GuardianFixtures.BUSINESS_PAGE);
+
+        List<NewsArticle> streamed = NewsJsonParser.parse(GuardianFixtures.stream(json));
+        List<NewsArticle> dom = Utils.extractFeatureFromJson(json);
+
+        assertEquals(10, streamed.size());
+        assertEquals(dom.size(), streamed.size());
+        for (int i = 0; i < dom.size(); i++) {
+            assertEquals(dom.get(i).getTitle(), streamed.get(i).getTitle());
+            assertEquals(dom.get(i).getSection(), streamed.get(i).getSection());
+            assertEquals(dom.get(i).getWebsite(), streamed.get(i).getWebsite());
+            assertEquals(dom.get(i).getDate(), streamed.get(i).getDate());
+            assertEquals(dom.get(i).getAuthor(), streamed.get(i).getAuthor());
+        }
+        assertEquals("Richard Partington", streamed.get(0).getAuthor());
+    }
+
+    @Test
+    public void streamingParse_emitsArticlesIncrementally() throws IOException {
+        final List<NewsArticle> received = new ArrayList<>();
+        int count = NewsJsonParser.parse(
+                GuardianFixtures.stream(GuardianFixtures.withResults(25)),
+                new NewsJsonParser.ArticleCallback() {
+                    @Override
+                    public void onArticle(NewsArticle article) {
+                        received.add(article);
+                    }
+                });
+
+        assertEquals(25, count);
+        assertEquals(25, received.size());
+    }
+
+    @Test
+    public void streamingParse_handlesMissingAndEmptyTags() throws IOException {
+        String json = "{\"response\":{\"results\":["
+                + "{\"webTitle\":\"No tags\",\"webUrl\":\"a\"},"
+                + "{\"webTitle\":\"Empty tags\",\"webUrl\":\"b\",\"tags\":[]},"
+                + "{\"webTitle\":null,\"webUrl\":\"c\",\"tags\":[{\"webTitle\":\"Author\"}]}]}}";
+
+        List<NewsArticle> news = NewsJsonParser.parse(GuardianFixtures.stream(json));
+
+        assertEquals(3, news.size());
+        assertEquals("", news.get(0).getAuthor());
+        assertEquals("", news.get(1).getAuthor());
+        assertEquals("", news.get(2).getTitle());
+        assertEquals("Author", news.get(2).getAuthor());
+    }
+
+    @Test
+    public void streamingParse_readsThumbnailFromFields() throws IOException {
+        String json = "{\"response\":{\"results\":["
+                + "{\"webUrl\":\"a\",\"fields\":{\"headline\":\"H\",\"thumbnail\":\"https://media.guim.co.uk/a.jpg\"}},"
+                + "{\"webUrl\":\"b\",\"fields\":{}},"
+                + "{\"webUrl\":\"c\"}]}}";
+
+        List<NewsArticle> streamed = NewsJsonParser.parse(GuardianFixtures.stream(json));
+        List<NewsArticle> dom = Utils.extractFeatureFromJson(json.replace("\"webUrl\"", "\"tags\":[{}],\"webUrl\""));
+
+        assertEquals("https://media.guim.co.uk/a.jpg", streamed.get(0).getThumbnail());
+        assertEquals("", streamed.get(1).getThumbnail());
+        assertEquals("", streamed.get(2).getThumbnail());
+        for (int i = 0; i < streamed.size(); i++) {
+            assertEquals(streamed.get(i).getThumbnail(), dom.get(i).getThumbnail());
+        }
+    }
+
+    @Test
+    public void parse_skipsMalformedResultsAndCountsFailedFields() throws IOException {
+        String json = "{\"response\":{\"results\":["
+                + "{\"webTitle\":{\"text\":\"Object\"},\"sectionName\":\"Business\",\"webUrl\":\"a\",\"tags\":[{}]},"
+                + "\"not an object\","
+                + "{\"webTitle\":\"No URL\",\"sectionName\":\"Business\",\"tags\":[{}]},"
+                + "{\"webTitle\":\"Bad tags\",\"sectionName\":\"Business\",\"webUrl\":\"b\",\"tags\":7},"
+                + "{\"webTitle\":\"Fine\",\"sectionName\":\"Business\",\"webUrl\":\"c\",\"tags\":[{}],"
+                + "\"webPublicationDate\":\"yesterday\"}]}}";
+
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        boolean wasEnabled = metrics.isEnabled();
+        metrics.setEnabled(true);
+        metrics.reset();
+        try {
+            List<NewsArticle> streamed = NewsJsonParser.parse(GuardianFixtures.stream(json));
+
+            assertEquals(3, streamed.size());
+            assertEquals("", streamed.get(0).getTitle());
+            assertEquals("Bad tags", streamed.get(1).getTitle());
+            assertEquals("", streamed.get(1).getAuthor());
+            assertEquals("Fine", streamed.get(2).getTitle());
+            assertEquals(2, metrics.getCount(PipelineMetrics.Counter.ARTICLES_SKIPPED));
+            assertEquals(1, metrics.getCount(PipelineMetrics.Counter.INVALID_TITLE));
+            assertEquals(1, metrics.getCount(PipelineMetrics.Counter.INVALID_URL));
+            assertEquals(1, metrics.getCount(PipelineMetrics.Counter.INVALID_AUTHOR));
+            assertEquals(1, metrics.getCount(PipelineMetrics.Counter.INVALID_DATE));
+
+            //The sections of all results are the same instance
+            assertSame(streamed.get(0).getSection(), streamed.get(2).getSection());
+
+            //The JSONObject based parser leaves out and keeps the same results
+            List<NewsArticle> dom = Utils.extractFeatureFromJson(json);
+            assertEquals(streamed.size(), dom.size());
+            for (int i = 0; i < dom.size(); i++) {
+                assertEquals(streamed.get(i).getTitle(), dom.get(i).getTitle());
+                assertEquals(streamed.get(i).getWebsite(), dom.get(i).getWebsite());
+            }
+        } finally {
+            metrics.reset();
+            metrics.setEnabled(wasEnabled);
+        }
+    }
+
+    @Test
+    public void domParse_handlesMissingAndEmptyTags() {
+        String json = "{\"response\":{\"results\":["
+                + "{\"webTitle\":\"No tags\",\"webUrl\":\"a\"},"
+                + "{\"webTitle\":\"Empty tags\",\"webUrl\":\"b\",\"tags\":[]}]}}";
+
+        List<NewsArticle> news = Utils.extractFeatureFromJson(json);
+
+        assertEquals(2, news.size());
+        assertEquals("", news.get(0).getAuthor());
+        assertEquals("Empty tags", news.get(1).getTitle());
+        assertEquals("", news.get(1).getAuthor());
+    }
+
+    @Test
+    public void parse_readsEveryContributorTagAndField() throws IOException {
+        String result = "{\"webTitle\":\"Budget\",\"sectionId\":\"business\",\"sectionName\":\"Business\","
+                + "\"webUrl\":\"%s\",\"tags\":["
+                + "{\"id\":\"business/richard-partington\",\"type\":\"contributor\",\"webTitle\":\"Richard Partington\"},"
+                + "{\"id\":\"business/economics\",\"type\":\"keyword\",\"webTitle\":\"Economics\"},"
+                + "{\"id\":\"business/larry-elliott\",\"type\":\"contributor\",\"webTitle\":\"Larry Elliott\"}],"
+                + "\"fields\":{\"trailText\":\"<p>What it means</p>\",\"wordcount\":\"812\"}}";
+        String json = "{\"response\":{\"results\":[" + String.format(result, "a") + ","
+                + String.format(result, "b").replace("\"812\"", "\"many\"") + "]}}";
+
+        List<NewsArticle> streamed = NewsJsonParser.parse(GuardianFixtures.stream(json));
+        List<NewsArticle> dom = Utils.extractFeatureFromJson(json);
+
+        NewsArticle article = streamed.get(0);
+        assertEquals("business", article.getSectionId());
+        assertEquals(Arrays.asList("Richard Partington", "Larry Elliott"), article.getContributors());
+        assertEquals("Richard Partington", article.getAuthor());
+        assertEquals("Richard Partington, Larry Elliott", article.getByline());
+        assertEquals(Arrays.asList("business/economics"), article.getTags());
+        assertEquals("<p>What it means</p>", article.getTrailText());
+        assertEquals(812, article.getWordCount());
+        //A word count that is not a number is left out
+        assertEquals(0, streamed.get(1).getWordCount());
+
+        //Contributors and tags of different results are the same instances
+        assertSame(article.getContributors().get(1), streamed.get(1).getContributors().get(1));
+        assertSame(article.getTags().get(0), dom.get(0).getTags().get(0));
+
+        assertEquals(streamed.size(), dom.size());
+        for (int i = 0; i < dom.size(); i++) {
+            assertTrue(streamed.get(i).hasSameContent(dom.get(i)));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void streamingParse_rejectsUnexpectedStructure() throws IOException {
+        NewsJsonParser.parse(GuardianFixtures.stream("{\"response\":{\"results\":{}}}"));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NewsPaginatorTest {
+
+    @Test
+    public void shouldLoadMore_onlyWithinPrefetchDistance() {
+        NewsPaginator paginator = new NewsPaginator(20, 5);
+        paginator.reset(articles(0, 20));
+
+        assertFalse(paginator.shouldLoadMore(14, 20));
+        assertTrue(paginator.shouldLoadMore(15, 20));
+        assertEquals(2, paginator.getNextPage());
+    }
+
+    @Test
+    public void shouldLoadMore_notWhileLoadingOrAtTheEnd() {
+        NewsPaginator paginator = new NewsPaginator(20, 5);
+        paginator.reset(articles(0, 20));
+
+        paginator.onLoadStarted();
+        assertFalse(paginator.shouldLoadMore(20, 20));
+
+        paginator.onPageLoaded(2, articles(20, 7));
+        assertFalse(paginator.shouldLoadMore(27, 27));
+    }
+
+    @Test
+    public void onPageLoaded_dropsArticlesThatAreAlreadyListed() {
+        NewsPaginator paginator = new NewsPaginator(20, 5);
+        paginator.reset(articles(0, 20));
+
+        //The feed moved on by three articles between the two requests
+        List<NewsArticle> added = paginator.onPageLoaded(2, articles(17, 20));
+
+        assertEquals(17, added.size());
+        assertEquals("https://example.com/20", added.get(0).getWebsite());
+        assertEquals(3, paginator.getNextPage());
+    }
+
+    @Test
+    public void onPageLoaded_samePageTwiceAdvancesOnce() {
+        NewsPaginator paginator = new NewsPaginator(20, 5);
+        paginator.reset(articles(0, 20));
+
+        paginator.onPageLoaded(2, articles(20, 20));
+        List<NewsArticle> again = paginator.onPageLoaded(2, articles(20, 20));
+
+        assertTrue(again.isEmpty());
+        assertEquals(3, paginator.getNextPage());
+    }
+
+    @Test
+    public void onPageFailed_asksForThePageAgain() {
+        NewsPaginator paginator = new NewsPaginator(20, 5);
+        paginator.reset(articles(0, 20));
+
+        paginator.onLoadStarted();
+        List<NewsArticle> stored = paginator.onPageFailed(2, articles(18, 5));
+
+        //Only the stored articles that are not listed yet are added
+        assertEquals(3, stored.size());
+        assertFalse(paginator.isEndReached());
+        assertEquals(2, paginator.getNextPage());
+        assertTrue(paginator.shouldLoadMore(22, 23));
+
+        paginator.onPageLoaded(2, null);
+        assertFalse(paginator.isEndReached());
+        assertEquals(2, paginator.getNextPage());
+    }
+
+    @Test
+    public void reset_firstPageThatFailedIsAskedForAgain() {
+        NewsPaginator paginator = new NewsPaginator(20, 5);
+
+        assertEquals(5, paginator.reset(articles(0, 5), false).size());
+
+        assertFalse(paginator.isEndReached());
+        assertEquals(1, paginator.getNextPage());
+    }
+
+    @Test
+    public void reset_startsOverFromTheFirstPage() {
+        NewsPaginator paginator = new NewsPaginator(20, 5);
+        paginator.reset(articles(0, 20));
+        paginator.onPageLoaded(2, articles(20, 20));
+
+        assertEquals(20, paginator.reset(articles(0, 20)).size());
+        assertEquals(2, paginator.getNextPage());
+    }
+
+    private static List<NewsArticle> articles(int first, int count) {
+        List<NewsArticle> articles = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            articles.add(new NewsArticle("Title " + i, "Business", "https://example.com/" + i,
+                    "2018-05-14T07:41:12Z", "Author"));
+        }
+        return articles;
+    }
+}
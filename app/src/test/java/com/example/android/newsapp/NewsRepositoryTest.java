@@ -0,0 +1,378 @@
+package com.example.android.newsapp;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the offline article store and its conditional revalidation against a fake HTTP layer.
+ */
+public class NewsRepositoryTest {
+
+    private static final String URL = "https://content.guardianapis.com/search?section=business";
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeTransport transport;
+    private TestCache cache;
+    private CircuitBreaker breaker;
+    private TestRepository repository;
+    private String fixture;
+
+    @Before
+    public void setUp() throws IOException {
+        transport = new FakeTransport();
+        cache = new TestCache(folder.newFolder("news"), 1024 * 1024, 7 * DAY);
+        breaker = new CircuitBreaker(3, 60 * 1000);
+        repository = new TestRepository(transport, cache, breaker);
+        fixture = GuardianFixtures.load(GuardianFixtures.BUSINESS_PAGE);
+    }
+
+    @Test
+    public void fetch_storesArticlesForOfflineUse() {
+        transport.enqueue(200, fixture, "ETag", "\"v1\"");
+
+        assertNull(repository.getCached(URL));
+        assertEquals(10, repository.fetch(URL).getArticles().size());
+
+        List<NewsArticle> cached = repository.getCached(URL);
+        assertEquals(10, cached.size());
+        assertEquals("Pound falls as UK inflation expectations ease", cached.get(0).getTitle());
+        assertEquals(1, transport.requestCount());
+    }
+
+    @Test
+    public void fetch_rejectedTrialDoesNotKeepTheBreakerShut() {
+        breaker.openFor(0);
+        transport.enqueue(404, null);
+        transport.enqueue(200, fixture);
+
+        assertEquals(404, repository.fetch(URL).getErrorCode());
+        NewsResult next = repository.fetch(URL);
+
+        assertEquals(NewsResult.Status.SUCCESS, next.getStatus());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(2, transport.requestCount());
+    }
+
+    @Test
+    public void fetch_prefetchBeyondTheQuotaGetsTheStoredArticles() {
+        RequestScheduler scheduler = new RequestScheduler(null, 10, 10, 2, new PipelineMetrics());
+        NewsRepository limited = new NewsRepository(transport, cache, new RetryPolicy(3, 500, 8000, new Random(1)),
+                breaker, new PipelineMetrics(), scheduler);
+        transport.enqueue(200, fixture, "ETag", "\"v1\"");
+        transport.enqueue(304, null);
+
+        limited.fetch(URL, new CancelSignal(), LoadEngine.Priority.PREFETCH);
+        NewsResult refused = limited.fetch(URL, new CancelSignal(), LoadEngine.Priority.PREFETCH);
+        NewsResult visible = limited.fetch(URL, new CancelSignal(), LoadEngine.Priority.VISIBLE);
+
+        assertEquals(NewsResult.Status.STALE, refused.getStatus());
+        assertEquals(10, refused.getArticles().size());
+        assertEquals(NewsResult.Status.SUCCESS, visible.getStatus());
+        assertEquals(2, transport.requestCount());
+    }
+
+    @Test
+    public void fetch_revalidatesWithEtagAndServesCachedOnNotModified() {
+        transport.enqueue(200, fixture, "ETag", "\"v1\"", "Last-Modified", "Mon, 14 May 2018 07:41:12 GMT");
+        transport.enqueue(304, null);
+
+        repository.fetch(URL);
+        NewsResult revalidated = repository.fetch(URL);
+
+        assertEquals(NewsResult.Status.SUCCESS, revalidated.getStatus());
+        assertEquals(10, revalidated.getArticles().size());
+        assertEquals("\"v1\"", transport.requestHeaders.get(1).get("If-None-Match"));
+        assertEquals("Mon, 14 May 2018 07:41:12 GMT", transport.requestHeaders.get(1).get("If-Modified-Since"));
+        assertTrue(transport.requestHeaders.get(0).isEmpty());
+    }
+
+    @Test
+    public void fetch_fallsBackToCacheWhenServerFails() {
+        transport.enqueue(200, fixture, "ETag", "\"v1\"");
+        transport.enqueue(503, null);
+        transport.enqueueFailure(new IOException("offline"));
+        transport.enqueue(500, null);
+
+        repository.fetch(URL);
+        NewsResult result = repository.fetch(URL);
+
+        assertEquals(NewsResult.Status.STALE, result.getStatus());
+        assertEquals(500, result.getErrorCode());
+        assertEquals(10, result.getArticles().size());
+        assertEquals(4, transport.requestCount());
+    }
+
+    @Test
+    public void fetch_withoutCacheOrServer_returnsError() {
+        transport.enqueueFailure(new IOException("offline"));
+        transport.enqueueFailure(new IOException("offline"));
+        transport.enqueueFailure(new IOException("offline"));
+
+        NewsResult result = repository.fetch(URL);
+
+        assertEquals(NewsResult.Status.ERROR, result.getStatus());
+        assertTrue(result.getArticles().isEmpty());
+    }
+
+    @Test
+    public void fetch_retriesTransientFailuresWithBackoff() {
+        transport.enqueue(503, null);
+        transport.enqueueFailure(new IOException("reset"));
+        transport.enqueue(200, fixture);
+
+        NewsResult result = repository.fetch(URL);
+
+        assertEquals(NewsResult.Status.SUCCESS, result.getStatus());
+        assertEquals(3, transport.requestCount());
+        assertEquals(2, repository.sleeps.size());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void fetch_honorsShortRetryAfter() {
+        transport.enqueue(429, null, "Retry-After", "2");
+        transport.enqueue(200, fixture);
+
+        repository.fetch(URL);
+
+        assertEquals(Arrays.asList(2000L), repository.sleeps);
+    }
+
+    @Test
+    public void fetch_longRetryAfterOpensBreakerAndServesStale() {
+        transport.enqueue(200, fixture);
+        transport.enqueue(429, null, "Retry-After", "120");
+
+        repository.fetch(URL);
+        NewsResult throttled = repository.fetch(URL);
+        NewsResult whileOpen = repository.fetch(URL);
+
+        assertEquals(NewsResult.Status.STALE, throttled.getStatus());
+        assertEquals(NewsResult.Status.STALE, whileOpen.getStatus());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, transport.requestCount());
+        assertTrue(repository.sleeps.isEmpty());
+    }
+
+    @Test
+    public void fetch_doesNotRetryRejectedRequest() {
+        transport.enqueue(401, null);
+
+        NewsResult result = repository.fetch(URL);
+
+        assertEquals(NewsResult.Status.ERROR, result.getStatus());
+        assertEquals(401, result.getErrorCode());
+        assertEquals(1, transport.requestCount());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void fetch_emptyFeedIsNotAnError() {
+        transport.enqueue(200, "{\"response\":{\"status\":\"ok\",\"results\":[]}}");
+
+        assertEquals(NewsResult.Status.EMPTY, repository.fetch(URL).getStatus());
+    }
+
+    @Test
+    public void fetch_cancelledBeforeStart_makesNoRequest() {
+        CancelSignal signal = new CancelSignal();
+        signal.cancel();
+
+        NewsResult result = repository.fetch(URL, signal);
+
+        assertEquals(NewsResult.Status.ERROR, result.getStatus());
+        assertEquals(0, transport.requestCount());
+    }
+
+    @Test
+    public void fetch_cancelBreaksOffRequestThatWaitsForItsResponse() {
+        final CancelSignal signal = new CancelSignal();
+
+        //The server takes its time to answer, and the user leaves before it does
+        HttpTransport slowServer = new HttpTransport() {
+            @Override
+            public HttpResponse execute(String url, Map<String, String> headers, CancelSignal requestSignal)
+                    throws IOException {
+                final Thread waiting = Thread.currentThread();
+                requestSignal.addOnCancelListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        waiting.interrupt();
+                    }
+                });
+                signal.cancel();
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    throw new IOException("Canceled");
+                }
+                throw new AssertionError("The request was not broken off");
+            }
+        };
+        TestRepository cancelled = new TestRepository(slowServer, cache, breaker);
+
+        NewsResult result = cancelled.fetch(URL, signal);
+
+        assertEquals(NewsResult.Status.ERROR, result.getStatus());
+        assertTrue(cancelled.sleeps.isEmpty());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void fetch_cancelAbortsResponseWhileParsing() {
+        final CancelSignal signal = new CancelSignal();
+        final byte[] body = fixture.getBytes(Charset.forName("UTF-8"));
+        final int[] requests = new int[1];
+
+        //The user leaves after the first kilobyte of the response arrived
+        HttpTransport slowTransport = new HttpTransport() {
+            @Override
+            public HttpResponse execute(String url, Map<String, String> headers, final CancelSignal requestSignal) {
+                requests[0]++;
+                return new HttpResponse(200, null, new InputStream() {
+                    private int mPosition;
+                    private boolean mClosed;
+
+                    @Override
+                    public int read() throws IOException {
+                        //Like a real transport, the body breaks off when the request is cancelled
+                        if (mClosed || requestSignal.isCancelled()) {
+                            throw new IOException("Stream closed");
+                        }
+                        if (mPosition == 1024) {
+                            signal.cancel();
+                            return read();
+                        }
+                        return mPosition < body.length ? body[mPosition++] & 0xff : -1;
+                    }
+
+                    @Override
+                    public void close() {
+                        mClosed = true;
+                    }
+                }, null);
+            }
+        };
+        TestRepository cancelled = new TestRepository(slowTransport, cache, breaker);
+
+        NewsResult result = cancelled.fetch(URL, signal);
+
+        assertEquals(NewsResult.Status.ERROR, result.getStatus());
+        assertEquals(1, requests[0]);
+        assertTrue(cancelled.sleeps.isEmpty());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertNull(repository.getCached(URL));
+    }
+
+    @Test
+    public void cache_dropsEntriesOlderThanMaxAge() {
+        transport.enqueue(200, fixture);
+        repository.fetch(URL);
+
+        cache.now += 8 * DAY;
+
+        assertNull(repository.getCached(URL));
+    }
+
+    @Test
+    public void cache_notModifiedRefreshesAge() {
+        transport.enqueue(200, fixture, "ETag", "\"v1\"");
+        transport.enqueue(304, null);
+        repository.fetch(URL);
+
+        cache.now += 6 * DAY;
+        repository.fetch(URL);
+        cache.now += 6 * DAY;
+
+        assertEquals(10, repository.getCached(URL).size());
+    }
+
+    @Test
+    public void cache_unchangedResponseOnlyRefreshesAge() {
+        List<NewsArticle> articles = Utils.extractFeatureFromStream(GuardianFixtures.stream(fixture));
+        assertTrue(cache.put(URL, "\"v1\"", null, articles));
+
+        //A different ETag or a changed article is written again
+        assertTrue(cache.put(URL, "\"v2\"", null, articles));
+        assertTrue(cache.put(URL, "\"v2\"", null, articles.subList(0, 9)));
+
+        cache.now += 6 * DAY;
+        assertFalse(cache.put(URL, "\"v2\"", null, articles.subList(0, 9)));
+        cache.now += 6 * DAY;
+        assertEquals(9, cache.get(URL).getArticles().size());
+    }
+
+    @Test
+    public void cache_evictsOldestEntriesBeyondMaxBytes() throws IOException {
+        List<NewsArticle> articles = Utils.extractFeatureFromStream(GuardianFixtures.stream(fixture));
+        cache.put(URL, null, null, articles);
+        long entryBytes = new File(folder.getRoot(), "news").listFiles()[0].length();
+
+        //Room for one entry, but not for two
+        File directory = folder.newFolder("small");
+        ArticleDiskCache small = new ArticleDiskCache(directory, entryBytes + entryBytes / 2, 7 * DAY);
+        small.put("first", null, null, articles);
+        assertTrue(new File(directory, directory.list()[0]).setLastModified(System.currentTimeMillis() - DAY));
+        small.put("second", null, null, articles);
+
+        assertNull(small.get("first"));
+        assertEquals(10, small.get("second").getArticles().size());
+    }
+
+    @Test
+    public void cache_storesEachUrlOnce() {
+        NewsArticle article = new NewsArticle("Title", "Business", "https://example.com/a", "2018-05-14T07:41:12Z", "Author");
+        cache.put(URL, null, null, Arrays.asList(article, article));
+
+        List<NewsArticle> cached = cache.get(URL).getArticles();
+        assertEquals(1, cached.size());
+        assertFalse(cached.get(0).getAuthor().isEmpty());
+    }
+
+    private static class TestRepository extends NewsRepository {
+        final List<Long> sleeps = new ArrayList<>();
+
+        TestRepository(HttpTransport transport, ArticleDiskCache cache, CircuitBreaker breaker) {
+            super(transport, cache, new RetryPolicy(3, 500, 8000, new Random(1)), breaker,
+                    new PipelineMetrics());
+        }
+
+        @Override
+        void sleep(long millis) {
+            sleeps.add(millis);
+        }
+    }
+
+    private static class TestCache extends ArticleDiskCache {
+        long now = System.currentTimeMillis();
+
+        TestCache(File directory, long maxBytes, long maxAgeMillis) {
+            super(directory, maxBytes, maxAgeMillis);
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return now;
+        }
+    }
+}
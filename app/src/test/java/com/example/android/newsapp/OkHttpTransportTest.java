@@ -0,0 +1,99 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the transport the app uses against a local mock server to check connection reuse, gzip
+ * and breaking off a request.
+ */
+public class OkHttpTransportTest {
+
+    private static final int REFRESHES = 10;
+
+    private MockGuardianServer server;
+    private String fixture;
+
+    @Before
+    public void setUp() throws IOException {
+        fixture = GuardianFixtures.withResults(50);
+        server = new MockGuardianServer(fixture);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void execute_reusesOneConnectionForRepeatedRefreshes() {
+        HttpTransport transport = new OkHttpTransport(new PipelineMetrics());
+        for (int i = 0; i < REFRESHES; i++) {
+            List<NewsArticle> news = Utils.fetchNewsData(transport, server.url("/search?page=" + i));
+            assertEquals(50, news.size());
+        }
+
+        assertEquals(REFRESHES, server.requestCount());
+        assertEquals(1, server.connectionCount());
+    }
+
+    @Test
+    public void execute_requestsAndDecodesGzip() throws IOException {
+        HttpResponse response = new OkHttpTransport(new PipelineMetrics()).execute(server.url("/search"), null, null);
+        try {
+            assertEquals(200, response.getCode());
+            assertEquals(50, NewsJsonParser.parse(response.getBody()).size());
+        } finally {
+            response.close();
+        }
+
+        assertTrue(server.lastBodyBytesSent() * 4 < fixture.length());
+    }
+
+    @Test
+    public void execute_cancelBreaksOffRequestThatWaitsForTheResponse() throws InterruptedException {
+        server.setLatencyMillis(5000);
+        final CancelSignal signal = new CancelSignal();
+        Thread user = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                signal.cancel();
+            }
+        });
+        user.start();
+
+        long start = System.nanoTime();
+        try {
+            new OkHttpTransport(new PipelineMetrics()).execute(server.url("/search"), null, signal).close();
+            fail("The request was not broken off");
+        } catch (IOException expected) {
+            //The call was cancelled while it waited for the response
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        user.join();
+
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 2000);
+    }
+
+    @Test(expected = IOException.class)
+    public void execute_failsRightAwayWhenAlreadyCancelled() throws IOException {
+        CancelSignal signal = new CancelSignal();
+        signal.cancel();
+
+        new OkHttpTransport(new PipelineMetrics()).execute(server.url("/search"), null, signal).close();
+    }
+}
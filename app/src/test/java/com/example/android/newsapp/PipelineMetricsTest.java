@@ -0,0 +1,90 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the histograms and counters of PipelineMetrics and that nothing is recorded while they
+ * are disabled.
+ */
+public class PipelineMetricsTest {
+
+    @Test
+    public void histogram_reportsCountMeanMaxAndPercentiles() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.setEnabled(true);
+        for (int i = 1; i <= 100; i++) {
+            metrics.recordNanos(PipelineMetrics.Stage.PARSE, i * 1000000L);
+        }
+
+        PipelineMetrics.Histogram parse = metrics.getHistogram(PipelineMetrics.Stage.PARSE);
+        assertEquals(100, parse.getCount());
+        assertEquals(50500, parse.getMeanMicros());
+        assertEquals(100000, parse.getMaxMicros());
+
+        //Percentiles are rounded up to the end of their bucket, which is at most twice the value
+        long median = parse.getPercentileMicros(50);
+        assertTrue(median >= 50000 && median < 100000);
+        long p99 = parse.getPercentileMicros(99);
+        assertTrue(p99 >= 99000 && p99 <= 100000);
+    }
+
+    @Test
+    public void counters_addUp() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.setEnabled(true);
+
+        metrics.increment(PipelineMetrics.Counter.ARTICLES_PARSED, 20);
+        metrics.increment(PipelineMetrics.Counter.ARTICLES_PARSED, 5);
+
+        assertEquals(25, metrics.getCount(PipelineMetrics.Counter.ARTICLES_PARSED));
+        assertEquals(0, metrics.getCount(PipelineMetrics.Counter.LOADS));
+    }
+
+    @Test
+    public void disabled_recordsNothing() {
+        PipelineMetrics metrics = new PipelineMetrics();
+
+        long start = metrics.startTimer();
+        metrics.stopTimer(PipelineMetrics.Stage.LOAD, start);
+        metrics.recordNanos(PipelineMetrics.Stage.LOAD, 1000000);
+        metrics.increment(PipelineMetrics.Counter.LOADS, 1);
+
+        assertEquals(0, start);
+        assertEquals(0, metrics.getHistogram(PipelineMetrics.Stage.LOAD).getCount());
+        assertEquals(0, metrics.getCount(PipelineMetrics.Counter.LOADS));
+    }
+
+    @Test
+    public void timer_recordsElapsedTime() throws InterruptedException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.setEnabled(true);
+
+        long start = metrics.startTimer();
+        Thread.sleep(5);
+        metrics.stopTimer(PipelineMetrics.Stage.BIND, start);
+
+        assertTrue(metrics.getHistogram(PipelineMetrics.Stage.BIND).getMaxMicros() >= 5000);
+    }
+
+    @Test
+    public void dump_listsEveryStageAndCounter() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.setEnabled(true);
+        metrics.recordNanos(PipelineMetrics.Stage.FIRST_BYTE, 2000000);
+        metrics.increment(PipelineMetrics.Counter.BYTES_READ, 9239);
+
+        String dump = metrics.dump();
+
+        for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values()) {
+            assertTrue(dump.contains(stage.name()));
+        }
+        assertTrue(dump.contains("BYTES_READ      9239"));
+
+        metrics.reset();
+        assertEquals(0, metrics.getCount(PipelineMetrics.Counter.BYTES_READ));
+        assertEquals(0, metrics.getHistogram(PipelineMetrics.Stage.FIRST_BYTE).getCount());
+    }
+}
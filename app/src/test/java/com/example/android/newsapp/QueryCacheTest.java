@@ -0,0 +1,307 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class QueryCacheTest {
+
+    private static final String URL =
+            "https://content.guardianapis.com/search?section=business&order-by=newest&api-key=abc";
+
+    @Test
+    public void normalize_sortsParametersAndDropsApiKeyAndFromDate() {
+        assertEquals("https://content.guardianapis.com/search?order-by=newest&page=2&section=business",
+                QueryCache.normalize("https://content.guardianapis.com/search?section=business&page=2"
+                        + "&api-key=abc&order-by=newest"));
+        assertEquals("https://content.guardianapis.com/search?order-by=newest&section=business",
+                QueryCache.normalize("https://content.guardianapis.com/search?section=business"
+                        + "&from-date=2018-05-07&order-by=newest"));
+        assertEquals("https://content.guardianapis.com/search",
+                QueryCache.normalize("https://content.guardianapis.com/search"));
+    }
+
+    @Test
+    public void peek_findsEntryForEquivalentUrl() {
+        QueryCache cache = new QueryCache(4, 1000);
+        cache.put(URL, Collections.singletonList(article("a")));
+
+        QueryCache.Entry entry = cache.peek(
+                "https://content.guardianapis.com/search?api-key=other&order-by=newest&section=business");
+
+        assertNotNull(entry);
+        assertEquals(1, entry.getArticles().size());
+    }
+
+    @Test
+    public void entry_becomesStaleAfterTimeToLive() {
+        TestCache cache = new TestCache(4, 1000);
+        cache.put(URL, Collections.singletonList(article("a")));
+
+        assertFalse(cache.peek(URL).isStale());
+        cache.now += 1001;
+        assertTrue(cache.peek(URL).isStale());
+        assertEquals(1, cache.peek(URL).getArticles().size());
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedQuery() {
+        QueryCache cache = new QueryCache(2, 1000);
+        cache.put(URL + "&page=1", Collections.singletonList(article("1")));
+        cache.put(URL + "&page=2", Collections.singletonList(article("2")));
+        cache.peek(URL + "&page=1");
+        cache.put(URL + "&page=3", Collections.singletonList(article("3")));
+
+        assertNotNull(cache.peek(URL + "&page=1"));
+        assertNull(cache.peek(URL + "&page=2"));
+        assertNotNull(cache.peek(URL + "&page=3"));
+    }
+
+    @Test
+    public void load_coalescesIdenticalInFlightQueries() throws InterruptedException {
+        final QueryCache cache = new QueryCache(4, 1000);
+        final AtomicInteger fetches = new AtomicInteger();
+        final CountDownLatch fetchStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFetch = new CountDownLatch(1);
+        final NewsResult result = NewsResult.success(Collections.singletonList(article("a")));
+        final QueryCache.Fetcher fetcher = new QueryCache.Fetcher() {
+            @Override
+            public NewsResult fetch(String url) {
+                fetches.incrementAndGet();
+                fetchStarted.countDown();
+                try {
+                    releaseFetch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return result;
+            }
+        };
+
+        final NewsResult[] results = new NewsResult[2];
+        Thread first = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                results[0] = cache.load(URL, fetcher);
+            }
+        });
+        Thread second = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                results[1] = cache.load(URL.replace("api-key=abc", "api-key=xyz"), fetcher);
+            }
+        });
+        first.start();
+        assertTrue(fetchStarted.await(5, TimeUnit.SECONDS));
+        second.start();
+        //Give the second thread time to join the request that is in flight
+        Thread.sleep(100);
+        releaseFetch.countDown();
+        first.join(5000);
+        second.join(5000);
+
+        assertEquals(1, fetches.get());
+        assertSame(result, results[0]);
+        assertSame(result, results[1]);
+        assertNotNull(cache.peek(URL));
+    }
+
+    @Test
+    public void load_visibleLoadDoesNotWaitForAPrefetchOfTheSameQuery() throws InterruptedException {
+        final QueryCache cache = new QueryCache(4, 1000);
+        final CountDownLatch prefetchStarted = new CountDownLatch(1);
+        final CountDownLatch releasePrefetch = new CountDownLatch(1);
+        final NewsResult visibleResult = NewsResult.success(Collections.singletonList(article("a")));
+
+        final NewsResult[] prefetched = new NewsResult[1];
+        Thread prefetch = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                prefetched[0] = cache.load(URL, LoadEngine.Priority.PREFETCH, new CancelSignal(), new QueryCache.Fetcher() {
+                    @Override
+                    public NewsResult fetch(String url) {
+                        //Stands in for a prefetch that waits for the quota and is then refused
+                        prefetchStarted.countDown();
+                        try {
+                            releasePrefetch.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return NewsResult.failure(0, null);
+                    }
+                });
+            }
+        });
+        prefetch.start();
+        assertTrue(prefetchStarted.await(5, TimeUnit.SECONDS));
+
+        NewsResult visible = cache.load(URL, LoadEngine.Priority.VISIBLE, new CancelSignal(), new QueryCache.Fetcher() {
+            @Override
+            public NewsResult fetch(String url) {
+                return visibleResult;
+            }
+        });
+        releasePrefetch.countDown();
+        prefetch.join(5000);
+
+        //The visible load sent its own request, and the prefetch took over its result
+        assertSame(visibleResult, visible);
+        assertSame(visibleResult, prefetched[0]);
+        assertNotNull(cache.peek(URL));
+    }
+
+    @Test
+    public void load_joinedLoadStopsWaitingWhenItIsCancelled() throws InterruptedException {
+        final QueryCache cache = new QueryCache(4, 1000);
+        final CountDownLatch fetchStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFetch = new CountDownLatch(1);
+        Thread owner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                cache.load(URL, new QueryCache.Fetcher() {
+                    @Override
+                    public NewsResult fetch(String url) {
+                        fetchStarted.countDown();
+                        try {
+                            releaseFetch.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return NewsResult.success(Collections.singletonList(article("a")));
+                    }
+                });
+            }
+        });
+        owner.start();
+        assertTrue(fetchStarted.await(5, TimeUnit.SECONDS));
+
+        final CancelSignal signal = new CancelSignal();
+        final NewsResult[] joined = new NewsResult[1];
+        Thread joiner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                joined[0] = cache.load(URL, LoadEngine.Priority.VISIBLE, signal, new QueryCache.Fetcher() {
+                    @Override
+                    public NewsResult fetch(String url) {
+                        throw new AssertionError("The joined load sent its own request");
+                    }
+                });
+            }
+        });
+        joiner.start();
+        //Give the joiner time to join the request that is in flight
+        Thread.sleep(100);
+        signal.cancel();
+        joiner.join(1000);
+
+        //The joiner left while the shared request still runs
+        assertFalse(joiner.isAlive());
+        assertFalse(joined[0].isFresh());
+        releaseFetch.countDown();
+        owner.join(5000);
+        assertNotNull(cache.peek(URL));
+    }
+
+    @Test
+    public void load_joinedLoadLoadsAgainWhenTheSharedOneWasCancelled() throws InterruptedException {
+        final QueryCache cache = new QueryCache(4, 1000);
+        final CancelSignal ownerSignal = new CancelSignal();
+        final CountDownLatch fetchStarted = new CountDownLatch(1);
+        final AtomicInteger fetches = new AtomicInteger();
+        Thread owner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                cache.load(URL, LoadEngine.Priority.VISIBLE, ownerSignal, new QueryCache.Fetcher() {
+                    @Override
+                    public NewsResult fetch(String url) {
+                        //Stands in for a request that is broken off when its load is cancelled
+                        fetches.incrementAndGet();
+                        fetchStarted.countDown();
+                        final CountDownLatch cancelled = new CountDownLatch(1);
+                        ownerSignal.addOnCancelListener(new Runnable() {
+                            @Override
+                            public void run() {
+                                cancelled.countDown();
+                            }
+                        });
+                        try {
+                            cancelled.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return NewsResult.failure(0, null);
+                    }
+                });
+            }
+        });
+        owner.start();
+        assertTrue(fetchStarted.await(5, TimeUnit.SECONDS));
+
+        final NewsResult result = NewsResult.success(Collections.singletonList(article("a")));
+        final NewsResult[] joined = new NewsResult[1];
+        Thread joiner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                joined[0] = cache.load(URL, LoadEngine.Priority.VISIBLE, new CancelSignal(), new QueryCache.Fetcher() {
+                    @Override
+                    public NewsResult fetch(String url) {
+                        fetches.incrementAndGet();
+                        return result;
+                    }
+                });
+            }
+        });
+        joiner.start();
+        //Give the joiner time to join the request that is in flight
+        Thread.sleep(100);
+        ownerSignal.cancel();
+        owner.join(5000);
+        joiner.join(5000);
+
+        assertEquals(2, fetches.get());
+        assertSame(result, joined[0]);
+        assertNotNull(cache.peek(URL));
+    }
+
+    @Test
+    public void load_doesNotCacheFailedFetch() {
+        QueryCache cache = new QueryCache(4, 1000);
+        cache.load(URL, new QueryCache.Fetcher() {
+            @Override
+            public NewsResult fetch(String url) {
+                return NewsResult.failure(503, null);
+            }
+        });
+
+        assertNull(cache.peek(URL));
+    }
+
+    private static NewsArticle article(String id) {
+        return new NewsArticle("Title " + id, "Business", "https://example.com/" + id,
+                "2018-05-14T07:41:12Z", "Author");
+    }
+
+    private static class TestCache extends QueryCache {
+        long now = System.currentTimeMillis();
+
+        TestCache(int maxEntries, long timeToLiveMillis) {
+            super(maxEntries, timeToLiveMillis);
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return now;
+        }
+    }
+}
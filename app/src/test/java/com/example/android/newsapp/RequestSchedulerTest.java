@@ -0,0 +1,155 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the token bucket, the order waiting requests are served in and the daily quota.
+ */
+public class RequestSchedulerTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    @Test
+    public void acquire_burstGoesRightAwayThenWaitsForTokens() {
+        RequestScheduler scheduler = new RequestScheduler(null, 3, 20, 1000, new PipelineMetrics());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(scheduler.acquire(LoadEngine.Priority.VISIBLE, "url " + i, new CancelSignal()));
+        }
+        long burstMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(scheduler.acquire(LoadEngine.Priority.VISIBLE, "url 3", new CancelSignal()));
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) - burstMillis;
+
+        //A new token comes in every 50 ms
+        assertTrue("Waited " + waitMillis + " ms", waitMillis >= 30);
+        assertEquals(4, scheduler.getUsedToday());
+    }
+
+    @Test
+    public void acquire_visibleRequestsGoBeforePrefetching() throws InterruptedException {
+        RequestScheduler scheduler = new RequestScheduler(null, 1, 4, 1000, new PipelineMetrics());
+        assertTrue(scheduler.acquire(LoadEngine.Priority.VISIBLE, "first", new CancelSignal()));
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        Thread prefetch = acquireInBackground(scheduler, LoadEngine.Priority.PREFETCH, "next page",
+                new CancelSignal(), order, null);
+        waitForWaiting(scheduler, 1);
+        Thread visible = acquireInBackground(scheduler, LoadEngine.Priority.VISIBLE, "reader",
+                new CancelSignal(), order, null);
+        waitForWaiting(scheduler, 2);
+        prefetch.join(TIMEOUT_MILLIS);
+        visible.join(TIMEOUT_MILLIS);
+
+        assertEquals(2, order.size());
+        assertEquals("reader", order.get(0));
+        assertEquals("next page", order.get(1));
+    }
+
+    @Test
+    public void acquire_dropsPrefetchOfAUrlThatIsAskedForVisibly() throws InterruptedException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.setEnabled(true);
+        RequestScheduler scheduler = new RequestScheduler(null, 1, 10, 1000, metrics);
+        assertTrue(scheduler.acquire(LoadEngine.Priority.VISIBLE, "first", new CancelSignal()));
+        AtomicBoolean prefetched = new AtomicBoolean(true);
+
+        Thread prefetch = acquireInBackground(scheduler, LoadEngine.Priority.PREFETCH, "article",
+                new CancelSignal(), null, prefetched);
+        waitForWaiting(scheduler, 1);
+        assertTrue(scheduler.acquire(LoadEngine.Priority.VISIBLE, "article", new CancelSignal()));
+        prefetch.join(TIMEOUT_MILLIS);
+
+        assertFalse(prefetched.get());
+        assertEquals(2, scheduler.getUsedToday());
+        assertEquals(1, metrics.getCount(PipelineMetrics.Counter.QUOTA_SUPERSEDED));
+        assertEquals(0, metrics.getCount(PipelineMetrics.Counter.QUOTA_CANCELLED));
+        assertEquals(1, metrics.getCount(PipelineMetrics.Counter.QUOTA_WAITS));
+    }
+
+    @Test
+    public void acquire_cancelledRequestStopsWaitingWithoutAToken() throws InterruptedException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.setEnabled(true);
+        RequestScheduler scheduler = new RequestScheduler(null, 1, 0.1, 1000, metrics);
+        assertTrue(scheduler.acquire(LoadEngine.Priority.VISIBLE, "first", new CancelSignal()));
+        AtomicBoolean acquired = new AtomicBoolean(true);
+        CancelSignal signal = new CancelSignal();
+
+        Thread waiting = acquireInBackground(scheduler, LoadEngine.Priority.VISIBLE, "second", signal, null, acquired);
+        waitForWaiting(scheduler, 1);
+        signal.cancel();
+        waiting.join(TIMEOUT_MILLIS);
+
+        //The next token is 10 seconds away, the cancel did not wait for it
+        assertFalse(waiting.isAlive());
+        assertFalse(acquired.get());
+        assertEquals(0, scheduler.getWaitingCount());
+        assertEquals(1, scheduler.getUsedToday());
+        assertEquals(1, metrics.getCount(PipelineMetrics.Counter.QUOTA_CANCELLED));
+        assertEquals(0, metrics.getCount(PipelineMetrics.Counter.QUOTA_SUPERSEDED));
+    }
+
+    @Test
+    public void acquire_onlyVisibleRequestsNearTheDailyLimitUntilTheNextDay() {
+        final long[] now = {1526283672000L};
+        RequestScheduler scheduler = new RequestScheduler(null, 100, 100, 10, new PipelineMetrics()) {
+            @Override
+            long currentTimeMillis() {
+                return now[0];
+            }
+        };
+
+        for (int i = 0; i < 8; i++) {
+            assertTrue(scheduler.acquire(LoadEngine.Priority.PREFETCH, "page " + i, new CancelSignal()));
+        }
+        assertFalse(scheduler.acquire(LoadEngine.Priority.PREFETCH, "page 8", new CancelSignal()));
+        assertTrue(scheduler.acquire(LoadEngine.Priority.VISIBLE, "page 1", new CancelSignal()));
+        assertEquals(9, scheduler.getUsedToday());
+
+        now[0] += DAY;
+        assertEquals(0, scheduler.getUsedToday());
+        assertTrue(scheduler.acquire(LoadEngine.Priority.PREFETCH, "page 8", new CancelSignal()));
+    }
+
+    /**
+     * Acquires on a new thread and records the url in the order, or the outcome in the result.
+     */
+    private static Thread acquireInBackground(final RequestScheduler scheduler, final LoadEngine.Priority priority,
+                                              final String url, final CancelSignal signal, final List<String> order,
+                                              final AtomicBoolean result) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                boolean acquired = scheduler.acquire(priority, url, signal);
+                if (order != null && acquired) {
+                    order.add(url);
+                }
+                if (result != null) {
+                    result.set(acquired);
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void waitForWaiting(RequestScheduler scheduler, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (scheduler.getWaitingCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, scheduler.getWaitingCount());
+    }
+}
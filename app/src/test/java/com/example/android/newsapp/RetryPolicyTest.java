@@ -0,0 +1,56 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void backoff_staysBelowExponentialCeiling() {
+        RetryPolicy policy = new RetryPolicy(5, 500, 8000, new Random(42));
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(policy.backoffMillis(1) < 500);
+            assertTrue(policy.backoffMillis(3) < 2000);
+            assertTrue(policy.backoffMillis(10) < 8000);
+        }
+    }
+
+    @Test
+    public void backoff_isJittered() {
+        RetryPolicy policy = new RetryPolicy(5, 500, 8000, new Random(42));
+
+        long first = policy.backoffMillis(4);
+        boolean differs = false;
+        for (int i = 0; i < 10 && !differs; i++) {
+            differs = policy.backoffMillis(4) != first;
+        }
+        assertTrue(differs);
+    }
+
+    @Test
+    public void parseRetryAfter_readsSecondsAndDates() {
+        long now = 1526283672000L; //Mon, 14 May 2018 07:41:12 GMT
+
+        assertEquals(120000, RetryPolicy.parseRetryAfter("120", now));
+        assertEquals(30000, RetryPolicy.parseRetryAfter("Mon, 14 May 2018 07:41:42 GMT", now));
+        assertEquals(0, RetryPolicy.parseRetryAfter("Mon, 14 May 2018 07:00:00 GMT", now));
+        assertEquals(-1, RetryPolicy.parseRetryAfter("soon", now));
+        assertEquals(-1, RetryPolicy.parseRetryAfter(null, now));
+    }
+
+    @Test
+    public void isRetryable_onlyForTransientFailures() {
+        assertTrue(RetryPolicy.isRetryable(0));
+        assertTrue(RetryPolicy.isRetryable(429));
+        assertTrue(RetryPolicy.isRetryable(503));
+        assertFalse(RetryPolicy.isRetryable(400));
+        assertFalse(RetryPolicy.isRetryable(401));
+        assertFalse(RetryPolicy.isRetryable(404));
+    }
+}
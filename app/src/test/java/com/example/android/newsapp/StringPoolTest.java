@@ -0,0 +1,45 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that the StringPool shares equal strings and stops growing once it is full.
+ */
+public class StringPoolTest {
+
+    @Test
+    public void intern_returnsTheFirstInstance() {
+        StringPool pool = new StringPool(10);
+        String first = new String("Business");
+        String second = new String("Business");
+
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(second));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void intern_isBounded() {
+        StringPool pool = new StringPool(2);
+        pool.intern("a");
+        pool.intern("b");
+        String third = new String("c");
+
+        assertSame(third, pool.intern(third));
+        assertNotSame(third, pool.intern(new String("c")));
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void intern_leavesNullAndEmptyOut() {
+        StringPool pool = new StringPool(10);
+
+        assertEquals(null, pool.intern(null));
+        assertEquals("", pool.intern(""));
+        assertEquals(0, pool.size());
+    }
+}
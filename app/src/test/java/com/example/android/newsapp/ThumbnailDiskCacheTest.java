@@ -0,0 +1,102 @@
+package com.example.android.newsapp;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests storing thumbnails on disk and evicting the least recently used ones.
+ */
+public class ThumbnailDiskCacheTest {
+
+    private static final String FIRST = "https://media.guim.co.uk/first/500.jpg";
+    private static final String SECOND = "https://media.guim.co.uk/second/500.jpg";
+    private static final String THIRD = "https://media.guim.co.uk/third/500.jpg";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private TestCache cache;
+
+    @Before
+    public void setUp() {
+        directory = new File(folder.getRoot(), "thumbnails");
+        cache = new TestCache(directory, 2500);
+    }
+
+    @Test
+    public void put_storesImageUnderUrl() throws IOException {
+        assertNull(cache.get(FIRST));
+
+        File file = cache.put(FIRST, image(1000));
+
+        assertEquals(file, cache.get(FIRST));
+        assertEquals(1000, file.length());
+        assertEquals(1, directory.list().length);
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedBeyondMaxBytes() throws IOException {
+        cache.put(FIRST, image(1000));
+        cache.now += 1000;
+        cache.put(SECOND, image(1000));
+        cache.now += 1000;
+
+        //Reading the first thumbnail makes the second one the least recently used
+        assertNotNull(cache.get(FIRST));
+        cache.now += 1000;
+        cache.put(THIRD, image(1000));
+
+        assertNotNull(cache.get(FIRST));
+        assertNull(cache.get(SECOND));
+        assertNotNull(cache.get(THIRD));
+    }
+
+    @Test
+    public void put_failedDownloadLeavesNoFile() {
+        InputStream broken = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("reset");
+            }
+        };
+
+        try {
+            cache.put(FIRST, broken);
+        } catch (IOException expected) {
+            //The stream broke off while the image was being written
+        }
+
+        assertNull(cache.get(FIRST));
+        assertEquals(0, directory.list().length);
+    }
+
+    private static InputStream image(int bytes) {
+        return new ByteArrayInputStream(new byte[bytes]);
+    }
+
+    private static class TestCache extends ThumbnailDiskCache {
+        //Whole seconds, because some file systems store modification times no finer than that
+        long now = System.currentTimeMillis() / 1000 * 1000;
+
+        TestCache(File directory, long maxBytes) {
+            super(directory, maxBytes);
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.android.newsapp;
+
+import android.widget.ImageView;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ThumbnailLoaderTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void requests_visibleRowsFirstAndCancelledOnesNever() throws Exception {
+        BlockingTransport transport = new BlockingTransport("https://example.com/first.jpg");
+        MainThread mainThread = new MainThread();
+        ThumbnailLoader loader = new ThumbnailLoader(new ThumbnailDiskCache(mFolder.newFolder("thumbnails"), 1024 * 1024),
+                transport, 100, 60, 1, mainThread);
+
+        //The only thread is busy, so everything after the first request waits in the queue
+        loader.load(new ImageView(null), "https://example.com/first.jpg");
+        assertTrue(transport.mStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        loader.prefetch("https://example.com/prefetch.jpg");
+        ImageView recycled = new ImageView(null);
+        loader.load(recycled, "https://example.com/recycled.jpg");
+        loader.load(new ImageView(null), "https://example.com/visible.jpg");
+        loader.cancel(recycled);
+        transport.mRelease.countDown();
+
+        transport.waitForRequests(3);
+        assertEquals(Arrays.asList("https://example.com/first.jpg", "https://example.com/visible.jpg",
+                "https://example.com/prefetch.jpg"), transport.requestUrls());
+    }
+
+    @Test
+    public void failedRequest_forgetsItsView() throws Exception {
+        BlockingTransport transport = new BlockingTransport(null);
+        MainThread mainThread = new MainThread();
+        ThumbnailLoader loader = new ThumbnailLoader(new ThumbnailDiskCache(mFolder.newFolder("thumbnails"), 1024 * 1024),
+                transport, 100, 60, 1, mainThread);
+
+        loader.load(new ImageView(null), "https://example.com/missing.jpg");
+        loader.load(new ImageView(null), "https://example.com/gone.jpg");
+        assertEquals(2, loader.getLoadingCount());
+
+        transport.waitForRequests(2);
+        mainThread.runUntil(2);
+        assertEquals(0, loader.getLoadingCount());
+    }
+
+    @Test
+    public void calculateInSampleSize_keepsBothSidesAtLeastTargetSize() {
+        //The Guardian thumbnails are 500x300, shown at 100dp x 60dp
+        assertEquals(1, ThumbnailLoader.calculateInSampleSize(500, 300, 300, 180));
+        assertEquals(2, ThumbnailLoader.calculateInSampleSize(500, 300, 200, 120));
+        assertEquals(4, ThumbnailLoader.calculateInSampleSize(500, 300, 100, 60));
+        assertEquals(4, ThumbnailLoader.calculateInSampleSize(2000, 1200, 400, 240));
+    }
+
+    @Test
+    public void calculateInSampleSize_neverScalesBelowTheNarrowerSide() {
+        //A tall image is limited by its width
+        assertEquals(2, ThumbnailLoader.calculateInSampleSize(400, 2000, 200, 120));
+        assertEquals(1, ThumbnailLoader.calculateInSampleSize(100, 60, 200, 120));
+        assertEquals(1, ThumbnailLoader.calculateInSampleSize(500, 300, 0, 0));
+    }
+
+    /**
+     * Answers every request with 404, after holding the one for the blocked URL until released.
+     */
+    private static class BlockingTransport implements HttpTransport {
+        final CountDownLatch mStarted = new CountDownLatch(1);
+        final CountDownLatch mRelease = new CountDownLatch(1);
+        private final String mBlockedUrl;
+        private final List<String> mRequestUrls = new ArrayList<>();
+
+        BlockingTransport(String blockedUrl) {
+            mBlockedUrl = blockedUrl;
+        }
+
+        @Override
+        public HttpResponse execute(String url, Map<String, String> headers, CancelSignal signal) throws IOException {
+            synchronized (this) {
+                mRequestUrls.add(url);
+                notifyAll();
+            }
+            if (url.equals(mBlockedUrl)) {
+                mStarted.countDown();
+                try {
+                    mRelease.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new HttpResponse(404, new HashMap<String, String>(), new ByteArrayInputStream(new byte[0]), null);
+        }
+
+        synchronized List<String> requestUrls() {
+            return new ArrayList<>(mRequestUrls);
+        }
+
+        synchronized void waitForRequests(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            while (mRequestUrls.size() < count && System.currentTimeMillis() < deadline) {
+                wait(10);
+            }
+            assertEquals(count, mRequestUrls.size());
+        }
+    }
+
+    /**
+     * Runs what the loader hands to the main thread when the test asks for it.
+     */
+    private static class MainThread implements Executor {
+        private final ConcurrentLinkedQueue<Runnable> mPending = new ConcurrentLinkedQueue<>();
+        private int mRun;
+
+        @Override
+        public void execute(Runnable command) {
+            mPending.add(command);
+        }
+
+        /**
+         * Runs the results until the given number has been run in total.
+         */
+        void runUntil(int results) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            while (mRun < results && System.currentTimeMillis() < deadline) {
+                Runnable next;
+                while ((next = mPending.poll()) != null) {
+                    next.run();
+                    mRun++;
+                }
+                Thread.sleep(5);
+            }
+            assertEquals(results, mRun);
+        }
+    }
+}
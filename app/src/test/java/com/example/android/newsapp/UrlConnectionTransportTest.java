@@ -0,0 +1,136 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the transport against a local mock server to check connection reuse and gzip.
+ */
+public class UrlConnectionTransportTest {
+
+    private static final int REFRESHES = 10;
+
+    private MockGuardianServer server;
+    private String fixture;
+
+    @Before
+    public void setUp() throws IOException {
+        fixture = GuardianFixtures.withResults(50);
+        server = new MockGuardianServer(fixture);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void execute_reusesOneConnectionForRepeatedRefreshes() {
+        HttpTransport transport = new UrlConnectionTransport();
+        for (int i = 0; i < REFRESHES; i++) {
+            List<NewsArticle> news = Utils.fetchNewsData(transport, server.url("/search?page=" + i));
+            assertEquals(50, news.size());
+        }
+
+        assertEquals(REFRESHES, server.requestCount());
+        assertEquals(1, server.connectionCount());
+    }
+
+    @Test
+    public void execute_requestsAndDecodesGzip() throws IOException {
+        HttpResponse response = new UrlConnectionTransport().execute(server.url("/search"), null, null);
+        try {
+            assertEquals(200, response.getCode());
+            assertEquals(50, NewsJsonParser.parse(response.getBody()).size());
+        } finally {
+            response.close();
+        }
+
+        assertTrue(server.lastBodyBytesSent() * 4 < fixture.length());
+    }
+
+    @Test
+    public void execute_cancelBreaksOffRequestThatWaitsForTheResponse() throws InterruptedException {
+        server.setLatencyMillis(5000);
+        final CancelSignal signal = new CancelSignal();
+        Thread user = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                signal.cancel();
+            }
+        });
+        user.start();
+
+        long start = System.nanoTime();
+        try {
+            new UrlConnectionTransport().execute(server.url("/search"), null, signal).close();
+            fail("The request was not broken off");
+        } catch (IOException expected) {
+            //The socket was closed while the request waited for the response
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        user.join();
+
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 2000);
+    }
+
+    @Test
+    public void meteredTransport_recordsResponseSizeAndLatency() throws IOException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.setEnabled(true);
+        HttpTransport transport = new MeteredTransport(new UrlConnectionTransport(metrics), metrics);
+
+        for (int i = 0; i < 3; i++) {
+            Utils.fetchNewsData(transport, server.url("/search"));
+        }
+
+        assertEquals(3, metrics.getCount(PipelineMetrics.Counter.REQUESTS));
+        assertEquals(0, metrics.getCount(PipelineMetrics.Counter.FAILURES));
+        assertTrue(metrics.getCount(PipelineMetrics.Counter.BYTES_READ) >= 3L * fixture.length() - 3);
+        PipelineMetrics.Histogram firstByte = metrics.getHistogram(PipelineMetrics.Stage.FIRST_BYTE);
+        assertEquals(3, firstByte.getCount());
+        assertTrue(firstByte.getMaxMicros() >= firstByte.getMeanMicros());
+        assertEquals(3, metrics.getHistogram(PipelineMetrics.Stage.CONNECT).getCount());
+    }
+
+    @Test
+    public void meteredTransport_reportsThroughputToFetchPolicy() {
+        FetchPolicy policy = new FetchPolicy(null, FetchPolicy.Profile.METERED);
+        policy.onLinkChanged(true, false);
+        HttpTransport transport = new MeteredTransport(new UrlConnectionTransport(), new PipelineMetrics(), policy);
+
+        //A slow link, the body of about 45 KB is compressed to about 2 KB on the wire
+        server.setBytesPerSecond(1024);
+        assertEquals(50, Utils.fetchNewsData(transport, server.url("/search")).size());
+
+        long bytesPerSecond = policy.getBytesPerSecond();
+        assertTrue(bytesPerSecond > 0 && bytesPerSecond < FetchPolicy.SLOW_BYTES_PER_SECOND);
+        assertEquals(FetchPolicy.Profile.SLOW, policy.getProfile());
+    }
+
+    @Test
+    public void meteredTransport_recordsNothingWhileDisabled() throws IOException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        HttpTransport transport = new MeteredTransport(new UrlConnectionTransport(metrics), metrics);
+
+        Utils.fetchNewsData(transport, server.url("/search"));
+
+        assertEquals(0, metrics.getCount(PipelineMetrics.Counter.REQUESTS));
+        assertEquals(0, metrics.getCount(PipelineMetrics.Counter.BYTES_READ));
+        assertEquals(0, metrics.getHistogram(PipelineMetrics.Stage.FIRST_BYTE).getCount());
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Measures the work NewsAdapter does for every row it binds, apart from setting the text on
+ * the views, which needs a device. A row that was never shown has to format its display date
+ * first; a row that is bound again reuses it.
+ */
+@State(Scope.Benchmark)
+public class BindBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int results;
+
+    private List<NewsArticle> mArticles;
+
+    @Setup
+    public void setUp() throws IOException {
+        mArticles = NewsJsonParser.parse(new ByteArrayInputStream(BenchmarkFixtures.response(results)));
+        NewsArticle.prepareForDisplay(mArticles);
+    }
+
+    //Binding rows that were just loaded, so every display date is formatted
+    @Benchmark
+    public void bindNewRows(Blackhole blackhole) {
+        for (NewsArticle article : mArticles) {
+            NewsArticle row = new NewsArticle(article.getTitle(), article.getSection(),
+                    article.getWebsite(), article.getDate(), article.getAuthor(),
+                    "", article.getPublishedMillis());
+            bind(row, blackhole);
+        }
+    }
+
+    //Binding rows again while scrolling back, with the display dates already formatted
+    @Benchmark
+    public void bindShownRows(Blackhole blackhole) {
+        for (NewsArticle article : mArticles) {
+            bind(article, blackhole);
+        }
+    }
+
+    //Reads what NewsAdapter.onBindViewHolder puts on the views
+    private static void bind(NewsArticle article, Blackhole blackhole) {
+        blackhole.consume(article.getTitle());
+        blackhole.consume(article.getSection());
+        blackhole.consume(article.getAuthor());
+        blackhole.consume(article.getDisplayDate());
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Measures turning the fields of the parsed results into NewsArticle objects, which includes
+ * parsing the publication date, and encoding the articles for the disk cache.
+ */
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int results;
+
+    private List<NewsArticle> mArticles;
+
+    @Setup
+    public void setUp() throws IOException {
+        mArticles = NewsJsonParser.parse(new ByteArrayInputStream(BenchmarkFixtures.response(results)));
+    }
+
+    @Benchmark
+    public void mapArticles(Blackhole blackhole) {
+        for (NewsArticle article : mArticles) {
+            blackhole.consume(new NewsArticle(article.getTitle(), article.getSection(),
+                    article.getWebsite(), article.getDate(), article.getAuthor()));
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeBatch() {
+        return ArticleCodec.encode(mArticles);
+    }
+}
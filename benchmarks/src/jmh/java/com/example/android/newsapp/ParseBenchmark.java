@@ -0,0 +1,67 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Measures every way a response body becomes a list of NewsArticle objects: the old path that
+ * buffers the body into a String and builds a JSON tree, the streaming parser, and decoding a
+ * batch from the disk cache.
+ */
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int results;
+
+    private byte[] mBody;
+    private String mJson;
+    private byte[] mBatch;
+
+    @Setup
+    public void setUp() throws IOException {
+        mBody = BenchmarkFixtures.response(results);
+        mJson = Utils.readFromStream(new ByteArrayInputStream(mBody));
+        mBatch = ArticleCodec.encode(NewsJsonParser.parse(new ByteArrayInputStream(mBody)));
+    }
+
+    //Buffering the body into a String, the first half of the old path
+    @Benchmark
+    public String readFromStream() throws IOException {
+        return Utils.readFromStream(new ByteArrayInputStream(mBody));
+    }
+
+    //Building the JSON tree from the String, the second half of the old path
+    @Benchmark
+    public List<NewsArticle> extractFeatureFromJson() {
+        return Utils.extractFeatureFromJson(mJson);
+    }
+
+    //Both halves of the old path together
+    @Benchmark
+    public List<NewsArticle> domParse() throws IOException {
+        return Utils.extractFeatureFromStream(new ByteArrayInputStream(mBody));
+    }
+
+    @Benchmark
+    public List<NewsArticle> streamingParse() throws IOException {
+        return NewsJsonParser.parse(new ByteArrayInputStream(mBody));
+    }
+
+    //Decoding every record of the cached batch, the way the list is read when it is shown
+    @Benchmark
+    public void decodeBatch(Blackhole blackhole) throws IOException {
+        for (NewsArticle article : ArticleCodec.decode(ByteBuffer.wrap(mBatch))) {
+            blackhole.consume(article);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures filling the on-device search index and queries against it. The index is filled with
+ * articles whose titles are made of the words of the recorded results, so the terms are spread
+ * like real ones. The articles and the index only depend on their number and the queries only on
+ * their text, so every benchmark runs over just the parameters it uses.
+ */
+public class SearchBenchmark {
+
+    private static final String[] SECTIONS = {"Business", "Money", "World news", "Politics", "Technology"};
+
+    /**
+     * The indexed articles and the index that is built from them once per trial.
+     */
+    @State(Scope.Benchmark)
+    public static class Corpus {
+
+        @Param({"5000", "50000"})
+        public int articles;
+
+        private List<NewsArticle> mArticles;
+        private ArticleSearchIndex mIndex;
+
+        @Setup
+        public void setUp() throws IOException {
+            List<String> vocabulary = new ArrayList<>();
+            for (NewsArticle article : NewsJsonParser.parse(new ByteArrayInputStream(BenchmarkFixtures.response(200)))) {
+                vocabulary.addAll(ArticleSearchIndex.tokenize(article.getTitle()));
+            }
+
+            Random random = new Random(42);
+            long start = Utils.parseIsoDate("2017-01-01T00:00:00Z");
+            List<NewsArticle> indexed = new ArrayList<>(articles);
+            for (int i = 0; i < articles; i++) {
+                StringBuilder title = new StringBuilder();
+                for (int w = 0; w < 8; w++) {
+                    title.append(vocabulary.get(random.nextInt(vocabulary.size()))).append(' ');
+                }
+                long published = start + random.nextInt(500 * 24 * 60) * 60000L;
+                indexed.add(new NewsArticle(title.toString().trim(), SECTIONS[random.nextInt(SECTIONS.length)],
+                        "https://example.com/" + i, Utils.formatIsoDate(published), "Author " + random.nextInt(500)));
+            }
+            mArticles = indexed;
+            mIndex = new ArticleSearchIndex();
+            mIndex.addAll(indexed);
+        }
+    }
+
+    /**
+     * What the user types into the search field.
+     */
+    @State(Scope.Benchmark)
+    public static class Query {
+
+        @Param({"p", "pound", "bus pound", "author 12"})
+        public String query;
+    }
+
+    //Indexing every article, like the index being filled from the stored feeds
+    @Benchmark
+    public ArticleSearchIndex index(Corpus corpus) {
+        ArticleSearchIndex index = new ArticleSearchIndex();
+        index.addAll(corpus.mArticles);
+        return index;
+    }
+
+    @Benchmark
+    public List<NewsArticle> search(Corpus corpus, Query query) {
+        return corpus.mIndex.search(query.query, 50);
+    }
+
+    @Benchmark
+    public List<String> tokenize(Query query) {
+        return ArticleSearchIndex.tokenize(query.query);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.android.newsapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+/**
+ * Measures what it takes to show the top of the feed when the app starts: reading the snapshot
+ * that was taken of it, against parsing the same articles from a response.
+ */
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+    private static final String FEED_KEY = "newest|business";
+
+    @Param({"10", "50"})
+    public int results;
+
+    private byte[] mBody;
+    private File mFile;
+    private FeedSnapshot mSnapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        mBody = BenchmarkFixtures.response(results);
+        mFile = File.createTempFile("snapshot", null);
+        mSnapshot = new FeedSnapshot(mFile, results, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        mSnapshot.write(FEED_KEY, NewsJsonParser.parse(new ByteArrayInputStream(mBody)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    //Reads the snapshot and the titles of its rows, like the list binding the first screen
+    @Benchmark
+    public void readSnapshot(Blackhole blackhole) {
+        for (NewsArticle article : mSnapshot.read(FEED_KEY)) {
+            blackhole.consume(article.getTitle());
+        }
+    }
+
+    //Only the parsing part of a load, without the request it waits for first
+    @Benchmark
+    public void parseFirstPage(Blackhole blackhole) throws IOException {
+        for (NewsArticle article : NewsJsonParser.parse(new ByteArrayInputStream(mBody))) {
+            blackhole.consume(article.getTitle());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package android.text;
+
+/*
+ * Stand-in for the Android TextUtils class, so the app classes can run on the desktop JVM
+ */
+public final class TextUtils {
+
+    private TextUtils() {
+    }
+
+    public static boolean isEmpty(CharSequence str) {
+        return str == null || str.length() == 0;
+    }
+}
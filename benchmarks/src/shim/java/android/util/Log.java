@@ -0,0 +1,20 @@
+package android.util;
+
+/*
+ * Stand-in for the Android Log class, so the app classes can run on the desktop JVM
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int e(String tag, String msg) {
+        System.err.println(tag + ": " + msg);
+        return 0;
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        System.err.println(tag + ": " + msg + " " + tr);
+        return 0;
+    }
+}